@@ -0,0 +1,87 @@
+package benchmark;
+
+import java.util.Map;
+
+import testresults.BenchmarkResult;
+
+/**
+ * Runs a benchmark in warmup and measurement iterations and measures the average time of an operation.
+ * Every iteration runs the setup, which is not timed, and then one pass of the benchmark, timed with System.nanoTime.
+ * The value returned by every pass is consumed, so the JIT compiler can not remove the measured work.
+ *
+ * @author Bruno
+ *
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * One pass of a benchmark.
+	 */
+	@FunctionalInterface
+	public interface Pass {
+
+		/**
+		 * Runs the measured operations.
+		 * @return any value depending on the results of the operations
+		 */
+		long run();
+	}
+
+	private int warmupIterations;
+	private int measurementIterations;
+	private long sink;
+
+	/**
+	 * Default constructor. Takes the number of warmup and measurement iterations of every benchmark.
+	 *
+	 * @param warmupIterations number of iterations run before measuring, to let the JIT compiler optimize the code
+	 * @param measurementIterations number of measured iterations
+	 */
+	public BenchmarkRunner(int warmupIterations, int measurementIterations) {
+
+		if(warmupIterations < 0 || measurementIterations < 1){
+			throw new IllegalArgumentException("Invalid number of benchmark iterations");
+		}
+
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+	}
+
+	/**
+	 * Runs a benchmark.
+	 *
+	 * @param benchmark name of the benchmark
+	 * @param params parameters of the benchmark
+	 * @param setup prepares the state for a pass, not timed
+	 * @param pass operations to be measured
+	 * @param operationsPerPass number of operations done by one pass
+	 * @return result holding the average time of an operation in every measurement iteration
+	 */
+	public BenchmarkResult run(String benchmark, Map<String, String> params, Runnable setup, Pass pass, int operationsPerPass){
+
+		for(int i = 0; i < warmupIterations; ++i){
+			setup.run();
+			sink += pass.run();
+		}
+
+		double[] nanosPerOperation = new double[measurementIterations];
+		for(int i = 0; i < measurementIterations; ++i){
+
+			setup.run();
+			long start = System.nanoTime();
+			sink += pass.run();
+			nanosPerOperation[i] = (double)(System.nanoTime() - start) / operationsPerPass;
+		}
+
+		return new BenchmarkResult(benchmark, params, warmupIterations, nanosPerOperation);
+	}
+
+	/**
+	 * Returns the sum of all values returned by the passes, printing it keeps the measured work observable.
+	 * @return sum of the values returned by the passes
+	 */
+	public long getSink(){
+		return sink;
+	}
+
+}
@@ -0,0 +1,309 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Random;
+
+import hashfunctions.HashFunction;
+import hashfunctions.Hasher;
+import implementation.HashTable;
+import implementation.IndexStrategy;
+import test.Options;
+import testresults.BenchmarkResult;
+
+/**
+ * Benchmark suite of hashing and hash-table operations, a replacement for timing batches with the speed test.
+ * Measures:
+ * <ul>
+ * <li>hashing a message with every hash function, for several numbers of hashes per message,</li>
+ * <li>add, contains of stored messages (hit), contains of other messages (miss) and a mix of a quarter of adds and
+ * three quarters of contains with every hash function, for hash-tables from sizes that fit in the cache to sizes
+ * far beyond the last level cache, by default up to 2^31 bits whose positions no longer fit an int,</li>
+ * <li>the same operations on a HashSet as a baseline.</li>
+ * </ul>
+ * Messages are generated before measuring and kept in arrays, so only the measured operations are timed.
+ * Hash-tables used for contains are filled to about half of their bits. Results are printed and written to a JSON file.
+ * <p>
+ * Arguments, all optional: -wi warmup iterations, -i measurement iterations, -messages number of messages per pass,
+ * -k comma separated numbers of hashes per message, -sizes comma separated base 2 logarithms of hash-table sizes,
+ * -o path of the JSON file.
+ *
+ * @author Bruno
+ *
+ */
+public class BloomFiltersBenchmark {
+
+	private static final int MESSAGE_LENGTH = 16;
+	private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+	private static final byte[] KEY = "benchmark key".getBytes(StandardCharsets.UTF_8);
+
+	private BenchmarkRunner runner;
+	private int[] hashCounts;
+	private int[] sizeExponents;
+	private String[] members;
+	private String[] others;
+
+	/**
+	 * Default constructor. Generates the messages used by every benchmark.
+	 *
+	 * @param runner runner of the benchmarks
+	 * @param numberOfMessages number of messages in one pass of a benchmark
+	 * @param hashCounts numbers of hashes per message to benchmark
+	 * @param sizeExponents base 2 logarithms of the hash-table sizes to benchmark
+	 */
+	public BloomFiltersBenchmark(BenchmarkRunner runner, int numberOfMessages, int[] hashCounts, int[] sizeExponents){
+
+		this.runner = runner;
+		this.hashCounts = hashCounts;
+		this.sizeExponents = sizeExponents;
+
+		Random random = new Random(42);
+		members = generateMessages(random, numberOfMessages);
+		others = generateMessages(random, numberOfMessages);
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		Map<String, String> options = Options.parse(args);
+
+		BenchmarkRunner runner = new BenchmarkRunner(Integer.parseInt(options.getOrDefault("wi", "5")),
+				Integer.parseInt(options.getOrDefault("i", "5")));
+		BloomFiltersBenchmark benchmark = new BloomFiltersBenchmark(runner, Integer.parseInt(options.getOrDefault("messages", "262144")),
+				parseInts(options.getOrDefault("k", "1,3,7")), parseInts(options.getOrDefault("sizes", "16,22,28,31")));
+
+		LinkedList<BenchmarkResult> results = benchmark.runAll();
+
+		String output = options.getOrDefault("o", "benchmark" + System.currentTimeMillis() + ".json");
+		writeJson(results, output);
+
+		System.out.println("Results written to: " + output + " (" + runner.getSink() + ")");
+	}
+
+	/**
+	 * Runs every benchmark of the suite and prints the results as they are measured.
+	 * @return list of results
+	 */
+	public LinkedList<BenchmarkResult> runAll(){
+
+		LinkedList<BenchmarkResult> results = new LinkedList<>();
+
+		for(HashFunction hashFunction: HashFunction.values()){
+			for(int k: hashCounts){
+				results.add(print(benchmarkHash(hashFunction, k)));
+			}
+		}
+
+		for(HashFunction hashFunction: HashFunction.values()){
+			for(int k: hashCounts){
+				for(int sizeExponent: sizeExponents){
+					results.addAll(benchmarkHashTable(hashFunction, k, 1L << sizeExponent));
+				}
+			}
+		}
+
+		results.addAll(benchmarkHashSet());
+
+		return results;
+	}
+
+	/**
+	 * Measures calculating k hashes of a message, keyed hash functions are measured with a fixed key.
+	 */
+	private BenchmarkResult benchmarkHash(HashFunction hashFunction, int k){
+
+		int[] hashes = new int[k];
+		Hasher hasher = hashFunction.isKeyed() ? hashFunction.keyed(KEY) : hashFunction.getHasher();
+		Map<String, String> params = params(hashFunction, k, 0);
+
+		return runner.run("hash", params, () -> {}, () -> {
+			long sink = 0;
+			for(String message: members){
+				hasher.hash(message, k, hashes);
+				sink += hashes[k - 1];
+			}
+			return sink;
+		}, members.length);
+	}
+
+	/**
+	 * Measures the operations of a hash-table of the given size. The hash-table used for contains is filled with
+	 * as many messages as set about half of its bits, hits are queried from those messages. Keyed hash functions
+	 * are measured with a fixed key, the same way as the hashing is.
+	 */
+	private LinkedList<BenchmarkResult> benchmarkHashTable(HashFunction hashFunction, int k, long size){
+
+		LinkedList<BenchmarkResult> results = new LinkedList<>();
+		Map<String, String> params = params(hashFunction, k, size);
+		HashTable hashTable = hashFunction.isKeyed() ? new HashTable(size, k, IndexStrategy.forSize(size), KEY)
+				: new HashTable(size, k, hashFunction);
+		int stored = (int)Math.max(1, Math.min(members.length, size * Math.log(2) / k));
+
+		results.add(print(runner.run("HashTable.add", params, hashTable::clear, () -> {
+			for(String message: members){
+				hashTable.add(message);
+			}
+			return hashTable.getMessagesStored();
+		}, members.length)));
+
+		Runnable fill = () -> {
+			hashTable.clear();
+			for(int i = 0; i < stored; ++i){
+				hashTable.add(members[i]);
+			}
+		};
+
+		results.add(print(runner.run("HashTable.containsHit", params, fill, () -> {
+			long sink = 0;
+			for(int i = 0; i < members.length; ++i){
+				sink += hashTable.contains(members[i % stored]) ? 1 : 0;
+			}
+			return sink;
+		}, members.length)));
+
+		results.add(print(runner.run("HashTable.containsMiss", params, fill, () -> {
+			long sink = 0;
+			for(String message: others){
+				sink += hashTable.contains(message) ? 1 : 0;
+			}
+			return sink;
+		}, others.length)));
+
+		results.add(print(runner.run("HashTable.mixed", params, hashTable::clear, () -> {
+			long sink = 0;
+			for(int i = 0; i < members.length; ++i){
+				if((i & 3) == 0){
+					hashTable.add(members[i]);
+				} else {
+					sink += hashTable.contains((i & 1) == 0 ? members[i] : others[i]) ? 1 : 0;
+				}
+			}
+			return sink;
+		}, members.length)));
+
+		return results;
+	}
+
+	/**
+	 * Measures the same operations on a HashSet.
+	 */
+	private LinkedList<BenchmarkResult> benchmarkHashSet(){
+
+		LinkedList<BenchmarkResult> results = new LinkedList<>();
+		Map<String, String> params = new LinkedHashMap<>();
+		HashSet<String> hashSet = new HashSet<>();
+
+		results.add(print(runner.run("HashSet.add", params, hashSet::clear, () -> {
+			for(String message: members){
+				hashSet.add(message);
+			}
+			return hashSet.size();
+		}, members.length)));
+
+		Runnable fill = () -> {
+			if(hashSet.size() != members.length){
+				hashSet.clear();
+				for(String message: members){
+					hashSet.add(message);
+				}
+			}
+		};
+
+		results.add(print(runner.run("HashSet.containsHit", params, fill, () -> {
+			long sink = 0;
+			for(String message: members){
+				sink += hashSet.contains(message) ? 1 : 0;
+			}
+			return sink;
+		}, members.length)));
+
+		results.add(print(runner.run("HashSet.containsMiss", params, fill, () -> {
+			long sink = 0;
+			for(String message: others){
+				sink += hashSet.contains(message) ? 1 : 0;
+			}
+			return sink;
+		}, others.length)));
+
+		results.add(print(runner.run("HashSet.mixed", params, hashSet::clear, () -> {
+			long sink = 0;
+			for(int i = 0; i < members.length; ++i){
+				if((i & 3) == 0){
+					hashSet.add(members[i]);
+				} else {
+					sink += hashSet.contains((i & 1) == 0 ? members[i] : others[i]) ? 1 : 0;
+				}
+			}
+			return sink;
+		}, members.length)));
+
+		return results;
+	}
+
+	private static Map<String, String> params(HashFunction hashFunction, int k, long size){
+
+		Map<String, String> params = new LinkedHashMap<>();
+		params.put("hashFunction", hashFunction.getName());
+		params.put("k", Integer.toString(k));
+		if(size > 0){
+			params.put("size", Long.toString(size));
+		}
+
+		return params;
+	}
+
+	private static BenchmarkResult print(BenchmarkResult result){
+		System.out.println(result);
+		return result;
+	}
+
+	private static String[] generateMessages(Random random, int numberOfMessages){
+
+		String[] messages = new String[numberOfMessages];
+		char[] message = new char[MESSAGE_LENGTH];
+
+		for(int i = 0; i < numberOfMessages; ++i){
+			for(int j = 0; j < MESSAGE_LENGTH; ++j){
+				message[j] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+			}
+			messages[i] = new String(message);
+		}
+
+		return messages;
+	}
+
+	/**
+	 * Writes the results as a JSON array.
+	 */
+	private static void writeJson(LinkedList<BenchmarkResult> results, String path) throws IOException{
+
+		try(PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8))){
+
+			writer.println('[');
+			int i = 0;
+			for(BenchmarkResult result: results){
+				writer.print("  " + result.toJson());
+				writer.println(++i < results.size() ? "," : "");
+			}
+			writer.println(']');
+		}
+	}
+
+	private static int[] parseInts(String values){
+
+		String[] parts = values.split(",");
+		int[] ints = new int[parts.length];
+		for(int i = 0; i < parts.length; ++i){
+			ints[i] = Integer.parseInt(parts[i].trim());
+		}
+
+		return ints;
+	}
+
+}
@@ -1,42 +1,72 @@
 package hashfunctions;
 
+import java.nio.ByteBuffer;
 
 //Taken from Orestes Bloom filter implementation
 
 public class FNVwithLCGHash {
 
+	// 32 bit FNV constants. Using longs as Java does not support unsigned
+	// datatypes.
+	private static final long FNV_PRIME = 16777619;
+	private static final long FNV_OFFSET_BASIS = 2166136261l;
 	
 	/**
 	 * @param a the byte array to be hashed
+	 * @param offset index of the first byte to be hashed
+	 * @param length number of bytes to be hashed
 	 * @return the 32 bit integer hash value
 	 */
-	static int hashBytes(byte a[]) {
-		// 32 bit FNV constants. Using longs as Java does not support unsigned
-		// datatypes.
-		final long FNV_PRIME = 16777619;
-		final long FNV_OFFSET_BASIS = 2166136261l;
-
+	static int hashBytes(byte a[], int offset, int length) {
 		if (a == null)
 			return 0;
 
 		long result = FNV_OFFSET_BASIS;
-		for (byte element : a) {
+		for (int i = offset, end = offset + length; i < end; i++) {
 			result = (result * FNV_PRIME) & 0xFFFFFFFF;
-			result ^= element;
+			result ^= a[i];
 		}
 
 		// return Arrays.hashCode(a);
 		return (int) result;
 	}
 
-	public static int[] hashSimpleLCG(byte[] value, int m, int k) {
+	/**
+	 * @param a the buffer to be hashed, read in place from position to limit without changing the position
+	 * @return the 32 bit integer hash value
+	 */
+	static int hashBytes(ByteBuffer a) {
+		long result = FNV_OFFSET_BASIS;
+		for (int i = a.position(), end = a.limit(); i < end; i++) {
+			result = (result * FNV_PRIME) & 0xFFFFFFFF;
+			result ^= a.get(i);
+		}
+
+		return (int) result;
+	}
+
+	/**
+	 * Writes k 32 bit hashes for length bytes of the given array starting at offset to the hashes array.
+	 */
+	public static void hashSimpleLCG(byte[] value, int offset, int length, int k, int[] hashes) {
+		// Generate int from byte Array using the FNV hash
+		simpleLCG(hashBytes(value, offset, length), k, hashes);
+	}
+
+	/**
+	 * Writes k 32 bit hashes for the remaining bytes of the given buffer to the hashes array.
+	 */
+	public static void hashSimpleLCG(ByteBuffer value, int k, int[] hashes) {
+		simpleLCG(hashBytes(value), k, hashes);
+	}
+
+	private static void simpleLCG(int hash, int k, int[] hashes) {
 		// Java constants
 		final long multiplier = 0x5DEECE66DL;
 		final long addend = 0xBL;
 		final long mask = (1L << 48) - 1;
 
-		// Generate int from byte Array using the FNV hash
-		int reduced = Math.abs(hashBytes(value));
+		int reduced = Math.abs(hash);
 		// Make number positive
 		// Handle the special case: smallest negative number is itself as the
 		// absolute value
@@ -44,13 +74,12 @@ public class FNVwithLCGHash {
 			reduced = 42;
 
 		// Calculate hashes numbers iteratively
-		int[] positions = new int[k];
 		long seed = reduced;
 		for (int i = 0; i < k; i++) {
 			// LCG formula: x_i+1 = (multiplier * x_i + addend) mod mask
+			// The high 32 bits of the state are the hash, mapping it to a position is left to the index strategy
 			seed = (seed * multiplier + addend) & mask;
-			positions[i] = (int) (seed >>> (48 - 30)) % m;
+			hashes[i] = (int) (seed >>> (48 - 32));
 		}
-		return positions;
 	}
 }
@@ -1,34 +1,128 @@
 package hashfunctions;
 
-import java.util.LinkedList;
-import java.util.function.BiFunction;
+import java.nio.ByteBuffer;
 
 import implementation.HashFunctions;
 
 public enum HashFunction {
-	Murmur3("Murmur3",HashFunctions::murmur3),SHA256("SHA-256",HashFunctions::SHA256),FNV("FNV",HashFunctions::FNVwithLCG),Random("Random", HashFunctions::Random);
+	Murmur3(1,"Murmur3",HashFunctions::murmur3,HashFunctions::murmur3,HashFunctions::murmur3,HashFunctions::murmur3),
+	Murmur3_128(5,"Murmur3-128",HashFunctions::murmur3_128,HashFunctions::murmur3_128,HashFunctions::murmur3_128),
+	SHA256(2,"SHA-256",HashFunctions::SHA256,HashFunctions::SHA256,HashFunctions::SHA256),
+	FNV(3,"FNV",HashFunctions::FNVwithLCG,HashFunctions::FNVwithLCG,HashFunctions::FNVwithLCG),
+	Random(4,"Random", HashFunctions::Random,HashFunctions::Random,HashFunctions::Random),
+	XXHash64(6,"xxHash64",HashFunctions::xxHash64,HashFunctions::xxHash64,HashFunctions::xxHash64),
+	WyHash(7,"wyhash",HashFunctions::wyhash,HashFunctions::wyhash,HashFunctions::wyhash),
+	HMAC_SHA256(8,"HMAC-SHA-256",(message,k,hashes)->keyRequired(),(data,offset,length,k,hashes)->keyRequired(),
+			(data,k,hashes)->keyRequired());
 
 	
-	private BiFunction<String, Integer, int[]> hashFunction;
+	private Hasher hasher;
 	private String name;
+	private int id;
 
 	
 	
 	
 	
-	private HashFunction(String name, BiFunction<String, Integer, int[]> hashFunction) {
+	/**
+	 * @param id stable identifier of the hash function, used when a hash-table is stored to a file
+	 */
+	private HashFunction(int id, String name, Hasher.Chars chars, Hasher.Bytes bytes, Hasher.Buffer buffer) {
+		this(id, name, chars, bytes, buffer, null);
+	}
+	
+	/**
+	 * @param id stable identifier of the hash function, used when a hash-table is stored to a file
+	 * @param batch hash function over batches of equal length messages, null to hash them one by one
+	 */
+	private HashFunction(int id, String name, Hasher.Chars chars, Hasher.Bytes bytes, Hasher.Buffer buffer, Hasher.Batch batch) {
+		this.id = id;
 		this.name = name;
-		this.hashFunction = hashFunction;
+		this.hasher = new Hasher() {
+			
+			@Override
+			public void hash(CharSequence message, int k, int[] hashes) {
+				chars.hash(message, k, hashes);
+			}
+			
+			@Override
+			public void hash(byte[] data, int offset, int length, int k, int[] hashes) {
+				bytes.hash(data, offset, length, k, hashes);
+			}
+			
+			@Override
+			public void hash(ByteBuffer data, int k, int[] hashes) {
+				buffer.hash(data, k, hashes);
+			}
+			
+			@Override
+			public void hash(long value, int k, int[] hashes) {
+				HashFunctions.hashLong(value, bytes, k, hashes);
+			}
+			
+			@Override
+			public void hashBatch(byte[] data, int offset, int length, int count, int k, int[] hashes) {
+				if(batch != null){
+					batch.hash(data, offset, length, count, k, hashes);
+				} else {
+					Hasher.super.hashBatch(data, offset, length, count, k, hashes);
+				}
+			}
+		};
+	}
+	
+	
+	/**
+	 * Returns the hash function with the given identifier.
+	 * @param id identifier of the hash function
+	 * @return hash function with the given identifier
+	 * @throws IllegalArgumentException if there is no hash function with the given identifier
+	 */
+	public static HashFunction forId(int id){
+		for(HashFunction hashFunction: values()){
+			if(hashFunction.id == id){
+				return hashFunction;
+			}
+		}
+		throw new IllegalArgumentException("Unknown hash function id: " + id);
+	}
+	
+	
+	/**
+	 * Returns a hasher of a keyed hash function using the given secret key.
+	 * @param key secret key
+	 * @return hasher using the key
+	 * @throws UnsupportedOperationException if the hash function is not keyed
+	 */
+	public Hasher keyed(byte[] key){
+		
+		if(!isKeyed()){
+			throw new UnsupportedOperationException(name + " is not a keyed hash function");
+		}
+		
+		return new HmacSha256Hasher(key);
+	}
+	
+	/**
+	 * Keyed hash functions need a secret key, the hasher returned by getHasher can not hash messages.
+	 * @return true if the hash function needs a key, false otherwise
+	 */
+	public boolean isKeyed(){
+		return this == HMAC_SHA256;
+	}
+	
+	private static void keyRequired(){
+		throw new UnsupportedOperationException("HMAC-SHA-256 needs a secret key, use HashFunction.keyed");
 	}
 	
 	
 	public static HashFunction[] getAll(){
-		return new HashFunction[]{HashFunction.Murmur3,HashFunction.FNV};
+		return new HashFunction[]{HashFunction.Murmur3,HashFunction.Murmur3_128,HashFunction.FNV,HashFunction.XXHash64,HashFunction.WyHash};
 	}
 
 
-	public BiFunction<String, Integer, int[]> getHashFunction() {
-		return hashFunction;
+	public Hasher getHasher() {
+		return hasher;
 	}
 
 
@@ -37,4 +131,9 @@ public enum HashFunction {
 	}	
 	
 	
+	public int getId() {
+		return id;
+	}
+	
+	
 }
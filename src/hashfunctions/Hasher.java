@@ -0,0 +1,105 @@
+package hashfunctions;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Primitive contract of a hash function used by the Bloom filter hash-tables.
+ * Implementations write the hashes to an array owned by the caller and keep any other state they need 
+ * per thread, so hashing a message does not allocate memory.
+ * Every kind of key is hashed as a sequence of bytes: character sequences as their UTF-8 encoding and
+ * long values as their 8 bytes in the little endian order, so a String and its UTF-8 bytes get the same hashes.
+ * The methods can be called from multiple threads at once as long as every thread uses its own array.
+ * 
+ * @author Bruno
+ *
+ */
+public interface Hasher {
+
+	/**
+	 * Calculates the requested number of hashes for a given message. 
+	 * @param message message to generate the hashes from
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the hashes to, the hashes are written to the indexes 0 to k-1
+	 */
+	void hash(CharSequence message, int k, int[] hashes);
+	
+	/**
+	 * Calculates the requested number of hashes for a range of a byte array, the bytes are read in place.
+	 * @param data array holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the hashes to, the hashes are written to the indexes 0 to k-1
+	 */
+	void hash(byte[] data, int offset, int length, int k, int[] hashes);
+	
+	/**
+	 * Calculates the requested number of hashes for the bytes of a buffer between its position and limit.
+	 * Heap and direct buffers are read in place, the position of the buffer is not changed.
+	 * @param data buffer holding the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the hashes to, the hashes are written to the indexes 0 to k-1
+	 */
+	void hash(ByteBuffer data, int k, int[] hashes);
+	
+	/**
+	 * Calculates the requested number of hashes for a long value.
+	 * @param value value to generate the hashes from
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the hashes to, the hashes are written to the indexes 0 to k-1
+	 */
+	void hash(long value, int k, int[] hashes);
+	
+	/**
+	 * Calculates the requested number of hashes for each of count messages of equal length, stored one after another
+	 * in a byte array. Hash functions that can hash several messages together override it, 
+	 * the default implementation hashes the messages one by one.
+	 * @param data array holding the messages
+	 * @param offset index of the first byte of the first message
+	 * @param length number of bytes of every message
+	 * @param count number of messages
+	 * @param k number of hashes wanted per message
+	 * @param hashes array to write the hashes to, the hashes of the message j are written to the indexes j*k to j*k+k-1
+	 */
+	default void hashBatch(byte[] data, int offset, int length, int count, int k, int[] hashes){
+		
+		int[] messageHashes = new int[k];
+		for(int j = 0; j < count; ++j){
+			hash(data, offset + j * length, length, k, messageHashes);
+			System.arraycopy(messageHashes, 0, hashes, j * k, k);
+		}
+	}
+	
+	/**
+	 * Hash function over character sequences, implemented by the HashFunctions methods.
+	 */
+	@FunctionalInterface
+	interface Chars {
+		void hash(CharSequence message, int k, int[] hashes);
+	}
+	
+	/**
+	 * Hash function over byte array ranges, implemented by the HashFunctions methods.
+	 */
+	@FunctionalInterface
+	interface Bytes {
+		void hash(byte[] data, int offset, int length, int k, int[] hashes);
+	}
+	
+	/**
+	 * Hash function over byte buffers, implemented by the HashFunctions methods.
+	 */
+	@FunctionalInterface
+	interface Buffer {
+		void hash(ByteBuffer data, int k, int[] hashes);
+	}
+	
+	/**
+	 * Hash function over batches of equal length messages, implemented by the HashFunctions methods.
+	 */
+	@FunctionalInterface
+	interface Batch {
+		void hash(byte[] data, int offset, int length, int count, int k, int[] hashes);
+	}
+	
+}
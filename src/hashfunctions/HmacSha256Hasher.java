@@ -0,0 +1,140 @@
+package hashfunctions;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Keyed cryptographic hash function, HMAC-SHA-256 with a secret key, for hash-tables whose messages must not be
+ * chosen by someone who could then predict their bit positions.
+ * Every thread keeps its own Mac instance initialized with the key and reuses it, so hashing a message does not
+ * look up the algorithm or allocate memory. Every 256 bit MAC is split into eight 32 bit hashes with shifts,
+ * if more hashes are needed the next MAC is calculated from the previous one instead of the whole message again.
+ *
+ * @author Bruno
+ *
+ */
+public final class HmacSha256Hasher implements Hasher {
+
+	private static final String ALGORITHM = "HmacSHA256";
+
+	private final byte[] key;
+	private final ThreadLocal<State> state;
+
+	/**
+	 * Mac instance and buffers used by a single thread.
+	 */
+	private static class State {
+
+		private Mac mac;
+		private byte[] bytes = new byte[64];
+		private byte[] digest = new byte[SHA256Hash.DIGEST_LENGTH];
+
+		private State(byte[] key){
+			try {
+				mac = Mac.getInstance(ALGORITHM);
+				mac.init(new SecretKeySpec(key, ALGORITHM));
+			} catch (GeneralSecurityException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Default constructor. Takes the secret key, the key is copied.
+	 * @param key secret key of the MAC
+	 * @throws IllegalArgumentException if the key is empty
+	 */
+	public HmacSha256Hasher(byte[] key){
+
+		if(key == null || key.length == 0){
+			throw new IllegalArgumentException("HMAC key must not be empty");
+		}
+
+		this.key = key.clone();
+		this.state = ThreadLocal.withInitial(() -> new State(this.key));
+	}
+
+	@Override
+	public void hash(CharSequence message, int k, int[] hashes) {
+
+		State s = state.get();
+		int maxLength = Utf8.maxLength(message.length());
+		if(s.bytes.length < maxLength){
+			s.bytes = new byte[Math.max(maxLength, s.bytes.length * 2)];
+		}
+
+		s.mac.update(s.bytes, 0, Utf8.encode(message, s.bytes));
+		finish(s, k, hashes);
+	}
+
+	@Override
+	public void hash(byte[] data, int offset, int length, int k, int[] hashes) {
+
+		State s = state.get();
+		s.mac.update(data, offset, length);
+		finish(s, k, hashes);
+	}
+
+	@Override
+	public void hash(ByteBuffer data, int k, int[] hashes) {
+
+		State s = state.get();
+		int position = data.position();
+		s.mac.update(data);
+		data.position(position);
+		finish(s, k, hashes);
+	}
+
+	@Override
+	public void hash(long value, int k, int[] hashes) {
+
+		State s = state.get();
+		for(int i = 0; i < Long.BYTES; ++i){
+			s.bytes[i] = (byte)(value >>> (8 * i));
+		}
+
+		s.mac.update(s.bytes, 0, Long.BYTES);
+		finish(s, k, hashes);
+	}
+
+	/**
+	 * Completes the MAC of the message and splits it into hashes, calculating further MACs of the previous one
+	 * until k hashes are written.
+	 */
+	private static void finish(State s, int k, int[] hashes){
+
+		try {
+			s.mac.doFinal(s.digest, 0);
+			int computedHashes = SHA256Hash.split(s.digest, k, hashes, 0);
+
+			while(computedHashes < k){
+				s.mac.update(s.digest, 0, SHA256Hash.DIGEST_LENGTH);
+				s.mac.doFinal(s.digest, 0);
+				computedHashes = SHA256Hash.split(s.digest, k, hashes, computedHashes);
+			}
+		} catch (GeneralSecurityException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Hashers are equal if they use the same key, hash-tables hashed by equal hashers can be combined.
+	 */
+	@Override
+	public boolean equals(Object other){
+		return other instanceof HmacSha256Hasher && MessageDigest.isEqual(key, ((HmacSha256Hasher)other).key);
+	}
+
+	/**
+	 * Depends only on the length of the key, so the hash code does not reveal anything about the key.
+	 */
+	@Override
+	public int hashCode(){
+		return key.length;
+	}
+
+}
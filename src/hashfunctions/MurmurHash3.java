@@ -1,6 +1,6 @@
 package hashfunctions;
 
-
+import java.nio.ByteBuffer;
 
 /**
  *  The MurmurHash3 algorithm was created by Austin Appleby and placed in the public domain.
@@ -58,6 +58,19 @@ public final class MurmurHash3 {
   }
 
 
+  /** Gets a long from a byte buffer in little endian byte order, regardless of the order of the buffer. */
+  public static final long getLongLittleEndian(ByteBuffer buf, int offset) {
+    return     ((long)buf.get(offset+7)    << 56)   // no mask needed
+            | ((buf.get(offset+6) & 0xffL) << 48)
+            | ((buf.get(offset+5) & 0xffL) << 40)
+            | ((buf.get(offset+4) & 0xffL) << 32)
+            | ((buf.get(offset+3) & 0xffL) << 24)
+            | ((buf.get(offset+2) & 0xffL) << 16)
+            | ((buf.get(offset+1) & 0xffL) << 8)
+            | ((buf.get(offset  ) & 0xffL));        // no shift needed
+  }
+
+
   /** Returns the MurmurHash3_x86_32 hash. */
   public static int murmurhash3_x86_32(byte[] data, int offset, int len, int seed) {
 
@@ -111,6 +124,120 @@ public final class MurmurHash3 {
   }
 
 
+  /** Calculates murmurhash3_x86_32 of count messages of len bytes each, stored one after another starting
+   * from offset. The messages are processed together, every 4 byte block of all the messages before the next block,
+   * so the independent multiply and rotate chains of the messages overlap in the pipeline and the finalization
+   * runs over a plain int array. Returns the same hashes as hashing every message on its own.
+   * @param seeds seed of every message, seeds and out may be the same array
+   * @param out array to write the hash of message j to index j
+   */
+  @SuppressWarnings("fallthrough")
+  public static void murmurhash3_x86_32(byte[] data, int offset, int len, int count, int[] seeds, int[] out) {
+
+    final int c1 = 0xcc9e2d51;
+    final int c2 = 0x1b873593;
+
+    int roundedLen = len & 0xfffffffc;  // round down to 4 byte block
+
+    System.arraycopy(seeds, 0, out, 0, count);
+
+    for (int i=0; i<roundedLen; i+=4) {
+      for (int j=0, p=offset+i; j<count; j++, p+=len) {
+        // little endian load order
+        int k1 = (data[p] & 0xff) | ((data[p+1] & 0xff) << 8) | ((data[p+2] & 0xff) << 16) | (data[p+3] << 24);
+        k1 *= c1;
+        k1 = (k1 << 15) | (k1 >>> 17);  // ROTL32(k1,15);
+        k1 *= c2;
+
+        int h1 = out[j] ^ k1;
+        h1 = (h1 << 13) | (h1 >>> 19);  // ROTL32(h1,13);
+        out[j] = h1*5+0xe6546b64;
+      }
+    }
+
+    // tail
+    if ((len & 0x03) != 0) {
+      for (int j=0, p=offset+roundedLen; j<count; j++, p+=len) {
+        int k1 = 0;
+
+        switch(len & 0x03) {
+          case 3:
+            k1 = (data[p + 2] & 0xff) << 16;
+            // fallthrough
+          case 2:
+            k1 |= (data[p + 1] & 0xff) << 8;
+            // fallthrough
+          case 1:
+            k1 |= (data[p] & 0xff);
+            k1 *= c1;
+            k1 = (k1 << 15) | (k1 >>> 17);  // ROTL32(k1,15);
+            k1 *= c2;
+            out[j] ^= k1;
+        }
+      }
+    }
+
+    // finalization, fmix(h1) of every message
+    for (int j=0; j<count; j++) {
+      int h1 = out[j] ^ len;
+      h1 ^= h1 >>> 16;
+      h1 *= 0x85ebca6b;
+      h1 ^= h1 >>> 13;
+      h1 *= 0xc2b2ae35;
+      h1 ^= h1 >>> 16;
+      out[j] = h1;
+    }
+  }
+
+  /** Returns the MurmurHash3_x86_32 hash of len bytes of the buffer starting at the absolute index offset.
+   * Reads the buffer in place (heap or direct) and does not change its position.
+   */
+  @SuppressWarnings("fallthrough")
+  public static int murmurhash3_x86_32(ByteBuffer data, int offset, int len, int seed) {
+
+    final int c1 = 0xcc9e2d51;
+    final int c2 = 0x1b873593;
+
+    int h1 = seed;
+    int roundedEnd = offset + (len & 0xfffffffc);  // round down to 4 byte block
+
+    for (int i=offset; i<roundedEnd; i+=4) {
+      // little endian load order
+      int k1 = (data.get(i) & 0xff) | ((data.get(i+1) & 0xff) << 8) | ((data.get(i+2) & 0xff) << 16) | (data.get(i+3) << 24);
+      k1 *= c1;
+      k1 = (k1 << 15) | (k1 >>> 17);  // ROTL32(k1,15);
+      k1 *= c2;
+
+      h1 ^= k1;
+      h1 = (h1 << 13) | (h1 >>> 19);  // ROTL32(h1,13);
+      h1 = h1*5+0xe6546b64;
+    }
+
+    // tail
+    int k1 = 0;
+
+    switch(len & 0x03) {
+      case 3:
+        k1 = (data.get(roundedEnd + 2) & 0xff) << 16;
+        // fallthrough
+      case 2:
+        k1 |= (data.get(roundedEnd + 1) & 0xff) << 8;
+        // fallthrough
+      case 1:
+        k1 |= (data.get(roundedEnd) & 0xff);
+        k1 *= c1;
+        k1 = (k1 << 15) | (k1 >>> 17);  // ROTL32(k1,15);
+        k1 *= c2;
+        h1 ^= k1;
+    }
+
+    // finalization
+    h1 ^= len;
+
+    return fmix32(h1);
+  }
+
+
   /** Returns the MurmurHash3_x86_32 hash of the UTF-8 bytes of the String without actually encoding
    * the string to a temporary buffer.  This is more than 2x faster than hashing the result
    * of String.getBytes().
@@ -295,4 +422,67 @@ public final class MurmurHash3 {
     out.val2 = h2;
   }
 
-}
\ No newline at end of file
+
+  /** Returns the MurmurHash3_x64_128 hash of len bytes of the buffer starting at the absolute index offset, 
+   * placing the result in "out". Reads the buffer in place (heap or direct) and does not change its position.
+   */
+  @SuppressWarnings("fallthrough")
+  public static void murmurhash3_x64_128(ByteBuffer key, int offset, int len, int seed, LongPair out) {
+    long h1 = seed & 0x00000000FFFFFFFFL;
+    long h2 = seed & 0x00000000FFFFFFFFL;
+
+    final long c1 = 0x87c37b91114253d5L;
+    final long c2 = 0x4cf5ad432745937fL;
+
+    int roundedEnd = offset + (len & 0xFFFFFFF0);  // round down to 16 byte block
+    for (int i=offset; i<roundedEnd; i+=16) {
+        long k1 = getLongLittleEndian(key, i);
+        long k2 = getLongLittleEndian(key, i+8);
+        k1 *= c1; k1  = Long.rotateLeft(k1,31); k1 *= c2; h1 ^= k1;
+        h1 = Long.rotateLeft(h1,27); h1 += h2; h1 = h1*5+0x52dce729;
+        k2 *= c2; k2  = Long.rotateLeft(k2,33); k2 *= c1; h2 ^= k2;
+        h2 = Long.rotateLeft(h2,31); h2 += h1; h2 = h2*5+0x38495ab5;
+    }
+
+    long k1 = 0;
+    long k2 = 0;
+
+    switch (len & 15) {
+      case 15: k2  = (key.get(roundedEnd+14) & 0xffL) << 48;  // fallthrough
+      case 14: k2 |= (key.get(roundedEnd+13) & 0xffL) << 40;  // fallthrough
+      case 13: k2 |= (key.get(roundedEnd+12) & 0xffL) << 32;  // fallthrough
+      case 12: k2 |= (key.get(roundedEnd+11) & 0xffL) << 24;  // fallthrough
+      case 11: k2 |= (key.get(roundedEnd+10) & 0xffL) << 16;  // fallthrough
+      case 10: k2 |= (key.get(roundedEnd+ 9) & 0xffL) << 8;  // fallthrough
+      case  9: k2 |= (key.get(roundedEnd+ 8) & 0xffL);
+        k2 *= c2; k2  = Long.rotateLeft(k2, 33); k2 *= c1; h2 ^= k2;  // fallthrough
+      case  8: k1  = ((long)key.get(roundedEnd+7)) << 56;  // fallthrough
+      case  7: k1 |= (key.get(roundedEnd+6) & 0xffL) << 48;  // fallthrough
+      case  6: k1 |= (key.get(roundedEnd+5) & 0xffL) << 40;  // fallthrough
+      case  5: k1 |= (key.get(roundedEnd+4) & 0xffL) << 32;  // fallthrough
+      case  4: k1 |= (key.get(roundedEnd+3) & 0xffL) << 24;  // fallthrough
+      case  3: k1 |= (key.get(roundedEnd+2) & 0xffL) << 16;  // fallthrough
+      case  2: k1 |= (key.get(roundedEnd+1) & 0xffL) << 8;  // fallthrough
+      case  1: k1 |= (key.get(roundedEnd  ) & 0xffL);
+        k1 *= c1; k1  = Long.rotateLeft(k1,31); k1 *= c2; h1 ^= k1;
+    }
+
+    //----------
+    // finalization
+
+    h1 ^= len; h2 ^= len;
+
+    h1 += h2;
+    h2 += h1;
+
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+
+    h1 += h2;
+    h2 += h1;
+
+    out.val1 = h1;
+    out.val2 = h2;
+  }
+
+}
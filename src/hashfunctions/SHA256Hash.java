@@ -1,62 +1,74 @@
 package hashfunctions;
 
+import java.nio.ByteBuffer;
+import java.security.DigestException;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.BitSet;
-import java.util.Random;
 
 //Taken from Orestes-Bloomfilter implementation
 
 public class SHA256Hash {
 	
-	private static final int seed32 = 89478583;
+	public static final int DIGEST_LENGTH = 32;
 
-	public static int[] hashCrypt(byte[] value, int m, int k) {
-		//MessageDigest is not thread-safe --> use new instance
-		MessageDigest cryptHash = null;
+	/**
+	 * Writes k 32 bit hashes for length bytes of the given array starting at offset to the hashes array.
+	 * MessageDigest is not thread-safe, the caller has to provide a SHA-256 instance used only by the current thread,
+	 * and a buffer of at least DIGEST_LENGTH bytes for the digest.
+	 */
+	public static void hashCrypt(MessageDigest cryptHash, byte[] value, int offset, int length, int k, int[] hashes, byte[] digest) {
+
+		cryptHash.update(value, offset, length);
+		digest(cryptHash, digest);
+		extend(cryptHash, k, hashes, digest);
+	}
+
+	/**
+	 * Writes k 32 bit hashes for the remaining bytes of the given buffer to the hashes array.
+	 * The buffer is read in place and its position is left unchanged.
+	 */
+	public static void hashCrypt(MessageDigest cryptHash, ByteBuffer value, int k, int[] hashes, byte[] digest) {
+
+		int position = value.position();
+		cryptHash.update(value);
+		value.position(position);
+		digest(cryptHash, digest);
+		extend(cryptHash, k, hashes, digest);
+	}
+
+	/**
+	 * Splits the digest of the message into hashes. If more than eight hashes are needed, every further 
+	 * round hashes only the previous digest, a single SHA-256 block no matter how long the message is.
+	 */
+	private static void extend(MessageDigest cryptHash, int k, int[] hashes, byte[] digest) {
+
+		int computedHashes = split(digest, k, hashes, 0);
+		while (computedHashes < k) {
+			cryptHash.update(digest, 0, DIGEST_LENGTH);
+			digest(cryptHash, digest);
+			computedHashes = split(digest, k, hashes, computedHashes);
+		}
+	}
+
+	private static void digest(MessageDigest cryptHash, byte[] digest) {
 		try {
-			cryptHash = MessageDigest.getInstance("SHA-256");
-		} catch (NoSuchAlgorithmException e) {
+			cryptHash.digest(digest, 0, DIGEST_LENGTH);
+		} catch (DigestException e) {
 			throw new RuntimeException(e);
 		}
+	}
 
-		int[] positions = new int[k];
-
-		int computedHashes = 0;
-		// Add salt to the hash deterministically in order to generate different
-		// hashes for each round
-		// Alternative: use pseudorandom sequence
-		Random r = new Random(seed32);
-		byte[] digest = new byte[0];
-		while (computedHashes < k) {
-			// byte[] saltBytes =
-			// ByteBuffer.allocate(4).putInt(r.nextInt()).array();
-			cryptHash.update(digest);
-			digest = cryptHash.digest(value);
-			BitSet hashed = BitSet.valueOf(digest);
-
-			// Convert the hash to numbers in the range [0,size)
-			// Size of the BloomFilter rounded to the next power of two
-			int filterSize = 32 - Integer.numberOfLeadingZeros(m);
-			// Computed hash bits
-			int hashBits = digest.length * 8;
-			// Split the hash value according to the size of the Bloomfilter --> higher performance than just doing modulo
-			for (int split = 0; split < (hashBits / filterSize)
-					&& computedHashes < k; split++) {
-				int from = split * filterSize;
-				int to = (split + 1) * filterSize;
-				BitSet hashSlice = hashed.get(from, to);
-				// Bitset to Int
-				long[] longHash = hashSlice.toLongArray();
-				int intHash = longHash.length > 0 ? (int) longHash[0] : 0;
-				// Only use the position if it's in [0,size); Called rejection sampling
-				if (intHash < m) {
-					positions[computedHashes] = intHash;
-					computedHashes++;
-				}
+	/**
+	 * Splits the digest into 32 bit hashes, eight per digest, returns the number of hashes computed so far.
+	 * Mapping the hashes to positions of the Bloom filter is left to its index strategy, so every bit of the digest is used.
+	 */
+	static int split(byte[] digest, int k, int[] hashes, int computedHashes) {
+		for (int i = 0; i < DIGEST_LENGTH && computedHashes < k; i += 8) {
+			long word = MurmurHash3.getLongLittleEndian(digest, i);
+			hashes[computedHashes++] = (int) word;
+			if (computedHashes < k) {
+				hashes[computedHashes++] = (int) (word >>> 32);
 			}
 		}
-
-		return positions;
+		return computedHashes;
 	}
 }
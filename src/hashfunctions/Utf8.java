@@ -0,0 +1,178 @@
+package hashfunctions;
+
+/**
+ * Encodes character sequences to UTF-8 into a given buffer, so hash functions working on bytes
+ * can reuse one buffer instead of calling String.getBytes for every message.
+ * Unpaired surrogates are encoded as three bytes, the same way as MurmurHash3 does it.
+ * 
+ * @author Bruno
+ *
+ */
+public class Utf8 {
+	
+	/**
+	 * Returns the maximum number of bytes the given number of characters can be encoded to.
+	 * @param length number of characters
+	 * @return maximum length of the encoding in bytes
+	 */
+	public static int maxLength(int length){
+		return length * 3;
+	}
+	
+	/**
+	 * Encodes the given character sequence to the given buffer.
+	 * @param data characters to encode
+	 * @param buffer buffer to encode to, at least maxLength(data.length()) bytes long
+	 * @return number of bytes written to the buffer
+	 */
+	public static int encode(CharSequence data, byte[] buffer){
+		
+		int length = data.length();
+		int pos = 0;
+		
+		for(int i = 0; i < length; ++i){
+			
+			int code = data.charAt(i);
+			if(code < 0x80){
+				buffer[pos++] = (byte)code;
+			} else if(code < 0x800){
+				buffer[pos++] = (byte)(0xC0 | (code >> 6));
+				buffer[pos++] = (byte)(0x80 | (code & 0x3F));
+			} else if(code < 0xD800 || code > 0xDFFF || i + 1 >= length){
+				buffer[pos++] = (byte)(0xE0 | (code >> 12));
+				buffer[pos++] = (byte)(0x80 | ((code >> 6) & 0x3F));
+				buffer[pos++] = (byte)(0x80 | (code & 0x3F));
+			} else {
+				int utf32 = ((code - 0xD7C0) << 10) + (data.charAt(++i) & 0x3FF);
+				buffer[pos++] = (byte)(0xF0 | (utf32 >> 18));
+				buffer[pos++] = (byte)(0x80 | ((utf32 >> 12) & 0x3F));
+				buffer[pos++] = (byte)(0x80 | ((utf32 >> 6) & 0x3F));
+				buffer[pos++] = (byte)(0x80 | (utf32 & 0x3F));
+			}
+			
+		}
+		
+		return pos;
+	}
+	
+	/**
+	 * Calculates the number of bytes the given character sequence is encoded to, without encoding it.
+	 * @param data characters to encode
+	 * @return length of the encoding in bytes
+	 */
+	public static int length(CharSequence data){
+		
+		int length = data.length();
+		int bytes = 0;
+		
+		for(int i = 0; i < length; ++i){
+			
+			int code = data.charAt(i);
+			if(code < 0x80){
+				bytes += 1;
+			} else if(code < 0x800){
+				bytes += 2;
+			} else if(code < 0xD800 || code > 0xDFFF || i + 1 >= length){
+				bytes += 3;
+			} else {
+				bytes += 4;
+				++i;
+			}
+			
+		}
+		
+		return bytes;
+	}
+	
+	/**
+	 * Reads the UTF-8 encoding of a character sequence as little endian 64 bit lanes, encoding the characters
+	 * on the fly, so hash functions working on 8 byte words can hash a character sequence without a byte buffer.
+	 * The reader holds only a few fields and does not escape the hash function using it, so the JIT compiler
+	 * normally removes its allocation.
+	 */
+	public static final class LaneReader {
+		
+		private CharSequence data;
+		private int index;
+		private long pending;
+		private int pendingBytes;
+		private int laneBytes;
+		private long length;
+		
+		/**
+		 * Default constructor. Takes the characters to read.
+		 * @param data characters to read
+		 */
+		public LaneReader(CharSequence data){
+			this.data = data;
+		}
+		
+		/**
+		 * Reads the next 8 bytes of the encoding. The last lane is padded with zero bytes, 
+		 * getLaneBytes tells how many of its bytes belong to the encoding.
+		 * @return next 8 bytes of the encoding in the little endian byte order
+		 */
+		public long nextLane(){
+			
+			long lane = pending;
+			int bytes = pendingBytes;
+			pending = 0;
+			pendingBytes = 0;
+			
+			int end = data.length();
+			while(bytes < Long.BYTES && index < end){
+				
+				int code = data.charAt(index++);
+				long encoded;
+				int count;
+				
+				if(code < 0x80){
+					encoded = code;
+					count = 1;
+				} else if(code < 0x800){
+					encoded = (0xC0 | (code >> 6)) | ((0x80 | (code & 0x3F)) << 8);
+					count = 2;
+				} else if(code < 0xD800 || code > 0xDFFF || index >= end){
+					encoded = (0xE0 | (code >> 12)) | ((0x80 | ((code >> 6) & 0x3F)) << 8) | ((0x80 | (code & 0x3F)) << 16);
+					count = 3;
+				} else {
+					int utf32 = ((code - 0xD7C0) << 10) + (data.charAt(index++) & 0x3FF);
+					encoded = (0xF0 | (utf32 >> 18)) | ((0x80 | ((utf32 >> 12) & 0x3F)) << 8) 
+							| ((0x80 | ((utf32 >> 6) & 0x3F)) << 16) | ((long)(0x80 | (utf32 & 0x3F)) << 24);
+					count = 4;
+				}
+				
+				lane |= encoded << (bytes << 3);
+				int free = Long.BYTES - bytes;
+				if(count > free){
+					pending = encoded >>> (free << 3);
+					pendingBytes = count - free;
+					bytes = Long.BYTES;
+				} else {
+					bytes += count;
+				}
+			}
+			
+			laneBytes = bytes;
+			length += bytes;
+			return lane;
+		}
+		
+		/**
+		 * Returns the number of bytes of the encoding in the lane returned by the last call of nextLane.
+		 * @return number of bytes, 8 for every lane but the last one
+		 */
+		public int getLaneBytes(){
+			return laneBytes;
+		}
+		
+		/**
+		 * Returns the number of bytes read so far.
+		 * @return number of bytes returned in lanes
+		 */
+		public long getLength(){
+			return length;
+		}
+	}
+
+}
@@ -0,0 +1,272 @@
+package hashfunctions;
+
+import java.nio.ByteBuffer;
+
+/**
+ * wyhash (final version 4) by Wang Yi. Mixes the message 16 or 48 bytes at a time with 64x64 to 128 bit
+ * multiplications, which makes it one of the fastest 64 bit hashes with a good quality, especially for short messages.
+ * Besides byte arrays and buffers it hashes character sequences as UTF-8, encoding the characters on the fly.
+ *
+ * @author Bruno
+ *
+ */
+public final class WyHash {
+
+	private static final long SECRET0 = 0x2d358dccaa6c78a5L;
+	private static final long SECRET1 = 0x8bb84b93962eacc9L;
+	private static final long SECRET2 = 0x4b33a62ed433d4a3L;
+	private static final long SECRET3 = 0x4d5a2da51de1aa47L;
+
+	private static final long LOW_32 = 0xFFFFFFFFL;
+
+	/**
+	 * Hashes a range of a byte array.
+	 * @param data array holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @param seed seed of the hash
+	 * @return 64 bit hash
+	 */
+	public static long hash(byte[] data, int offset, int length, long seed){
+
+		seed ^= mix(seed ^ SECRET0, SECRET1);
+		long a, b;
+
+		if(length <= 16){
+			if(length >= 4){
+				int quarter = (length >>> 3) << 2;
+				a = (read32(data, offset) << 32) | read32(data, offset + quarter);
+				b = (read32(data, offset + length - 4) << 32) | read32(data, offset + length - 4 - quarter);
+			} else if(length > 0){
+				a = ((data[offset] & 0xFFL) << 16) | ((data[offset + (length >>> 1)] & 0xFFL) << 8) | (data[offset + length - 1] & 0xFFL);
+				b = 0;
+			} else {
+				a = 0;
+				b = 0;
+			}
+		} else {
+			int pos = offset;
+			int remaining = length;
+
+			if(remaining > 48){
+				long see1 = seed;
+				long see2 = seed;
+				do {
+					seed = mix(read64(data, pos) ^ SECRET1, read64(data, pos + 8) ^ seed);
+					see1 = mix(read64(data, pos + 16) ^ SECRET2, read64(data, pos + 24) ^ see1);
+					see2 = mix(read64(data, pos + 32) ^ SECRET3, read64(data, pos + 40) ^ see2);
+					pos += 48;
+					remaining -= 48;
+				} while(remaining > 48);
+				seed ^= see1 ^ see2;
+			}
+
+			for(; remaining > 16; pos += 16, remaining -= 16){
+				seed = mix(read64(data, pos) ^ SECRET1, read64(data, pos + 8) ^ seed);
+			}
+
+			a = read64(data, pos + remaining - 16);
+			b = read64(data, pos + remaining - 8);
+		}
+
+		return finish(a, b, seed, length);
+	}
+
+	/**
+	 * Hashes a range of a buffer, the position of the buffer is not changed.
+	 * @param data buffer holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @param seed seed of the hash
+	 * @return 64 bit hash
+	 */
+	public static long hash(ByteBuffer data, int offset, int length, long seed){
+
+		seed ^= mix(seed ^ SECRET0, SECRET1);
+		long a, b;
+
+		if(length <= 16){
+			if(length >= 4){
+				int quarter = (length >>> 3) << 2;
+				a = (read32(data, offset) << 32) | read32(data, offset + quarter);
+				b = (read32(data, offset + length - 4) << 32) | read32(data, offset + length - 4 - quarter);
+			} else if(length > 0){
+				a = ((data.get(offset) & 0xFFL) << 16) | ((data.get(offset + (length >>> 1)) & 0xFFL) << 8)
+						| (data.get(offset + length - 1) & 0xFFL);
+				b = 0;
+			} else {
+				a = 0;
+				b = 0;
+			}
+		} else {
+			int pos = offset;
+			int remaining = length;
+
+			if(remaining > 48){
+				long see1 = seed;
+				long see2 = seed;
+				do {
+					seed = mix(MurmurHash3.getLongLittleEndian(data, pos) ^ SECRET1, MurmurHash3.getLongLittleEndian(data, pos + 8) ^ seed);
+					see1 = mix(MurmurHash3.getLongLittleEndian(data, pos + 16) ^ SECRET2, MurmurHash3.getLongLittleEndian(data, pos + 24) ^ see1);
+					see2 = mix(MurmurHash3.getLongLittleEndian(data, pos + 32) ^ SECRET3, MurmurHash3.getLongLittleEndian(data, pos + 40) ^ see2);
+					pos += 48;
+					remaining -= 48;
+				} while(remaining > 48);
+				seed ^= see1 ^ see2;
+			}
+
+			for(; remaining > 16; pos += 16, remaining -= 16){
+				seed = mix(MurmurHash3.getLongLittleEndian(data, pos) ^ SECRET1, MurmurHash3.getLongLittleEndian(data, pos + 8) ^ seed);
+			}
+
+			a = MurmurHash3.getLongLittleEndian(data, pos + remaining - 16);
+			b = MurmurHash3.getLongLittleEndian(data, pos + remaining - 8);
+		}
+
+		return finish(a, b, seed, length);
+	}
+
+	/**
+	 * Hashes the UTF-8 encoding of a character sequence without encoding it to a buffer.
+	 * Returns the same hash as hashing the encoded bytes. The length of the encoding is calculated first,
+	 * since wyhash chooses how to read the message by its length.
+	 * @param data characters of the message
+	 * @param seed seed of the hash
+	 * @return 64 bit hash
+	 */
+	public static long hash(CharSequence data, long seed){
+
+		int length = Utf8.length(data);
+		Utf8.LaneReader reader = new Utf8.LaneReader(data);
+
+		seed ^= mix(seed ^ SECRET0, SECRET1);
+		long a, b;
+
+		if(length <= 16){
+			long low = reader.nextLane();
+			long high = reader.nextLane();
+
+			if(length >= 4){
+				int quarter = (length >>> 3) << 2;
+				a = (read32(low, high, 0) << 32) | read32(low, high, quarter);
+				b = (read32(low, high, length - 4) << 32) | read32(low, high, length - 4 - quarter);
+			} else if(length > 0){
+				a = ((low & 0xFF) << 16) | (((low >>> ((length >>> 1) << 3)) & 0xFF) << 8) | ((low >>> ((length - 1) << 3)) & 0xFF);
+				b = 0;
+			} else {
+				a = 0;
+				b = 0;
+			}
+		} else {
+			int remaining = length;
+			// the last three lanes read, the last 16 bytes of the message are read from them at the end
+			long last = 0, previous = 0, beforePrevious = 0;
+
+			if(remaining > 48){
+				long see1 = seed;
+				long see2 = seed;
+				do {
+					long lane0 = reader.nextLane();
+					long lane1 = reader.nextLane();
+					long lane2 = reader.nextLane();
+					beforePrevious = reader.nextLane();
+					previous = reader.nextLane();
+					last = reader.nextLane();
+
+					seed = mix(lane0 ^ SECRET1, lane1 ^ seed);
+					see1 = mix(lane2 ^ SECRET2, beforePrevious ^ see1);
+					see2 = mix(previous ^ SECRET3, last ^ see2);
+					remaining -= 48;
+				} while(remaining > 48);
+				seed ^= see1 ^ see2;
+			}
+
+			for(; remaining > 16; remaining -= 16){
+				beforePrevious = last;
+				previous = reader.nextLane();
+				last = reader.nextLane();
+
+				seed = mix(previous ^ SECRET1, last ^ seed);
+			}
+
+			for(int lanes = (remaining + 7) >>> 3; lanes > 0; --lanes){
+				beforePrevious = previous;
+				previous = last;
+				last = reader.nextLane();
+			}
+
+			int tail = (length & 7) << 3;
+			if(tail == 0){
+				a = previous;
+				b = last;
+			} else {
+				a = (beforePrevious >>> tail) | (previous << (64 - tail));
+				b = (previous >>> tail) | (last << (64 - tail));
+			}
+		}
+
+		return finish(a, b, seed, length);
+	}
+
+	private static long finish(long a, long b, long seed, long length){
+
+		a ^= SECRET1;
+		b ^= seed;
+		long low = a * b;
+		long high = multiplyHigh(a, b);
+
+		return mix(low ^ SECRET0 ^ length, high ^ SECRET1);
+	}
+
+	/**
+	 * Multiplies two 64 bit values to a 128 bit product and returns the XOR of its halves.
+	 */
+	private static long mix(long a, long b){
+		return (a * b) ^ multiplyHigh(a, b);
+	}
+
+	/**
+	 * Returns the high 64 bits of the unsigned 128 bit product, Math.multiplyHigh is only available from Java 9
+	 * and is signed.
+	 */
+	private static long multiplyHigh(long a, long b){
+
+		long aLow = a & LOW_32, aHigh = a >>> 32;
+		long bLow = b & LOW_32, bHigh = b >>> 32;
+
+		long lowLow = aLow * bLow;
+		long highLow = aHigh * bLow;
+		long lowHigh = aLow * bHigh;
+		long middle = (lowLow >>> 32) + (highLow & LOW_32) + lowHigh;
+
+		return aHigh * bHigh + (highLow >>> 32) + (middle >>> 32);
+	}
+
+	private static long read64(byte[] data, int offset){
+		return MurmurHash3.getLongLittleEndian(data, offset);
+	}
+
+	private static long read32(byte[] data, int offset){
+		return (data[offset] & 0xFFL) | (data[offset + 1] & 0xFFL) << 8 | (data[offset + 2] & 0xFFL) << 16 | (data[offset + 3] & 0xFFL) << 24;
+	}
+
+	private static long read32(ByteBuffer data, int offset){
+		return (data.get(offset) & 0xFFL) | (data.get(offset + 1) & 0xFFL) << 8 | (data.get(offset + 2) & 0xFFL) << 16
+				| (data.get(offset + 3) & 0xFFL) << 24;
+	}
+
+	/**
+	 * Reads 4 bytes starting from the given offset of the 16 bytes held by two lanes.
+	 */
+	private static long read32(long low, long high, int offset){
+
+		if(offset >= 8){
+			return (high >>> ((offset - 8) << 3)) & LOW_32;
+		}
+		if(offset <= 4){
+			return (low >>> (offset << 3)) & LOW_32;
+		}
+		return ((low >>> (offset << 3)) | (high << ((8 - offset) << 3))) & LOW_32;
+	}
+
+}
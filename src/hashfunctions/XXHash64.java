@@ -0,0 +1,237 @@
+package hashfunctions;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 64 bit xxHash (XXH64) by Yann Collet. Reads the message in 32 byte stripes of four 64 bit lanes, each lane
+ * accumulated separately, so the hash runs at several bytes per cycle with a good avalanche.
+ * Besides byte arrays and buffers it hashes character sequences as UTF-8, encoding the characters on the fly.
+ *
+ * @author Bruno
+ *
+ */
+public final class XXHash64 {
+
+	private static final long PRIME1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME3 = 0x165667B19E3779F9L;
+	private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+	private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+	/**
+	 * Hashes a range of a byte array.
+	 * @param data array holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @param seed seed of the hash
+	 * @return 64 bit hash
+	 */
+	public static long hash(byte[] data, int offset, int length, long seed){
+
+		int pos = offset;
+		int end = offset + length;
+		long h;
+
+		if(length >= 32){
+			long v1 = seed + PRIME1 + PRIME2;
+			long v2 = seed + PRIME2;
+			long v3 = seed;
+			long v4 = seed - PRIME1;
+
+			for(; end - pos >= 32; pos += 32){
+				v1 = round(v1, MurmurHash3.getLongLittleEndian(data, pos));
+				v2 = round(v2, MurmurHash3.getLongLittleEndian(data, pos + 8));
+				v3 = round(v3, MurmurHash3.getLongLittleEndian(data, pos + 16));
+				v4 = round(v4, MurmurHash3.getLongLittleEndian(data, pos + 24));
+			}
+
+			h = merge(v1, v2, v3, v4);
+		} else {
+			h = seed + PRIME5;
+		}
+
+		h += length;
+
+		for(; end - pos >= 8; pos += 8){
+			h = lane(h, MurmurHash3.getLongLittleEndian(data, pos));
+		}
+
+		if(end - pos >= 4){
+			h = half(h, (data[pos] & 0xFFL) | (data[pos + 1] & 0xFFL) << 8 | (data[pos + 2] & 0xFFL) << 16 | (data[pos + 3] & 0xFFL) << 24);
+			pos += 4;
+		}
+
+		for(; pos < end; ++pos){
+			h = single(h, data[pos] & 0xFF);
+		}
+
+		return avalanche(h);
+	}
+
+	/**
+	 * Hashes a range of a buffer, the position of the buffer is not changed.
+	 * @param data buffer holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @param seed seed of the hash
+	 * @return 64 bit hash
+	 */
+	public static long hash(ByteBuffer data, int offset, int length, long seed){
+
+		int pos = offset;
+		int end = offset + length;
+		long h;
+
+		if(length >= 32){
+			long v1 = seed + PRIME1 + PRIME2;
+			long v2 = seed + PRIME2;
+			long v3 = seed;
+			long v4 = seed - PRIME1;
+
+			for(; end - pos >= 32; pos += 32){
+				v1 = round(v1, MurmurHash3.getLongLittleEndian(data, pos));
+				v2 = round(v2, MurmurHash3.getLongLittleEndian(data, pos + 8));
+				v3 = round(v3, MurmurHash3.getLongLittleEndian(data, pos + 16));
+				v4 = round(v4, MurmurHash3.getLongLittleEndian(data, pos + 24));
+			}
+
+			h = merge(v1, v2, v3, v4);
+		} else {
+			h = seed + PRIME5;
+		}
+
+		h += length;
+
+		for(; end - pos >= 8; pos += 8){
+			h = lane(h, MurmurHash3.getLongLittleEndian(data, pos));
+		}
+
+		if(end - pos >= 4){
+			h = half(h, (data.get(pos) & 0xFFL) | (data.get(pos + 1) & 0xFFL) << 8 | (data.get(pos + 2) & 0xFFL) << 16
+					| (data.get(pos + 3) & 0xFFL) << 24);
+			pos += 4;
+		}
+
+		for(; pos < end; ++pos){
+			h = single(h, data.get(pos) & 0xFF);
+		}
+
+		return avalanche(h);
+	}
+
+	/**
+	 * Hashes the UTF-8 encoding of a character sequence without encoding it to a buffer.
+	 * Returns the same hash as hashing the encoded bytes.
+	 * @param data characters of the message
+	 * @param seed seed of the hash
+	 * @return 64 bit hash
+	 */
+	public static long hash(CharSequence data, long seed){
+
+		Utf8.LaneReader reader = new Utf8.LaneReader(data);
+
+		long v1 = seed + PRIME1 + PRIME2;
+		long v2 = seed + PRIME2;
+		long v3 = seed;
+		long v4 = seed - PRIME1;
+		boolean stripes = false;
+
+		// full lanes waiting for the fourth lane of a stripe
+		long lane0 = 0, lane1 = 0, lane2 = 0;
+		int lanes = 0;
+		long last;
+
+		while(true){
+
+			last = reader.nextLane();
+			if(reader.getLaneBytes() < Long.BYTES){
+				break;
+			}
+
+			if(lanes == 0){
+				lane0 = last;
+			} else if(lanes == 1){
+				lane1 = last;
+			} else if(lanes == 2){
+				lane2 = last;
+			} else {
+				v1 = round(v1, lane0);
+				v2 = round(v2, lane1);
+				v3 = round(v3, lane2);
+				v4 = round(v4, last);
+				stripes = true;
+				lanes = 0;
+				continue;
+			}
+			++lanes;
+		}
+
+		long h = stripes ? merge(v1, v2, v3, v4) : seed + PRIME5;
+		h += reader.getLength();
+
+		if(lanes > 0){
+			h = lane(h, lane0);
+		}
+		if(lanes > 1){
+			h = lane(h, lane1);
+		}
+		if(lanes > 2){
+			h = lane(h, lane2);
+		}
+
+		int remaining = reader.getLaneBytes();
+		if(remaining >= 4){
+			h = half(h, last & 0xFFFFFFFFL);
+			last >>>= 32;
+			remaining -= 4;
+		}
+
+		for(; remaining > 0; --remaining){
+			h = single(h, (int)(last & 0xFF));
+			last >>>= 8;
+		}
+
+		return avalanche(h);
+	}
+
+	private static long round(long accumulator, long input){
+		accumulator += input * PRIME2;
+		accumulator = Long.rotateLeft(accumulator, 31);
+		return accumulator * PRIME1;
+	}
+
+	private static long merge(long v1, long v2, long v3, long v4){
+
+		long h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+		h = (h ^ round(0, v1)) * PRIME1 + PRIME4;
+		h = (h ^ round(0, v2)) * PRIME1 + PRIME4;
+		h = (h ^ round(0, v3)) * PRIME1 + PRIME4;
+		h = (h ^ round(0, v4)) * PRIME1 + PRIME4;
+
+		return h;
+	}
+
+	private static long lane(long h, long lane){
+		return Long.rotateLeft(h ^ round(0, lane), 27) * PRIME1 + PRIME4;
+	}
+
+	private static long half(long h, long half){
+		return Long.rotateLeft(h ^ (half * PRIME1), 23) * PRIME2 + PRIME3;
+	}
+
+	private static long single(long h, int single){
+		return Long.rotateLeft(h ^ (single * PRIME5), 11) * PRIME1;
+	}
+
+	private static long avalanche(long h){
+
+		h ^= h >>> 33;
+		h *= PRIME2;
+		h ^= h >>> 29;
+		h *= PRIME3;
+		h ^= h >>> 32;
+
+		return h;
+	}
+
+}
@@ -0,0 +1,112 @@
+package implementation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe bit vector that keeps its words in pages of atomic long arrays.
+ * Setting a bit is lock-free, the word is updated with a compare-and-set loop which is skipped
+ * entirely if the bit is already set. Reading a bit is a single volatile read and therefore wait-free.
+ * The number of set bits is counted in a LongAdder by the thread that flips a bit from 0 to 1.
+ *
+ * @author Bruno
+ *
+ */
+public class AtomicBitVector extends BitVector {
+
+	private AtomicLongArray[] pages;
+	private LongAdder bitsSet = new LongAdder();
+
+	/**
+	 * Default constructor. Takes the number of bits the vector will hold, all bits are initially set to 0.
+	 *
+	 * @param size number of bits
+	 */
+	public AtomicBitVector(long size){
+		super(size);
+
+		pages = new AtomicLongArray[numberOfPages(getNumberOfWords())];
+
+		for(int i = 0; i < pages.length; ++i){
+			pages[i] = new AtomicLongArray(pageLength(i, getNumberOfWords()));
+		}
+	}
+
+	@Override
+	public boolean set(long index){
+		long word = index >>> WORD_SHIFT;
+		AtomicLongArray page = pages[(int)(word >>> PAGE_SHIFT)];
+		int offset = (int)(word & PAGE_MASK);
+		long mask = 1L << index;
+
+		long old = page.get(offset);
+		while((old & mask) == 0){
+
+			if(page.compareAndSet(offset, old, old | mask)){
+				bitsSet.increment();
+				return true;
+			}
+			old = page.get(offset);
+
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean get(long index){
+		long word = index >>> WORD_SHIFT;
+
+		return (pages[(int)(word >>> PAGE_SHIFT)].get((int)(word & PAGE_MASK)) & (1L << index)) != 0;
+	}
+
+	@Override
+	public long getWord(long wordIndex){
+		return pages[(int)(wordIndex >>> PAGE_SHIFT)].get((int)(wordIndex & PAGE_MASK));
+	}
+
+	@Override
+	public void orWord(long wordIndex, long word){
+		long old = pages[(int)(wordIndex >>> PAGE_SHIFT)].getAndAccumulate((int)(wordIndex & PAGE_MASK), word, (a, b) -> a | b);
+		bitsSet.add(Long.bitCount(word & ~old));
+	}
+
+	@Override
+	public long mergeWord(long wordIndex, long word){
+		long old = pages[(int)(wordIndex >>> PAGE_SHIFT)].getAndAccumulate((int)(wordIndex & PAGE_MASK), word, (a, b) -> a | b);
+		return Long.bitCount(word & ~old);
+	}
+
+	@Override
+	public void addBitsSet(long count){
+		bitsSet.add(count);
+	}
+
+	@Override
+	public void andWord(long wordIndex, long word){
+		long old = pages[(int)(wordIndex >>> PAGE_SHIFT)].getAndAccumulate((int)(wordIndex & PAGE_MASK), word, (a, b) -> a & b);
+		bitsSet.add(-Long.bitCount(old & ~word));
+	}
+
+	/**
+	 * Sets all bits to 0.
+	 * Not atomic as a whole, bits set concurrently with clearing may or may not remain set.
+	 */
+	@Override
+	public void clear(){
+		for(AtomicLongArray page: pages){
+			for(int i = 0; i < page.length(); ++i){
+				bitsSet.add(-Long.bitCount(page.getAndSet(i, 0L)));
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of set bits, exact unless bits are being set concurrently.
+	 */
+	@Override
+	public long cardinality(){
+		return bitsSet.sum();
+	}
+
+}
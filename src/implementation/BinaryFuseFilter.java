@@ -0,0 +1,311 @@
+package implementation;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import hashfunctions.HashFunction;
+import hashfunctions.MurmurHash3;
+
+/**
+ * Immutable binary fuse filter, built once from a collection of messages. Every message is mapped to three
+ * fingerprint slots in three consecutive segments of the fingerprint array, and the slots are filled so that the
+ * XOR of the three fingerprints equals the fingerprint of the message. A lookup therefore reads exactly three
+ * slots and the filter needs about 1.13 fingerprints per message, compared to the 1.44*log2(1/p) bits per message
+ * of a Bloom filter hash-table. The false positive percentage is 2^-f for f bit fingerprints.
+ * The slots are filled by peeling: messages that are alone in one of their slots are removed one by one and then
+ * assigned in reverse order, which takes linear time. If peeling gets stuck the filter is built again with a new seed.
+ *
+ * @author Bruno
+ *
+ */
+public class BinaryFuseFilter {
+
+	public static final int ARITY = 3;
+	public static final int MAX_ATTEMPTS = 100;
+
+	private static final int MAX_SEGMENT_LENGTH = 1 << 18;
+
+	private byte[] fingerprints8;
+	private short[] fingerprints16;
+	private int fingerprintBits;
+	private long seed;
+	private int segmentLength;
+	private int segmentLengthMask;
+	private int segmentCountLength;
+	private int arrayLength;
+	private long messagesStored;
+	private HashFunction hashFunction;
+	private int[] hashes = new int[2];
+	private int[] slots = new int[ARITY + 2];
+
+	/**
+	 * Default constructor. Builds the filter from the given messages, duplicate messages are stored once.
+	 * @param messages messages to be stored
+	 * @param fingerprintBits number of bits of a fingerprint, 8 or 16
+	 * @param hashFunction hash function used for hashing the messages
+	 * @throws IllegalStateException if the filter could not be built in MAX_ATTEMPTS attempts
+	 */
+	public BinaryFuseFilter(Collection<? extends CharSequence> messages, int fingerprintBits, HashFunction hashFunction){
+
+		if(fingerprintBits != Byte.SIZE && fingerprintBits != Short.SIZE){
+			throw new IllegalArgumentException("Fingerprint bits must be 8 or 16: " + fingerprintBits);
+		}
+
+		this.fingerprintBits = fingerprintBits;
+		this.hashFunction = hashFunction;
+
+		long[] keys = new long[messages.size()];
+		int size = 0;
+		for(CharSequence message: messages){
+			keys[size++] = keyHash(message);
+		}
+
+		calculateLayout(size);
+		build(keys, size);
+	}
+
+	/**
+	 * Calculates the segment length and the length of the fingerprint array for the given number of messages.
+	 * Smaller sets need relatively more space and shorter segments to be built reliably.
+	 */
+	private void calculateLayout(int size){
+
+		segmentLength = size == 0 ? 4 : 1 << (int)Math.floor(Math.log(size) / Math.log(3.33) + 2.25);
+		segmentLength = Math.min(segmentLength, MAX_SEGMENT_LENGTH);
+		segmentLengthMask = segmentLength - 1;
+
+		double sizeFactor = size <= 1 ? 0 : Math.max(1.125, 0.875 + 0.25 * Math.log(1_000_000) / Math.log(size));
+		long capacity = Math.round(size * sizeFactor);
+
+		long segmentCount = (capacity + segmentLength - 1) / segmentLength - (ARITY - 1);
+		segmentCount = Math.max(1, segmentCount);
+
+		if((segmentCount + ARITY - 1) * segmentLength > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("Too many messages for a binary fuse filter: " + size);
+		}
+
+		arrayLength = (int)((segmentCount + ARITY - 1) * segmentLength);
+		segmentCountLength = (int)(segmentCount * segmentLength);
+
+		if(fingerprintBits == Byte.SIZE){
+			fingerprints8 = new byte[arrayLength];
+		} else {
+			fingerprints16 = new short[arrayLength];
+		}
+	}
+
+	/**
+	 * Builds the fingerprint array from the hashes of the messages.
+	 * Every slot counts the messages mapped to it (shifted left by 2), XORs their hashes and XORs the indexes 0, 1 or 2
+	 * of the slot among the slots of every message into the lowest two bits, so when one message is left in a slot both
+	 * the message and the position of the slot are known.
+	 */
+	private void build(long[] keys, int size){
+
+		long[] stack = new long[size];
+		byte[] stackPositions = new byte[size];
+		int[] counts = new int[arrayLength];
+		long[] xors = new long[arrayLength];
+		int[] alone = new int[arrayLength];
+		boolean deduplicated = false;
+		long seedGenerator = 0x9E3779B97F4A7C15L;
+
+		for(int attempt = 0; ; ++attempt){
+
+			if(attempt == MAX_ATTEMPTS){
+				throw new IllegalStateException("Could not build a binary fuse filter in " + MAX_ATTEMPTS + " attempts");
+			}
+
+			if(attempt > 0 && !deduplicated){
+				size = deduplicate(keys, size);
+				deduplicated = true;
+			}
+
+			seedGenerator += 0x9E3779B97F4A7C15L;
+			seed = MurmurHash3.fmix64(seedGenerator);
+			Arrays.fill(counts, 0);
+			Arrays.fill(xors, 0L);
+
+			for(int i = 0; i < size; ++i){
+				long hash = mix(keys[i]);
+				slots(hash, slots);
+
+				for(int j = 0; j < ARITY; ++j){
+					counts[slots[j]] += 4;
+					counts[slots[j]] ^= j;
+					xors[slots[j]] ^= hash;
+				}
+			}
+
+			int queueSize = 0;
+			for(int i = 0; i < arrayLength; ++i){
+				if((counts[i] >> 2) == 1){
+					alone[queueSize++] = i;
+				}
+			}
+
+			int stackSize = 0;
+			while(queueSize > 0){
+
+				int index = alone[--queueSize];
+				if((counts[index] >> 2) != 1){
+					continue;
+				}
+
+				long hash = xors[index];
+				int position = counts[index] & 3;
+				stack[stackSize] = hash;
+				stackPositions[stackSize] = (byte)position;
+				++stackSize;
+
+				slots(hash, slots);
+				for(int j = 1; j < ARITY; ++j){
+					int other = slots[position + j];
+
+					counts[other] -= 4;
+					counts[other] ^= (position + j) % ARITY;
+					xors[other] ^= hash;
+
+					if((counts[other] >> 2) == 1){
+						alone[queueSize++] = other;
+					}
+				}
+			}
+
+			if(stackSize == size){
+				messagesStored = size;
+				break;
+			}
+		}
+
+		for(int i = (int)messagesStored - 1; i >= 0; --i){
+			long hash = stack[i];
+			slots(hash, slots);
+			int position = stackPositions[i];
+
+			int fingerprint = fingerprint(hash) ^ getFingerprint(slots[position + 1]) ^ getFingerprint(slots[position + 2]);
+			setFingerprint(slots[position], fingerprint);
+		}
+	}
+
+	/**
+	 * Sorts the hashes and removes duplicates, identical hashes can never be peeled.
+	 * @return number of distinct hashes
+	 */
+	private static int deduplicate(long[] keys, int size){
+
+		if(size == 0){
+			return 0;
+		}
+
+		Arrays.sort(keys, 0, size);
+
+		int distinct = 1;
+		for(int i = 1; i < size; ++i){
+			if(keys[i] != keys[distinct - 1]){
+				keys[distinct++] = keys[i];
+			}
+		}
+
+		return distinct;
+	}
+
+	/**
+	 * Check if the given message is contained in the filter (false positives possible).
+	 * @param message message to be checked
+	 * @return true if the XOR of the fingerprints in the three slots of the message equals its fingerprint
+	 */
+	public boolean contains(CharSequence message){
+
+		if(messagesStored == 0){
+			return false;
+		}
+
+		long hash = mix(keyHash(message));
+		slots(hash, slots);
+
+		return (fingerprint(hash) ^ getFingerprint(slots[0]) ^ getFingerprint(slots[1]) ^ getFingerprint(slots[2])) == 0;
+	}
+
+	private long keyHash(CharSequence message){
+
+		hashFunction.getHasher().hash(message, 2, hashes);
+		return ((long)hashes[0] << 32) | (hashes[1] & 0xFFFFFFFFL);
+	}
+
+	private long mix(long keyHash){
+		return MurmurHash3.fmix64(keyHash + seed);
+	}
+
+	/**
+	 * Calculates the three slots of a hash, one in each of three consecutive segments, and repeats the first two
+	 * after them so the other slots of the slot on position p are on positions p+1 and p+2.
+	 */
+	private void slots(long hash, int[] slots){
+
+		int h0 = (int)(((hash >>> 32) * segmentCountLength) >>> 32);
+		slots[0] = h0;
+		slots[1] = (h0 + segmentLength) ^ (int)((hash >>> 18) & segmentLengthMask);
+		slots[2] = (h0 + 2 * segmentLength) ^ (int)(hash & segmentLengthMask);
+		slots[3] = slots[0];
+		slots[4] = slots[1];
+	}
+
+	private int fingerprint(long hash){
+		return (int)(hash ^ (hash >>> 32)) & ((1 << fingerprintBits) - 1);
+	}
+
+	private int getFingerprint(int index){
+		return fingerprintBits == Byte.SIZE ? fingerprints8[index] & 0xFF : fingerprints16[index] & 0xFFFF;
+	}
+
+	private void setFingerprint(int index, int fingerprint){
+		if(fingerprintBits == Byte.SIZE){
+			fingerprints8[index] = (byte)fingerprint;
+		} else {
+			fingerprints16[index] = (short)fingerprint;
+		}
+	}
+
+	/**
+	 * Calculates theoretical percentage of false positive values returned by the contains method.
+	 * @return 2^-f for f bit fingerprints
+	 */
+	public double expectedFalsePositives(){
+		return Math.pow(2, -fingerprintBits);
+	}
+
+	/**
+	 * Returns the number of bits of memory used per stored message.
+	 * @return bits per stored message
+	 */
+	public double getBitsPerMessage(){
+		return (double)getMemoryUsage() * Byte.SIZE / messagesStored;
+	}
+
+	public long getMemoryUsage(){
+		return (long)arrayLength * fingerprintBits / Byte.SIZE;
+	}
+
+	public int getSize(){
+		return arrayLength;
+	}
+
+	public int getFingerprintBits(){
+		return fingerprintBits;
+	}
+
+	public long getMessagesStored(){
+		return messagesStored;
+	}
+
+	public HashFunction getHashFunction(){
+		return hashFunction;
+	}
+
+	@Override
+	public String toString(){
+		return "Binary fuse " + hashFunction.getName() + " size: " + arrayLength + " fingerprint bits: " + fingerprintBits;
+	}
+
+}
@@ -0,0 +1,154 @@
+package implementation;
+
+/**
+ * Bit vector indexed by long values, used as the storage of a Bloom filter hash-table.
+ * Unlike java.util.BitSet, which is limited to Integer.MAX_VALUE bits, a bit vector can hold
+ * tens of billions of bits. Bits are grouped into 64 bit words, the bit with the index i is
+ * stored in the word i/64 on the position i%64.
+ * Implementing classes decide how the words are stored.
+ *
+ * @author Bruno
+ *
+ */
+public abstract class BitVector {
+
+	protected static final int WORD_SHIFT = 6;
+	protected static final int PAGE_SHIFT = 20;
+	protected static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	protected static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	private long size;
+	private long numberOfWords;
+
+	/**
+	 * Default constructor. Takes the number of bits the vector will hold.
+	 *
+	 * @param size number of bits
+	 */
+	protected BitVector(long size){
+		if(size <= 0){
+			throw new IllegalArgumentException("Bit vector size must be positive: " + size);
+		}
+
+		this.size = size;
+		numberOfWords = (size + 63) >>> WORD_SHIFT;
+	}
+
+	/**
+	 * Sets the bit on the given index to 1.
+	 *
+	 * @param index index of the bit
+	 * @return true if the bit was previously set to 0, false otherwise
+	 */
+	public abstract boolean set(long index);
+
+	/**
+	 * Returns the value of the bit on the given index.
+	 *
+	 * @param index index of the bit
+	 * @return true if the bit is set to 1, false otherwise
+	 */
+	public abstract boolean get(long index);
+
+	/**
+	 * Returns the word on the given word index.
+	 *
+	 * @param wordIndex index of the word
+	 * @return 64 bits of the vector starting from the bit wordIndex*64
+	 */
+	public abstract long getWord(long wordIndex);
+
+	/**
+	 * Sets the word on the given word index to the bitwise OR of the word and the given value.
+	 *
+	 * @param wordIndex index of the word
+	 * @param word value to OR the word with
+	 */
+	public abstract void orWord(long wordIndex, long word);
+
+	/**
+	 * Sets the word on the given word index to the bitwise AND of the word and the given value.
+	 *
+	 * @param wordIndex index of the word
+	 * @param word value to AND the word with
+	 */
+	public abstract void andWord(long wordIndex, long word);
+
+	/**
+	 * Sets the word on the given word index to the bitwise OR of the word and the given value without updating
+	 * the number of set bits, so different words can be merged by several threads at once.
+	 * The caller adds the total of the returned counts with addBitsSet once every word is merged.
+	 *
+	 * @param wordIndex index of the word
+	 * @param word value to OR the word with
+	 * @return number of bits changed from 0 to 1
+	 */
+	public abstract long mergeWord(long wordIndex, long word);
+
+	/**
+	 * Adds to the number of set bits kept by the vector, after words were merged with mergeWord.
+	 *
+	 * @param count number of bits set by the merge
+	 */
+	public abstract void addBitsSet(long count);
+
+	/**
+	 * Sets all bits to 0.
+	 */
+	public abstract void clear();
+
+	/**
+	 * Counts the bits set to 1 by scanning all words.
+	 * Implementing classes that keep track of the number of set bits override this to run in constant time.
+	 *
+	 * @return number of bits set to 1
+	 */
+	public long cardinality(){
+		long count = 0;
+
+		for(long i = 0; i < numberOfWords; ++i){
+			count += Long.bitCount(getWord(i));
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the number of bytes used to store the vector.
+	 *
+	 * @return memory used by the vector in bytes
+	 */
+	public long getMemoryUsage(){
+		return numberOfWords * Long.BYTES;
+	}
+
+	/**
+	 * Returns the number of pages needed to store the given number of words.
+	 *
+	 * @param numberOfWords number of words
+	 * @return number of pages
+	 */
+	protected static int numberOfPages(long numberOfWords){
+		return (int)((numberOfWords + PAGE_MASK) >>> PAGE_SHIFT);
+	}
+
+	/**
+	 * Returns the length of the page with the given index.
+	 *
+	 * @param page index of the page
+	 * @param numberOfWords number of words in the whole vector
+	 * @return number of words in the page
+	 */
+	protected static int pageLength(int page, long numberOfWords){
+		return (int)Math.min(PAGE_SIZE, numberOfWords - ((long)page << PAGE_SHIFT));
+	}
+
+	public long getSize(){
+		return size;
+	}
+
+	public long getNumberOfWords(){
+		return numberOfWords;
+	}
+
+}
@@ -0,0 +1,175 @@
+package implementation;
+
+import hashfunctions.HashFunction;
+
+/**
+ * Blocked variant of the Bloom filter hash-table. The bit vector is split into blocks of equal size,
+ * the first hash of a message selects a block and all of the message bits are set inside that block.
+ * With the default block size of 512 bits (one 64 byte cache line) adding or checking a message touches a single
+ * cache line instead of one per hash, at the cost of a somewhat higher false positive percentage
+ * caused by the uneven load of the blocks. The smallest block is a single 64 bit word.
+ * 
+ * @author Bruno
+ *
+ */
+public class BlockedHashTable extends HashTable {
+	
+	public static final int CACHE_LINE_BLOCK_SIZE = 512;
+	public static final int WORD_BLOCK_SIZE = 64;
+	
+	private int blockSize;
+	private int blockShift;
+	private String layout;
+
+	/**
+	 * Default constructor. Takes the size of the hash-table, number of hashes that will be done for each message 
+	 * and the size of a block in bits. The size of the hash-table is rounded up to a whole number of blocks. 
+	 * Also takes a hash function the Bloom filter will use for generating addresses.
+	 * @param size size of the hash-table
+	 * @param hashesPerMessage number of hashes per message
+	 * @param hashFunction hash function that will generate addresses
+	 * @param blockSize size of a block in bits, a power of two between 64 and 512 
+	 */
+	public BlockedHashTable(long size, int hashesPerMessage, HashFunction hashFunction, int blockSize){
+		super(new PagedBitVector(roundToBlocks(size, blockSize)), hashesPerMessage, hashFunction);
+		this.blockSize = blockSize;
+		this.blockShift = Integer.numberOfTrailingZeros(blockSize);
+		this.layout = layoutName(blockSize);
+	}
+	
+	/**
+	 * Constructor that creates a blocked hash-table with cache line sized blocks.
+	 * @param size size of the hash-table
+	 * @param hashesPerMessage number of hashes per message
+	 * @param hashFunction hash function that will generate addresses
+	 */
+	public BlockedHashTable(long size, int hashesPerMessage, HashFunction hashFunction){
+		this(size, hashesPerMessage, hashFunction, CACHE_LINE_BLOCK_SIZE);
+	}
+	
+	/**
+	 * Constructor that creates a blocked hash-table sized for a requested theoretical percentage of false positives
+	 * of the classic hash-table, the real percentage of the blocked hash-table will be slightly higher.
+	 * @param messagesToBeStored number of messages that are going to be stored to the bloom filter 
+	 * @param requestedFPPercentage theoretical false positive percentage after the given number of messages is stored in
+	 * 								the hash table
+	 * @param hashFunction hash function that will generate addresses
+	 * @param blockSize size of a block in bits, a power of two between 64 and 512 
+	 */
+	public BlockedHashTable(long messagesToBeStored, double requestedFPPercentage, HashFunction hashFunction, int blockSize){
+		this(optimalSize(messagesToBeStored, requestedFPPercentage),
+				optimalHashesPerMessage(requestedFPPercentage),
+				hashFunction, blockSize);
+	}
+	
+	/**
+	 * Rounds the size up to a whole number of blocks, also checks the block size.
+	 * @param size requested size of the hash-table
+	 * @param blockSize size of a block in bits
+	 * @return size of the hash-table holding a whole number of blocks
+	 */
+	private static long roundToBlocks(long size, int blockSize){
+		
+		if(Integer.bitCount(blockSize) != 1 || blockSize < WORD_BLOCK_SIZE || blockSize > CACHE_LINE_BLOCK_SIZE){
+			throw new IllegalArgumentException("Block size must be a power of two between 64 and 512: " + blockSize);
+		}
+		
+		return (size + blockSize - 1) / blockSize * blockSize;
+	}
+	
+	/**
+	 * One hash more than the number of hashes per message is needed, 
+	 * the first hash selects the block and the remaining hashes select the bits inside the block.
+	 * @return number of hashes per message increased by one 
+	 */
+	@Override
+	protected int hashCount(){
+		return getHashesPerMessage() + 1;
+	}
+	
+	@Override
+	protected void addHashes(int[] hashes){
+		
+		BitVector table = getTable();
+		long block = blockStart(hashes);
+		
+		for(int i = 1; i <= getHashesPerMessage(); ++i){
+			
+			table.set(block + (hashes[i] & (blockSize - 1)));
+			
+		}
+		
+		messagesAdded(1);
+	}
+	
+	/**
+	 * Only the bits of the block selected by the first hash are checked.
+	 */
+	@Override
+	protected boolean containsHashes(int[] hashes){
+		
+		BitVector table = getTable();
+		long block = blockStart(hashes);
+		
+		for(int i = 1; i <= getHashesPerMessage(); ++i){
+			
+			if(!table.get(block + (hashes[i] & (blockSize - 1)))){
+				return false;
+			}
+			
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Calculates the bit positions of a message inside the block selected by its first hash.
+	 */
+	@Override
+	protected void positions(int[] hashes, long[] positions, int offset){
+		
+		long block = blockStart(hashes);
+		
+		for(int i = 1; i <= getHashesPerMessage(); ++i){
+			positions[offset + i - 1] = block + (hashes[i] & (blockSize - 1));
+		}
+	}
+	
+	/**
+	 * Returns the index of the first bit of the block selected by the first hash of a message.
+	 * @param hashes hashes generated by the hash function
+	 * @return index of the first bit of the block
+	 */
+	private long blockStart(int[] hashes){
+		return (position(hashes, 0) >>> blockShift) << blockShift;
+	}
+	
+	@Override
+	protected String layout(){
+		return layout;
+	}
+	
+	/**
+	 * Returns the name of the layout of blocked hash-tables with the given block size.
+	 * @param blockSize size of a block in bits
+	 * @return name of the layout
+	 */
+	static String layoutName(int blockSize){
+		return "blocked " + blockSize;
+	}
+	
+	@Override
+	protected HashTable emptyCopy(){
+		return new BlockedHashTable(getSize(), getHashesPerMessage(), getHashFunction(), blockSize);
+	}
+	
+	public int getBlockSize(){
+		return blockSize;
+	}
+	
+	@Override
+	public String toString(){
+		return super.toString() + " block size: " + blockSize;
+	}
+
+}
@@ -0,0 +1,91 @@
+package implementation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import hashfunctions.HashFunction;
+
+/**
+ * Thread-safe variant of the Bloom filter hash-table which allows adding and checking messages from
+ * multiple threads at once without locking.
+ * Bits are set with compare-and-set operations on an AtomicBitVector and the number of stored
+ * messages is counted with a striped counter, so concurrent adds do not contend on a single field.
+ * The contains method only reads the bit vector and is wait-free.
+ * 
+ * @author Bruno
+ *
+ */
+public class ConcurrentHashTable extends HashTable {
+	
+	private LongAdder messagesStored = new LongAdder();
+	private ThreadLocal<int[]> hashes = ThreadLocal.withInitial(() -> new int[getHashesPerMessage()]);
+
+	/**
+	 * Default constructor. Takes the size of the hash-table, and number of hashes that will be done for each message. 
+	 * Also takes a hash function the Bloom filter will use for generating addresses.
+	 * @param size size of the hash-table
+	 * @param hashesPerMessage number of hashes per message
+	 * @param hashFunction hash function that will generate addresses
+	 */
+	public ConcurrentHashTable(long size, int hashesPerMessage, HashFunction hashFunction){
+		super(new AtomicBitVector(size), hashesPerMessage, hashFunction);
+	}
+	
+	/**
+	 * Constructor that creates a Bloom filter hash table with a requested theoretical percentage of false positives after 
+	 * a given number of messages is stored to the hash table.
+	 * Also takes a hash function the Bloom filter will use for generating addresses.
+	 * @param messagesToBeStored number of messages that are going to be stored to the bloom filter 
+	 * @param requestedFPPercentage theoretical false positive percentage after the given number of messages is stored in
+	 * 								the hash table
+	 * @param hashFunction hash function that will generate addresses
+	 */
+	public ConcurrentHashTable(long messagesToBeStored, double requestedFPPercentage, HashFunction hashFunction){
+		this(optimalSize(messagesToBeStored, requestedFPPercentage),
+				optimalHashesPerMessage(requestedFPPercentage),
+				hashFunction);
+	}
+	
+	/**
+	 * Counts messages as stored. The bits of the messages are already set through the AtomicBitVector, 
+	 * so the inherited add methods are thread-safe as a whole.
+	 * @param count number of messages stored
+	 */
+	@Override
+	protected void messagesAdded(long count){
+		messagesStored.add(count);
+	}
+	
+	/**
+	 * Returns the array the hashes of a message are written to, every thread gets its own array.
+	 * @param length minimum length of the array
+	 * @return array of at least the given length
+	 */
+	@Override
+	protected int[] hashBuffer(int length){
+		
+		int[] buffer = hashes.get();
+		if(buffer.length < length){
+			buffer = new int[length];
+			hashes.set(buffer);
+		}
+		
+		return buffer;
+	}
+	
+	@Override
+	public void clear(){
+		super.clear();
+		messagesStored.reset();
+	}
+	
+	@Override
+	public long getMessagesStored(){
+		return messagesStored.sum();
+	}
+	
+	@Override
+	public String toString(){
+		return "Concurrent " + super.toString();
+	}
+
+}
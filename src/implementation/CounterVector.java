@@ -0,0 +1,190 @@
+package implementation;
+
+import java.util.Arrays;
+
+/**
+ * Vector of 4 bit counters, 16 counters packed into every long word, used as the storage of a counting 
+ * Bloom filter. Seen as a bit vector, the bit with the index i is set if the counter with the index i is not 0.
+ * Counters saturate at 15: a saturated counter is never incremented or decremented again, 
+ * so it can not wrap around to 0 and cause false negatives.
+ * The number of non-zero counters is tracked as counters leave and return to 0, so cardinality runs in constant time.
+ * Not thread-safe.
+ *
+ * @author Bruno
+ *
+ */
+public class CounterVector extends BitVector {
+	
+	public static final int MAX_COUNT = 15;
+	
+	private static final int COUNTER_SHIFT = 4;
+	private static final long LOW_NIBBLES = 0x1111111111111111L;
+
+	private long[][] pages;
+	private long numberOfCounterWords;
+	private long nonZeroCounters;
+
+	/**
+	 * Default constructor. Takes the number of counters the vector will hold, all counters are initially set to 0.
+	 *
+	 * @param size number of counters
+	 */
+	public CounterVector(long size){
+		super(size);
+		
+		numberOfCounterWords = (size + 15) >>> COUNTER_SHIFT;
+		pages = new long[numberOfPages(numberOfCounterWords)][];
+
+		for(int i = 0; i < pages.length; ++i){
+			pages[i] = new long[pageLength(i, numberOfCounterWords)];
+		}
+	}
+
+	/**
+	 * Increments the counter on the given index unless it is saturated.
+	 *
+	 * @param index index of the counter
+	 * @return true if the counter was previously 0, false otherwise
+	 */
+	@Override
+	public boolean set(long index){
+		long word = index >>> COUNTER_SHIFT;
+		long[] page = pages[(int)(word >>> PAGE_SHIFT)];
+		int offset = (int)(word & PAGE_MASK);
+		int shift = (int)(index & 15) << 2;
+		
+		long count = (page[offset] >>> shift) & MAX_COUNT;
+		if(count < MAX_COUNT){
+			page[offset] += 1L << shift;
+		}
+		
+		if(count == 0){
+			++nonZeroCounters;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Decrements the counter on the given index unless it is 0 or saturated.
+	 *
+	 * @param index index of the counter
+	 * @return true if the counter became 0, false otherwise
+	 */
+	public boolean decrement(long index){
+		long word = index >>> COUNTER_SHIFT;
+		long[] page = pages[(int)(word >>> PAGE_SHIFT)];
+		int offset = (int)(word & PAGE_MASK);
+		int shift = (int)(index & 15) << 2;
+		
+		long count = (page[offset] >>> shift) & MAX_COUNT;
+		if(count == 0 || count == MAX_COUNT){
+			return false;
+		}
+		
+		page[offset] -= 1L << shift;
+		if(count == 1){
+			--nonZeroCounters;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the value of the counter on the given index.
+	 *
+	 * @param index index of the counter
+	 * @return value of the counter, between 0 and MAX_COUNT
+	 */
+	public int getCount(long index){
+		long word = index >>> COUNTER_SHIFT;
+		
+		return (int)((pages[(int)(word >>> PAGE_SHIFT)][(int)(word & PAGE_MASK)] >>> ((int)(index & 15) << 2)) & MAX_COUNT);
+	}
+
+	@Override
+	public boolean get(long index){
+		return getCount(index) != 0;
+	}
+
+	@Override
+	public long getWord(long wordIndex){
+		long bits = 0;
+		long first = wordIndex << 2;
+		
+		for(int i = 0; i < 4 && first + i < numberOfCounterWords; ++i){
+			
+			long nonZero = nonZeroNibbles(getCounterWord(first + i));
+			for(int j = 0; j < 16; ++j){
+				bits |= ((nonZero >>> (j << 2)) & 1L) << (i * 16 + j);
+			}
+			
+		}
+		
+		return bits;
+	}
+
+	/**
+	 * Not supported, counters can not be combined bit by bit.
+	 */
+	@Override
+	public void orWord(long wordIndex, long word){
+		throw new UnsupportedOperationException("Counter vectors can not be combined bit by bit");
+	}
+
+	/**
+	 * Not supported, counters can not be combined bit by bit.
+	 */
+	@Override
+	public long mergeWord(long wordIndex, long word){
+		throw new UnsupportedOperationException("Counter vectors can not be combined bit by bit");
+	}
+
+	/**
+	 * Not supported, counters can not be combined bit by bit.
+	 */
+	@Override
+	public void addBitsSet(long count){
+		throw new UnsupportedOperationException("Counter vectors can not be combined bit by bit");
+	}
+
+	/**
+	 * Not supported, counters can not be combined bit by bit.
+	 */
+	@Override
+	public void andWord(long wordIndex, long word){
+		throw new UnsupportedOperationException("Counter vectors can not be combined bit by bit");
+	}
+
+	@Override
+	public void clear(){
+		for(long[] page: pages){
+			Arrays.fill(page, 0L);
+		}
+		nonZeroCounters = 0;
+	}
+
+	@Override
+	public long cardinality(){
+		return nonZeroCounters;
+	}
+	
+	@Override
+	public long getMemoryUsage(){
+		return numberOfCounterWords * Long.BYTES;
+	}
+	
+	private long getCounterWord(long counterWordIndex){
+		return pages[(int)(counterWordIndex >>> PAGE_SHIFT)][(int)(counterWordIndex & PAGE_MASK)];
+	}
+	
+	/**
+	 * Returns a word with the lowest bit of every nibble set if the nibble is not 0.
+	 */
+	private static long nonZeroNibbles(long word){
+		word |= word >>> 1;
+		word |= word >>> 2;
+		return word & LOW_NIBBLES;
+	}
+
+}
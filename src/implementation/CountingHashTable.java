@@ -0,0 +1,113 @@
+package implementation;
+
+import hashfunctions.HashFunction;
+
+/**
+ * Counting variant of the Bloom filter hash-table which also allows removing a single message.
+ * Every bit of the hash-table is replaced with a 4 bit counter stored in a CounterVector, so the counting 
+ * hash-table uses four times the memory of a hash-table of the same size. Adding a message increments 
+ * the counters on the locations determined by the hashes, removing it decrements them.
+ * Counters saturate at 15 and are never decremented afterwards, which keeps false negatives impossible
+ * at the cost of messages that can no longer be fully removed.
+ * Not thread-safe.
+ * 
+ * @author Bruno
+ *
+ */
+public class CountingHashTable extends HashTable {
+	
+	private CounterVector counters;
+
+	/**
+	 * Default constructor. Takes the size of the hash-table, and number of hashes that will be done for each message. 
+	 * Also takes a hash function the Bloom filter will use for generating addresses.
+	 * @param size number of counters of the hash-table
+	 * @param hashesPerMessage number of hashes per message
+	 * @param hashFunction hash function that will generate addresses
+	 */
+	public CountingHashTable(long size, int hashesPerMessage, HashFunction hashFunction){
+		this(new CounterVector(size), hashesPerMessage, hashFunction);
+	}
+	
+	/**
+	 * Constructor that creates a counting Bloom filter hash table with a requested theoretical percentage of false 
+	 * positives after a given number of messages is stored to the hash table.
+	 * Also takes a hash function the Bloom filter will use for generating addresses.
+	 * @param messagesToBeStored number of messages that are going to be stored to the bloom filter 
+	 * @param requestedFPPercentage theoretical false positive percentage after the given number of messages is stored in
+	 * 								the hash table
+	 * @param hashFunction hash function that will generate addresses
+	 */
+	public CountingHashTable(long messagesToBeStored, double requestedFPPercentage, HashFunction hashFunction){
+		this(optimalSize(messagesToBeStored, requestedFPPercentage),
+				optimalHashesPerMessage(requestedFPPercentage),
+				hashFunction);
+	}
+	
+	private CountingHashTable(CounterVector counters, int hashesPerMessage, HashFunction hashFunction){
+		super(counters, hashesPerMessage, hashFunction);
+		this.counters = counters;
+	}
+	
+	/**
+	 * Removes a message from the hash-table by decrementing the counters on the locations determined by its hashes.
+	 * The message is removed only if the hash-table contains it, otherwise removing it could clear counters 
+	 * of other messages. Removing a message that was never added, but is a false positive, still 
+	 * causes false negatives for the messages sharing its counters.
+	 * @param message message to be removed from the hash-table
+	 * @return true if the message was contained and removed, false otherwise
+	 */
+	public boolean remove(CharSequence message){
+		
+		int hashes[] = hashBuffer(hashCount());
+		getHasher().hash(message, hashCount(), hashes);
+		
+		if(!containsHashes(hashes)){
+			return false;
+		}
+		
+		for(int i = 0; i < getHashesPerMessage(); ++i){
+			
+			counters.decrement(position(hashes, i));
+			
+		}
+		
+		messagesAdded(-1);
+		return true;
+	}
+	
+	/**
+	 * Returns the number of counters that reached the maximal value and can no longer be decremented.
+	 * @return number of saturated counters
+	 */
+	public long getNumberOfSaturated(){
+		
+		long saturated = 0;
+		for(long i = 0; i < getSize(); ++i){
+			if(counters.getCount(i) == CounterVector.MAX_COUNT){
+				saturated++;
+			}
+		}
+		
+		return saturated;
+	}
+	
+	@Override
+	protected String layout(){
+		return "counting";
+	}
+	
+	/**
+	 * Not supported, counting hash-tables can not be merged bit by bit.
+	 */
+	@Override
+	protected HashTable emptyCopy(){
+		throw new UnsupportedOperationException("Counting hash-tables can not be built in parallel");
+	}
+	
+	@Override
+	public String toString(){
+		return "Counting " + super.toString();
+	}
+
+}
@@ -0,0 +1,68 @@
+package implementation;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli) checksum, used to check the integrity of hash-table files.
+ * java.util.zip.CRC32C is only available from Java 9, so the checksum is calculated here
+ * with the usual table driven algorithm.
+ * 
+ * @author Bruno
+ *
+ */
+public class Crc32c implements Checksum {
+	
+	private static final int POLYNOMIAL = 0x82F63B78;
+	private static final int[] TABLE = new int[256];
+	
+	static {
+		for(int i = 0; i < 256; ++i){
+			int crc = i;
+			for(int j = 0; j < 8; ++j){
+				crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+			}
+			TABLE[i] = crc;
+		}
+	}
+	
+	private int crc = 0xFFFFFFFF;
+
+	@Override
+	public void update(int b) {
+		crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+	}
+
+	@Override
+	public void update(byte[] b, int off, int len) {
+		int c = crc;
+		for(int i = off, end = off + len; i < end; ++i){
+			c = (c >>> 8) ^ TABLE[(c ^ b[i]) & 0xFF];
+		}
+		crc = c;
+	}
+	
+	/**
+	 * Updates the checksum with the bytes of the buffer between its position and limit. 
+	 * The position of the buffer is not changed.
+	 * @param buffer bytes to update the checksum with
+	 */
+	public void update(ByteBuffer buffer) {
+		int c = crc;
+		for(int i = buffer.position(), end = buffer.limit(); i < end; ++i){
+			c = (c >>> 8) ^ TABLE[(c ^ buffer.get(i)) & 0xFF];
+		}
+		crc = c;
+	}
+
+	@Override
+	public long getValue() {
+		return ~crc & 0xFFFFFFFFL;
+	}
+
+	@Override
+	public void reset() {
+		crc = 0xFFFFFFFF;
+	}
+
+}
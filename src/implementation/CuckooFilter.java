@@ -0,0 +1,370 @@
+package implementation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+
+import hashfunctions.HashFunction;
+import hashfunctions.MurmurHash3;
+
+/**
+ * Cuckoo filter, an alternative to the Bloom filter hash-table that stores a short fingerprint of every message
+ * in one of two buckets of BUCKET_SIZE slots. A lookup reads only the two buckets and, unlike the hash-table,
+ * stored messages can be removed. For false positive percentages below about 3% it needs less memory
+ * per message than a hash-table.
+ * The second bucket of a message is calculated from the first one and the fingerprint, so fingerprints can be
+ * moved between their two buckets without knowing the message. When both buckets are full a random fingerprint
+ * is kicked out to its other bucket, at most MAX_KICKS times. If the last kicked fingerprint finds no place
+ * it is kept aside as a victim and the filter is full: further messages are rejected until one is removed.
+ * Fingerprints are packed into words, a slot takes exactly the given number of bits. Not thread-safe.
+ *
+ * @author Bruno
+ *
+ */
+public class CuckooFilter {
+
+	public static final int BUCKET_SIZE = 4;
+	public static final int MAX_KICKS = 500;
+	public static final double MAX_LOAD_FACTOR = 0.95;
+
+	private static final int WORD_SHIFT = 6;
+
+	private long[][] pages;
+	private long numberOfBuckets;
+	private int fingerprintBits;
+	private long fingerprintMask;
+	private long messagesStored;
+	private HashFunction hashFunction;
+	private int[] hashes = new int[2];
+
+	private boolean hasVictim;
+	private long victimBucket;
+	private int victimFingerprint;
+
+	/**
+	 * Default constructor. Takes the number of buckets, number of bits of every fingerprint and the hash function
+	 * used to calculate the bucket and the fingerprint of a message.
+	 * @param numberOfBuckets number of buckets, every bucket holds BUCKET_SIZE fingerprints
+	 * @param fingerprintBits number of bits of a fingerprint, between 1 and 32
+	 * @param hashFunction hash function used for calculating buckets and fingerprints
+	 */
+	public CuckooFilter(long numberOfBuckets, int fingerprintBits, HashFunction hashFunction){
+
+		if(numberOfBuckets <= 0){
+			throw new IllegalArgumentException("Number of buckets must be positive: " + numberOfBuckets);
+		}
+		if(fingerprintBits < 1 || fingerprintBits > Integer.SIZE){
+			throw new IllegalArgumentException("Fingerprint bits must be between 1 and 32: " + fingerprintBits);
+		}
+
+		this.numberOfBuckets = numberOfBuckets;
+		this.fingerprintBits = fingerprintBits;
+		this.hashFunction = hashFunction;
+		fingerprintMask = (1L << fingerprintBits) - 1;
+
+		long numberOfWords = (numberOfBuckets * BUCKET_SIZE * fingerprintBits + 63) >>> WORD_SHIFT;
+		pages = new long[BitVector.numberOfPages(numberOfWords)][];
+
+		for(int i = 0; i < pages.length; ++i){
+			pages[i] = new long[BitVector.pageLength(i, numberOfWords)];
+		}
+	}
+
+	/**
+	 * Constructor that calculates the number of buckets and bits per fingerprint from the number of messages
+	 * to be stored and the wanted false positive percentage.
+	 * @param messagesToBeStored number of messages the filter will hold
+	 * @param falsePositivesPercentage wanted percentage of false positive values
+	 * @param hashFunction hash function used for calculating buckets and fingerprints
+	 */
+	public CuckooFilter(long messagesToBeStored, double falsePositivesPercentage, HashFunction hashFunction){
+		this(optimalNumberOfBuckets(messagesToBeStored), optimalFingerprintBits(falsePositivesPercentage), hashFunction);
+	}
+
+	/**
+	 * Calculates the number of buckets needed to store the given number of messages under the maximal load factor.
+	 * @param messagesToBeStored number of messages the filter will hold
+	 * @return number of buckets
+	 */
+	public static long optimalNumberOfBuckets(long messagesToBeStored){
+
+		if(messagesToBeStored <= 0){
+			throw new IllegalArgumentException("Number of messages must be positive: " + messagesToBeStored);
+		}
+
+		return (long)Math.ceil(messagesToBeStored / (BUCKET_SIZE * MAX_LOAD_FACTOR));
+	}
+
+	/**
+	 * Calculates the number of bits per fingerprint for the given false positive percentage of a full filter.
+	 * A lookup compares the fingerprint to 2*BUCKET_SIZE slots, so f = log2(2*BUCKET_SIZE/p).
+	 * @param falsePositivesPercentage wanted percentage of false positive values
+	 * @return number of bits per fingerprint
+	 */
+	public static int optimalFingerprintBits(double falsePositivesPercentage){
+
+		if(falsePositivesPercentage <= 0 || falsePositivesPercentage >= 1){
+			throw new IllegalArgumentException("False positive percentage must be between 0 and 1: " + falsePositivesPercentage);
+		}
+
+		return (int)Math.max(1, Math.ceil(Math.log(2 * BUCKET_SIZE / falsePositivesPercentage) / Math.log(2)));
+	}
+
+	/**
+	 * Stores the fingerprint of the given message in one of its buckets, kicking other fingerprints out to their
+	 * other bucket if needed.
+	 * @param message message to be added
+	 * @return true if the message was added, false if the filter is full
+	 */
+	public boolean add(CharSequence message){
+
+		if(hasVictim){
+			return false;
+		}
+
+		hashFunction.getHasher().hash(message, 2, hashes);
+		int fingerprint = fingerprint(hashes[1]);
+		long bucket = bucket(hashes);
+
+		if(insert(bucket, fingerprint) || insert(alternateBucket(bucket, fingerprint), fingerprint)){
+			++messagesStored;
+			return true;
+		}
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for(int kick = 0; kick < MAX_KICKS; ++kick){
+
+			int slot = random.nextInt(BUCKET_SIZE);
+			int kicked = getFingerprint(bucket, slot);
+			setFingerprint(bucket, slot, fingerprint);
+
+			fingerprint = kicked;
+			bucket = alternateBucket(bucket, fingerprint);
+
+			if(insert(bucket, fingerprint)){
+				++messagesStored;
+				return true;
+			}
+		}
+
+		hasVictim = true;
+		victimBucket = bucket;
+		victimFingerprint = fingerprint;
+		++messagesStored;
+		return true;
+	}
+
+	/**
+	 * Adds the given collection to the filter.
+	 * @param messages messages to be added
+	 * @return number of messages that could not be added because the filter is full
+	 */
+	public long addAll(Collection<? extends CharSequence> messages){
+
+		long rejected = 0;
+		for(CharSequence message: messages){
+			if(!add(message)){
+				++rejected;
+			}
+		}
+
+		return rejected;
+	}
+
+	/**
+	 * Check if the given message is contained in the filter (false positives possible).
+	 * @param message message to be checked
+	 * @return true if the fingerprint of the message is found in one of its buckets
+	 */
+	public boolean contains(CharSequence message){
+
+		hashFunction.getHasher().hash(message, 2, hashes);
+		int fingerprint = fingerprint(hashes[1]);
+		long bucket = bucket(hashes);
+		long alternate = alternateBucket(bucket, fingerprint);
+
+		return find(bucket, fingerprint) >= 0 || find(alternate, fingerprint) >= 0
+				|| (hasVictim && victimFingerprint == fingerprint && (victimBucket == bucket || victimBucket == alternate));
+	}
+
+	/**
+	 * Removes one fingerprint of the given message from the filter. Only messages that have been added should be
+	 * removed, removing any other message might remove the fingerprint of a stored message and cause false negatives.
+	 * @param message message to be removed
+	 * @return true if a fingerprint of the message was found and removed
+	 */
+	public boolean remove(CharSequence message){
+
+		hashFunction.getHasher().hash(message, 2, hashes);
+		int fingerprint = fingerprint(hashes[1]);
+		long bucket = bucket(hashes);
+		long alternate = alternateBucket(bucket, fingerprint);
+
+		if(hasVictim && victimFingerprint == fingerprint && (victimBucket == bucket || victimBucket == alternate)){
+			hasVictim = false;
+			--messagesStored;
+			return true;
+		}
+
+		int slot = find(bucket, fingerprint);
+		if(slot < 0){
+			bucket = alternate;
+			slot = find(bucket, fingerprint);
+		}
+		if(slot < 0){
+			return false;
+		}
+
+		setFingerprint(bucket, slot, 0);
+		--messagesStored;
+
+		if(hasVictim && (insert(victimBucket, victimFingerprint)
+				|| insert(alternateBucket(victimBucket, victimFingerprint), victimFingerprint))){
+			hasVictim = false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Calculates theoretical percentage of false positive values returned by the contains method for the
+	 * current load of the filter: every occupied slot of the two buckets matches with the probability 1/(2^f - 1).
+	 * @return expected percentage of false positive values returned by the contains function
+	 */
+	public double expectedFalsePositives(){
+		return 1 - Math.pow(1 - 1.0 / fingerprintMask, 2 * BUCKET_SIZE * getLoadFactor());
+	}
+
+	/**
+	 * Removes all the fingerprints.
+	 */
+	public void clear(){
+
+		for(long[] page: pages){
+			Arrays.fill(page, 0L);
+		}
+		messagesStored = 0;
+		hasVictim = false;
+	}
+
+	/**
+	 * Returns a non-zero fingerprint, 0 marks an empty slot.
+	 */
+	private int fingerprint(int hash){
+
+		int fingerprint = (int)(hash & fingerprintMask);
+		return fingerprint == 0 ? 1 : fingerprint;
+	}
+
+	private long bucket(int[] hashes){
+		return IndexStrategy.FASTRANGE.position(hashes, 0, numberOfBuckets);
+	}
+
+	/**
+	 * Calculates the other bucket of a fingerprint as (hash(f) - i) mod n. Applying it twice returns the original
+	 * bucket for any number of buckets, not only for powers of two.
+	 */
+	private long alternateBucket(long bucket, int fingerprint){
+		return Math.floorMod((MurmurHash3.fmix64(fingerprint) >>> 1) - bucket, numberOfBuckets);
+	}
+
+	private boolean insert(long bucket, int fingerprint){
+
+		int slot = find(bucket, 0);
+		if(slot < 0){
+			return false;
+		}
+
+		setFingerprint(bucket, slot, fingerprint);
+		return true;
+	}
+
+	private int find(long bucket, int fingerprint){
+
+		for(int slot = 0; slot < BUCKET_SIZE; ++slot){
+			if(getFingerprint(bucket, slot) == fingerprint){
+				return slot;
+			}
+		}
+
+		return -1;
+	}
+
+	private int getFingerprint(long bucket, int slot){
+
+		long bit = (bucket * BUCKET_SIZE + slot) * fingerprintBits;
+		long word = bit >>> WORD_SHIFT;
+		int shift = (int)(bit & 63);
+
+		long value = getWord(word) >>> shift;
+		if(shift + fingerprintBits > Long.SIZE){
+			value |= getWord(word + 1) << (Long.SIZE - shift);
+		}
+
+		return (int)(value & fingerprintMask);
+	}
+
+	private void setFingerprint(long bucket, int slot, int fingerprint){
+
+		long bit = (bucket * BUCKET_SIZE + slot) * fingerprintBits;
+		long word = bit >>> WORD_SHIFT;
+		int shift = (int)(bit & 63);
+		long value = fingerprint & fingerprintMask;
+
+		setWord(word, (getWord(word) & ~(fingerprintMask << shift)) | (value << shift));
+		if(shift + fingerprintBits > Long.SIZE){
+			int written = Long.SIZE - shift;
+			setWord(word + 1, (getWord(word + 1) & ~(fingerprintMask >>> written)) | (value >>> written));
+		}
+	}
+
+	private long getWord(long word){
+		return pages[(int)(word >>> BitVector.PAGE_SHIFT)][(int)(word & BitVector.PAGE_MASK)];
+	}
+
+	private void setWord(long word, long value){
+		pages[(int)(word >>> BitVector.PAGE_SHIFT)][(int)(word & BitVector.PAGE_MASK)] = value;
+	}
+
+	/**
+	 * Returns the percentage of occupied slots.
+	 * @return number of stored messages divided by the number of slots
+	 */
+	public double getLoadFactor(){
+		return (double)messagesStored / getCapacity();
+	}
+
+	public long getCapacity(){
+		return numberOfBuckets * BUCKET_SIZE;
+	}
+
+	public long getMemoryUsage(){
+		long memory = 0;
+		for(long[] page: pages){
+			memory += (long)page.length * Long.BYTES;
+		}
+		return memory;
+	}
+
+	public long getNumberOfBuckets(){
+		return numberOfBuckets;
+	}
+
+	public int getFingerprintBits(){
+		return fingerprintBits;
+	}
+
+	public long getMessagesStored(){
+		return messagesStored;
+	}
+
+	public HashFunction getHashFunction(){
+		return hashFunction;
+	}
+
+	@Override
+	public String toString(){
+		return "Cuckoo " + hashFunction.getName() + " buckets: " + numberOfBuckets + " fingerprint bits: " + fingerprintBits;
+	}
+
+}
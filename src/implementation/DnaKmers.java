@@ -0,0 +1,174 @@
+package implementation;
+
+import java.util.Arrays;
+
+/**
+ * Adds and checks every k-mer of a DNA read, the substrings of k bases starting at every position of the read.
+ * Bases are packed 2 bits each (A=0, C=1, G=2, T=3, case insensitive) into a long that is rolled one base per step,
+ * so a read of length n costs O(n) no matter how large k is and no object is created per k-mer.
+ * The packed value of a k-mer is the message stored to the hash-table, hashed as a long value.
+ * With the canonical option a k-mer and its reverse complement are stored as the same message, the smaller of
+ * their packed values, so a read and its reverse complement strand contain the same k-mers.
+ * Windows holding any other character, such as N, are skipped.
+ * Thread-safe, an instance holds only its parameters.
+ *
+ * @author Bruno
+ *
+ */
+public class DnaKmers {
+
+	public static final int MAX_K = 32;
+
+	private static final byte[] CODES = new byte[128];
+
+	static {
+		Arrays.fill(CODES, (byte)-1);
+		CODES['A'] = CODES['a'] = 0;
+		CODES['C'] = CODES['c'] = 1;
+		CODES['G'] = CODES['g'] = 2;
+		CODES['T'] = CODES['t'] = 3;
+	}
+
+	private int k;
+	private boolean canonical;
+	private long mask;
+	private int complementShift;
+
+	/**
+	 * Default constructor. Takes the length of the k-mers and if k-mers are stored in the canonical form.
+	 * @param k number of bases of a k-mer, from 1 to 32
+	 * @param canonical true to store a k-mer and its reverse complement as the same message
+	 */
+	public DnaKmers(int k, boolean canonical){
+
+		if(k < 1 || k > MAX_K){
+			throw new IllegalArgumentException("Length of a k-mer must be between 1 and " + MAX_K + ": " + k);
+		}
+
+		this.k = k;
+		this.canonical = canonical;
+		this.mask = k == MAX_K ? -1L : (1L << (2 * k)) - 1;
+		this.complementShift = 2 * (k - 1);
+	}
+
+	/**
+	 * Receives the packed k-mers of a read.
+	 */
+	@FunctionalInterface
+	private interface KmerConsumer {
+
+		/**
+		 * @param start index of the first base of the k-mer in the read
+		 * @param kmer packed value of the k-mer
+		 */
+		void accept(int start, long kmer);
+	}
+
+	/**
+	 * Adds every k-mer of the read to the hash-table.
+	 * @param hashTable hash-table to add the k-mers to
+	 * @param read bases of the read
+	 * @return number of k-mers added
+	 */
+	public long addAll(HashTable hashTable, CharSequence read){
+		return scan(read, (start, kmer) -> hashTable.add(kmer));
+	}
+
+	/**
+	 * Counts the k-mers of the read contained in the hash-table (false positives possible).
+	 * @param hashTable hash-table to check
+	 * @param read bases of the read
+	 * @return number of contained k-mers
+	 */
+	public long countContained(HashTable hashTable, CharSequence read){
+
+		long[] contained = new long[1];
+		scan(read, (start, kmer) -> {
+			if(hashTable.contains(kmer)){
+				contained[0]++;
+			}
+		});
+
+		return contained[0];
+	}
+
+	/**
+	 * Checks every k-mer of the read. The result for the k-mer starting at the index i of the read is written
+	 * to results[i], windows holding a character other than a base are not contained.
+	 * @param hashTable hash-table to check
+	 * @param read bases of the read
+	 * @param results array to write the results to, at least read.length() - k + 1 long
+	 */
+	public void containsAll(HashTable hashTable, CharSequence read, boolean[] results){
+
+		Arrays.fill(results, 0, Math.max(0, read.length() - k + 1), false);
+		scan(read, (start, kmer) -> results[start] = hashTable.contains(kmer));
+	}
+
+	/**
+	 * Packs a single k-mer into the message stored to the hash-table, it can be checked with HashTable.contains(long).
+	 * @param kmer bases of the k-mer, exactly k of them
+	 * @return packed value of the k-mer, in the canonical form if requested
+	 * @throws IllegalArgumentException if the length is not k or a character is not a base
+	 */
+	public long encode(CharSequence kmer){
+
+		if(kmer.length() != k){
+			throw new IllegalArgumentException("Expected a k-mer of " + k + " bases: " + kmer);
+		}
+
+		long[] packed = new long[1];
+		if(scan(kmer, (start, value) -> packed[0] = value) == 0){
+			throw new IllegalArgumentException("Not a DNA k-mer: " + kmer);
+		}
+
+		return packed[0];
+	}
+
+	/**
+	 * Rolls over the read one base per step, keeping the packed k-mer ending at the current base and its
+	 * reverse complement, and passes every complete k-mer to the consumer.
+	 * @return number of k-mers passed to the consumer
+	 */
+	private long scan(CharSequence read, KmerConsumer consumer){
+
+		long forward = 0;
+		long reverse = 0;
+		int valid = 0;
+		long kmers = 0;
+
+		for(int i = 0, length = read.length(); i < length; ++i){
+
+			char base = read.charAt(i);
+			int code = base < CODES.length ? CODES[base] : -1;
+			if(code < 0){
+				valid = 0;
+				continue;
+			}
+
+			forward = ((forward << 2) | code) & mask;
+			reverse = (reverse >>> 2) | ((long)(3 - code) << complementShift);
+
+			if(++valid >= k){
+				consumer.accept(i - k + 1, canonical && Long.compareUnsigned(reverse, forward) < 0 ? reverse : forward);
+				kmers++;
+			}
+		}
+
+		return kmers;
+	}
+
+	public int getK(){
+		return k;
+	}
+
+	public boolean isCanonical(){
+		return canonical;
+	}
+
+	@Override
+	public String toString(){
+		return (canonical ? "canonical " : "") + k + "-mers";
+	}
+
+}
@@ -1,87 +1,419 @@
 package implementation;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
 import hashfunctions.FNVwithLCGHash;
+import hashfunctions.Hasher;
 import hashfunctions.MurmurHash3;
 import hashfunctions.SHA256Hash;
+import hashfunctions.Utf8;
+import hashfunctions.WyHash;
+import hashfunctions.XXHash64;
 
 
 /**
  * Static class that uses hash function implementing classes and delegates their results for further usage.
+ * Every method writes its hashes to an array given by the caller. Buffers and hash function instances 
+ * the methods need are kept per thread and reused, so hashing does not allocate memory.
+ * Every hash function has overloads for character sequences, byte array ranges and byte buffers, 
+ * a character sequence gets the same hashes as its UTF-8 encoding.
  * 
  * @author Bruno
  *
  */
 public class HashFunctions {
 	
-	private static int m = 31415926;
+	private static final int LANES = 16;
+	
+	private static final ThreadLocal<HashingState> state = ThreadLocal.withInitial(HashingState::new);
+	
+	/**
+	 * Buffers and hash function instances used by a single thread.
+	 */
+	private static class HashingState {
+		
+		private byte[] bytes = new byte[64];
+		private byte[] longBytes = new byte[8];
+		private MurmurHash3.LongPair pair = new MurmurHash3.LongPair();
+		private MessageDigest sha256;
+		private byte[] digest = new byte[SHA256Hash.DIGEST_LENGTH];
+		private int[] lanes = new int[LANES];
+		
+		/**
+		 * Encodes the message to UTF-8 into the reused byte buffer, grows the buffer if needed.
+		 * @param message message to encode
+		 * @return number of bytes of the encoded message
+		 */
+		private int encode(CharSequence message){
+			int maxLength = Utf8.maxLength(message.length());
+			if(bytes.length < maxLength){
+				bytes = new byte[Math.max(maxLength, bytes.length * 2)];
+			}
+			return Utf8.encode(message, bytes);
+		}
+		
+		private MessageDigest sha256(){
+			if(sha256 == null){
+				try {
+					sha256 = MessageDigest.getInstance("SHA-256");
+				} catch (NoSuchAlgorithmException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			return sha256;
+		}
+	}
+	
+	/**
+	 * Calculates requested number of hashes for a long value by hashing its 8 bytes in the little endian order 
+	 * with the given hash function.
+	 * @param value value to generate the hashes from
+	 * @param bytes hash function over byte arrays
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void hashLong(long value, Hasher.Bytes bytes, int k, int[] hashes){
+		
+		byte[] buffer = state.get().longBytes;
+		for(int i = 0; i < 8; ++i){
+			buffer[i] = (byte)(value >>> (8 * i));
+		}
+		
+		bytes.hash(buffer, 0, 8, k, hashes);
+	}
+	
+	private static int murmur3hash(CharSequence message,int seed){
+		return MurmurHash3.murmurhash3_x86_32(message, 0, message.length(), seed);
+	}
+	
+	/**
+	 * Calculates requested number of hashes for a given message using Murmur3 hash function.
+	 * @param message message to generate the hasehs from
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void murmur3(CharSequence message,int k,int[] hashes){
+		
+		int seed = 0;
+		
+		for(int i = 0; i < k; ++i){
+			seed = HashFunctions.murmur3hash(message,seed);
+			hashes[i] = seed;
+		}
+	}
+	
+	/**
+	 * Calculates requested number of hashes for a range of a byte array using Murmur3 hash function.
+	 * @param data array holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void murmur3(byte[] data, int offset, int length, int k, int[] hashes){
+		
+		int seed = 0;
+		
+		for(int i = 0; i < k; ++i){
+			seed = MurmurHash3.murmurhash3_x86_32(data, offset, length, seed);
+			hashes[i] = seed;
+		}
+	}
+	
+	/**
+	 * Calculates requested number of hashes for each of count messages of equal length using Murmur3 hash function.
+	 * The messages are hashed in groups of 16, each group in one interleaved pass per hash, 
+	 * the hashes are the same as the ones of the other Murmur3 methods.
+	 * @param data array holding the messages
+	 * @param offset index of the first byte of the first message
+	 * @param length number of bytes of every message
+	 * @param count number of messages
+	 * @param k number of hashes wanted per message
+	 * @param hashes array to write the hashes to, the hashes of the message j are written to the indexes j*k to j*k+k-1
+	 */
+	public static void murmur3(byte[] data, int offset, int length, int count, int k, int[] hashes){
+		
+		int[] lanes = state.get().lanes;
+		
+		for(int first = 0; first < count; first += LANES){
+			
+			int n = Math.min(LANES, count - first);
+			Arrays.fill(lanes, 0, n, 0);
+			
+			for(int i = 0; i < k; ++i){
+				MurmurHash3.murmurhash3_x86_32(data, offset + first * length, length, n, lanes, lanes);
+				for(int j = 0; j < n; ++j){
+					hashes[(first + j) * k + i] = lanes[j];
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Calculates requested number of hashes for the remaining bytes of a buffer using Murmur3 hash function.
+	 * @param data buffer holding the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void murmur3(ByteBuffer data, int k, int[] hashes){
+		
+		int seed = 0;
+		
+		for(int i = 0; i < k; ++i){
+			seed = MurmurHash3.murmurhash3_x86_32(data, data.position(), data.remaining(), seed);
+			hashes[i] = seed;
+		}
+	}
+	
+	/**
+	 * Calculates requested number of hashes for a given message using a single pass of the 128 bit Murmur3 hash function.
+	 * The two 64 bit halves of the hash are combined by enhanced double hashing (Kirsch-Mitzenmacher with a cubic term),
+	 * so the message is hashed only once no matter how many hashes are requested.
+	 * @param message message to generate the hasehs from
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void murmur3_128(CharSequence message, int k, int[] hashes){
+		
+		HashingState s = state.get();
+		int length = s.encode(message);
+		MurmurHash3.murmurhash3_x64_128(s.bytes, 0, length, 0, s.pair);
+		doubleHashing(s.pair.val1, s.pair.val2, k, hashes);
+	}
+	
+	/**
+	 * Calculates requested number of hashes for a range of a byte array using a single pass of the 128 bit Murmur3 hash function.
+	 * @param data array holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void murmur3_128(byte[] data, int offset, int length, int k, int[] hashes){
+		
+		MurmurHash3.LongPair pair = state.get().pair;
+		MurmurHash3.murmurhash3_x64_128(data, offset, length, 0, pair);
+		doubleHashing(pair.val1, pair.val2, k, hashes);
+	}
+	
+	/**
+	 * Calculates requested number of hashes for the remaining bytes of a buffer using a single pass of the 128 bit Murmur3 hash function.
+	 * @param data buffer holding the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void murmur3_128(ByteBuffer data, int k, int[] hashes){
+		
+		MurmurHash3.LongPair pair = state.get().pair;
+		MurmurHash3.murmurhash3_x64_128(data, data.position(), data.remaining(), 0, pair);
+		doubleHashing(pair.val1, pair.val2, k, hashes);
+	}
+	
+	/**
+	 * Calculates requested number of hashes for a given message using a single pass of the 64 bit xxHash.
+	 * The message is encoded to UTF-8 while it is hashed, the hashes are derived by enhanced double hashing.
+	 * @param message message to generate the hasehs from
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void xxHash64(CharSequence message, int k, int[] hashes){
+		doubleHashing(XXHash64.hash(message, 0), k, hashes);
+	}
+	
+	/**
+	 * Calculates requested number of hashes for a range of a byte array using a single pass of the 64 bit xxHash.
+	 * @param data array holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void xxHash64(byte[] data, int offset, int length, int k, int[] hashes){
+		doubleHashing(XXHash64.hash(data, offset, length, 0), k, hashes);
+	}
 	
-	private static int murmur3hash(String message,int seed){
-		return MurmurHash3.murmurhash3_x86_32(message, 0, message.getBytes().length, seed);
+	/**
+	 * Calculates requested number of hashes for the remaining bytes of a buffer using a single pass of the 64 bit xxHash.
+	 * @param data buffer holding the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void xxHash64(ByteBuffer data, int k, int[] hashes){
+		doubleHashing(XXHash64.hash(data, data.position(), data.remaining(), 0), k, hashes);
 	}
 	
 	/**
-	 * Returns requested number of hashes for a given message using Murmur3 hash function.
+	 * Calculates requested number of hashes for a given message using a single pass of wyhash.
+	 * The message is encoded to UTF-8 while it is hashed, the hashes are derived by enhanced double hashing.
 	 * @param message message to generate the hasehs from
 	 * @param k number of hashes wanted
-	 * @return array holding k hash results
-	 */
-	public static int[] murmur3(String message,int k){
-		 
-		int[] hashes = new int[k];
-	        int seed = 0;
-	        int pos = 0;
-	    
-	        while (pos < k) {
-	        
-	        	seed = HashFunctions.murmur3hash(message,seed);
-	            int hash = Math.abs(seed);
-	            
-	            if (hash != -1) {
-	                hashes[pos++] = hash;
-	            }
-	        }
-	        
-	        return hashes;
-	}
-	
-	/**
-	 * Returns requested number of hashes for a given message using SHA-256 hash function.
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void wyhash(CharSequence message, int k, int[] hashes){
+		doubleHashing(WyHash.hash(message, 0), k, hashes);
+	}
+	
+	/**
+	 * Calculates requested number of hashes for a range of a byte array using a single pass of wyhash.
+	 * @param data array holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void wyhash(byte[] data, int offset, int length, int k, int[] hashes){
+		doubleHashing(WyHash.hash(data, offset, length, 0), k, hashes);
+	}
+	
+	/**
+	 * Calculates requested number of hashes for the remaining bytes of a buffer using a single pass of wyhash.
+	 * @param data buffer holding the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void wyhash(ByteBuffer data, int k, int[] hashes){
+		doubleHashing(WyHash.hash(data, data.position(), data.remaining(), 0), k, hashes);
+	}
+	
+	/**
+	 * Derives k hashes from a 64 bit hash by enhanced double hashing, the second hash is the 64 bit hash 
+	 * remixed with the Murmur3 finalizer.
+	 * @param hash 64 bit hash
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	private static void doubleHashing(long hash, int k, int[] hashes){
+		doubleHashing(hash, MurmurHash3.fmix64(hash ^ 0x9E3779B97F4A7C15L), k, hashes);
+	}
+	
+	/**
+	 * Derives k hashes from the two halves of a 128 bit hash by enhanced double hashing.
+	 * @param h1 first half of the hash
+	 * @param h2 second half of the hash
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	private static void doubleHashing(long h1, long h2, int k, int[] hashes){
+		
+		for(int i = 0; i < k; ++i){
+			
+			hashes[i] = (int)(h1 >>> 32);
+			h1 += h2;
+			h2 += i;
+		}
+	}
+	
+	/**
+	 * Calculates requested number of hashes for a given message using SHA-256 hash function.
 	 * @param message message to generate the hasehs from
 	 * @param k number of hashes wanted
-	 * @return array holding k hash results
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void SHA256(CharSequence message,int k,int[] hashes){
+		HashingState s = state.get();
+		int length = s.encode(message);
+		SHA256Hash.hashCrypt(s.sha256(), s.bytes, 0, length, k, hashes, s.digest);
+	}
+	
+	/**
+	 * Calculates requested number of hashes for a range of a byte array using SHA-256 hash function.
+	 * @param data array holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
 	 */
-	public static int[] SHA256(String message,int k){
-		return SHA256Hash.hashCrypt(message.getBytes(), m, k);
+	public static void SHA256(byte[] data, int offset, int length, int k, int[] hashes){
+		HashingState s = state.get();
+		SHA256Hash.hashCrypt(s.sha256(), data, offset, length, k, hashes, s.digest);
 	}
 	
 	/**
-	 * Returns requested number of hashes for a given message using FNV hash function with LCG hash variation method.
+	 * Calculates requested number of hashes for the remaining bytes of a buffer using SHA-256 hash function.
+	 * @param data buffer holding the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void SHA256(ByteBuffer data, int k, int[] hashes){
+		HashingState s = state.get();
+		SHA256Hash.hashCrypt(s.sha256(), data, k, hashes, s.digest);
+	}
+	
+	/**
+	 * Calculates requested number of hashes for a given message using FNV hash function with LCG hash variation method.
 	 * @param message message to generate the hasehs from
 	 * @param k number of hashes wanted
-	 * @return array holding k hash results
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void FNVwithLCG(CharSequence message, int k, int[] hashes){
+		HashingState s = state.get();
+		int length = s.encode(message);
+		FNVwithLCGHash.hashSimpleLCG(s.bytes, 0, length, k, hashes);
+	}
+	
+	/**
+	 * Calculates requested number of hashes for a range of a byte array using FNV hash function with LCG hash variation method.
+	 * @param data array holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
 	 */
-	public static int[] FNVwithLCG(String message, int k){
-		return FNVwithLCGHash.hashSimpleLCG(message.getBytes(), m, k);
+	public static void FNVwithLCG(byte[] data, int offset, int length, int k, int[] hashes){
+		FNVwithLCGHash.hashSimpleLCG(data, offset, length, k, hashes);
 	}
 	
 	/**
-	 * Returns requested number of hashes for a given message using Java Random class number generator.
+	 * Calculates requested number of hashes for the remaining bytes of a buffer using FNV hash function with LCG hash variation method.
+	 * @param data buffer holding the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void FNVwithLCG(ByteBuffer data, int k, int[] hashes){
+		FNVwithLCGHash.hashSimpleLCG(data, k, hashes);
+	}
+	
+	/**
+	 * Calculates requested number of hashes for a given message using Java Random class number generator.
 	 * @param message message to generate the hasehs from
 	 * @param k number of hashes wanted
-	 * @return array holding k hash results
+	 * @param hashes array to write the k hash results to
 	 */
-	public static int[] Random(String message, int k){
+	public static void Random(CharSequence message, int k, int[] hashes){
 		
-		java.util.Random r = new java.util.Random(System.currentTimeMillis());
-		int[] hashes = new int[k];
+		ThreadLocalRandom r = ThreadLocalRandom.current();
 		
 		for(int i=0; i<k;++i){		
 			hashes[i] = r.nextInt();
 		}
-		
-		return hashes;
+	}
+	
+	/**
+	 * Calculates requested number of random hashes, the message bytes are ignored.
+	 * @param data array holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void Random(byte[] data, int offset, int length, int k, int[] hashes){
+		Random((CharSequence)null, k, hashes);
+	}
+	
+	/**
+	 * Calculates requested number of random hashes, the buffer bytes are ignored.
+	 * @param data buffer holding the message
+	 * @param k number of hashes wanted
+	 * @param hashes array to write the k hash results to
+	 */
+	public static void Random(ByteBuffer data, int k, int[] hashes){
+		Random((CharSequence)null, k, hashes);
 	}
 		
 }
 	
-	
\ No newline at end of file
+	
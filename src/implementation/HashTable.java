@@ -1,8 +1,13 @@
 package implementation;
 
+import java.nio.ByteBuffer;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import hashfunctions.HashFunction;
+import hashfunctions.Hasher;
 
 /**
  *Implementation of the Bloom's original model of a hash-table which allows adding an element and testing 
@@ -10,15 +15,24 @@ import hashfunctions.HashFunction;
  *Implementation is effective in the terms of memory usage, and has variable hashing functions which allow
  *different performances in other factors.
  *Contains methods which can calculate theoretical percentages of expected false positives and number of zeroes.  
+ *The hashes of a message are mapped to bit indexes by an IndexStrategy, chosen by the size when not given.
+ *Not thread-safe, ConcurrentHashTable should be used when messages are added from multiple threads.
  * @author Bruno
  *
  */
 public class HashTable {
-	private BitSet table;
-	private int size;
+	
+	private static final int BATCH_CHUNK = 1024;
+	static final String CLASSIC_LAYOUT = "classic";
+	
+	private BitVector table;
+	private long size;
 	private int hashesPerMessage;
-	private int messagesStored = 0;	
+	private long messagesStored = 0;	
 	private HashFunction hashFunction;
+	private Hasher hasher;
+	private IndexStrategy indexStrategy;
+	private int[] hashes;
 
 
 
@@ -26,16 +40,85 @@ public class HashTable {
 	/**
 	 * Default constructor. Takes the size of the hash-table, and number of hashes that will be done for each message. 
 	 * Also takes a hash function the Bloom filter will use for generating addresses.
+	 * The size is not limited to Integer.MAX_VALUE, the hash-table is backed by a long indexed BitVector.
+	 * Hashes are mapped to bit indexes by the default strategy for the size.
+	 * @param size size of the hash-table
+	 * @param hashesPerMessage number of hashes per message
+	 * @param hashFunction hash function that will generate addresses
+	 */
+	public HashTable(long size, int hashesPerMessage, HashFunction hashFunction){
+		this(size, hashesPerMessage, hashFunction, IndexStrategy.forSize(size));
+	}
+	
+	/**
+	 * Constructor that also takes the strategy of mapping the hashes to bit indexes.
+	 * @param size size of the hash-table
+	 * @param hashesPerMessage number of hashes per message
+	 * @param hashFunction hash function that will generate addresses
+	 * @param indexStrategy strategy of mapping the hashes to bit indexes
+	 * @throws IllegalArgumentException if the strategy does not support the size
+	 */
+	public HashTable(long size, int hashesPerMessage, HashFunction hashFunction, IndexStrategy indexStrategy){
+		this(new PagedBitVector(size), hashesPerMessage, hashFunction, indexStrategy);
+	}
+	
+	/**
+	 * Constructor that creates a hash-table hashed by HMAC-SHA-256 with the given secret key. Nobody without
+	 * the key can tell which bits a message sets, so the false positives can not be chosen on purpose.
 	 * @param size size of the hash-table
 	 * @param hashesPerMessage number of hashes per message
+	 * @param indexStrategy strategy of mapping the hashes to bit indexes
+	 * @param key secret key of the hash function
+	 * @throws IllegalArgumentException if the key is empty or the strategy does not support the size
+	 */
+	public HashTable(long size, int hashesPerMessage, IndexStrategy indexStrategy, byte[] key){
+		this(size, hashesPerMessage, HashFunction.HMAC_SHA256, indexStrategy);
+		this.hasher = HashFunction.HMAC_SHA256.keyed(key);
+	}
+	
+	/**
+	 * Constructor for the extending classes which need a specific bit vector implementation.
+	 * The size of the hash-table is the size of the given bit vector.
+	 * @param table bit vector that will store the hash-table bits
+	 * @param hashesPerMessage number of hashes per message
+	 * @param hashFunction hash function that will generate addresses
+	 */
+	protected HashTable(BitVector table, int hashesPerMessage, HashFunction hashFunction){
+		this(table, hashesPerMessage, hashFunction, IndexStrategy.forSize(table.getSize()));
+	}
+	
+	/**
+	 * Constructor for the extending classes which need a specific bit vector implementation and index strategy.
+	 * @param table bit vector that will store the hash-table bits
+	 * @param hashesPerMessage number of hashes per message
 	 * @param hashFunction hash function that will generate addresses
+	 * @param indexStrategy strategy of mapping the hashes to bit indexes
+	 * @throws IllegalArgumentException if the strategy does not support the size
 	 */
-	public HashTable(int size, int hashesPerMessage, HashFunction hashFunction){
-		this.size = size;
+	protected HashTable(BitVector table, int hashesPerMessage, HashFunction hashFunction, IndexStrategy indexStrategy){
+		this(table, hashesPerMessage, hashFunction, indexStrategy, null);
+	}
+	
+	/**
+	 * Constructor for the extending classes which need a specific bit vector implementation, index strategy and 
+	 * possibly a key of a keyed hash function.
+	 * @param table bit vector that will store the hash-table bits
+	 * @param hashesPerMessage number of hashes per message
+	 * @param hashFunction hash function that will generate addresses
+	 * @param indexStrategy strategy of mapping the hashes to bit indexes
+	 * @param key secret key of a keyed hash function, null for other hash functions
+	 * @throws IllegalArgumentException if the strategy does not support the size or the key is empty
+	 * @throws UnsupportedOperationException if a key is given for a hash function that is not keyed
+	 */
+	protected HashTable(BitVector table, int hashesPerMessage, HashFunction hashFunction, IndexStrategy indexStrategy, byte[] key){
+		indexStrategy.check(table.getSize());
+		this.table = table;
+		this.size = table.getSize();
 		this.hashesPerMessage = hashesPerMessage;
-		table = new BitSet(size);
 		this.hashFunction = hashFunction;
-	
+		this.hasher = key == null ? hashFunction.getHasher() : hashFunction.keyed(key);
+		this.indexStrategy = indexStrategy;
+		this.hashes = new int[indexStrategy.hashCount(hashesPerMessage)];
 	}
 	
 	/**
@@ -47,32 +130,134 @@ public class HashTable {
 	 * 								the hash table
 	 * @param hashFunction hash function that will generate addresses
 	 */
-	public HashTable(int messagesToBeStored, double requestedFPPercentage, HashFunction hashFunction){
-		this((int)(-1*messagesToBeStored*Math.log(requestedFPPercentage)/Math.pow(Math.log(2),2)),
-				(int)(-1*Math.log(requestedFPPercentage)/Math.log(2)),
+	public HashTable(long messagesToBeStored, double requestedFPPercentage, HashFunction hashFunction){
+		this(optimalSize(messagesToBeStored, requestedFPPercentage),
+				optimalHashesPerMessage(requestedFPPercentage),
 				hashFunction);
 	}
 	
+	/**
+	 * Calculates the size of a hash-table that reaches the requested theoretical percentage of false positives 
+	 * after the given number of messages is stored.
+	 * @param messagesToBeStored number of messages that are going to be stored to the bloom filter 
+	 * @param requestedFPPercentage theoretical false positive percentage
+	 * @return size of the hash-table
+	 */
+	public static long optimalSize(long messagesToBeStored, double requestedFPPercentage){
+		return (long)(-1*messagesToBeStored*Math.log(requestedFPPercentage)/Math.pow(Math.log(2),2));
+	}
+	
+	/**
+	 * Calculates the number of hashes per message of a hash-table that reaches the requested theoretical 
+	 * percentage of false positives when sized by the optimalSize method.
+	 * @param requestedFPPercentage theoretical false positive percentage
+	 * @return number of hashes per message
+	 */
+	public static int optimalHashesPerMessage(double requestedFPPercentage){
+		return (int)(-1*Math.log(requestedFPPercentage)/Math.log(2));
+	}
+	
 	
 	
 	/**
 	 * Adds an element to the hash-table. 
 	 * Adding an element is implemented in a way that the element is feed to a previously
 	 * specified number of hash functions, then bits on the locations determined by the hashes are set to 1.
+	 * The characters are hashed as their UTF-8 encoding without building a String or a byte array.
 	 * @param message message to be stored to the hash-table
 	 */
-	public void add(String message){
+	public void add(CharSequence message){
 		
-		int hashes[] = hashFunction.getHashFunction().apply(message, hashesPerMessage);
+		int hashes[] = hashBuffer(hashCount());
+		hasher.hash(message, hashCount(), hashes);
+		addHashes(hashes);
+	}
+	
+	/**
+	 * Adds a message held in a range of a byte array to the hash-table, the bytes are hashed in place.
+	 * @param data array holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 */
+	public void add(byte[] data, int offset, int length){
 		
-		for(int hash: hashes){
+		int hashes[] = hashBuffer(hashCount());
+		hasher.hash(data, offset, length, hashCount(), hashes);
+		addHashes(hashes);
+	}
+	
+	/**
+	 * Adds the bytes of the buffer between its position and limit to the hash-table. 
+	 * The bytes are hashed in place and the position of the buffer is not changed.
+	 * @param data buffer holding the message
+	 */
+	public void add(ByteBuffer data){
 		
-			if(hash<0) hash*=-1;
-			table.set(hash%size);
+		int hashes[] = hashBuffer(hashCount());
+		hasher.hash(data, hashCount(), hashes);
+		addHashes(hashes);
+	}
+	
+	/**
+	 * Adds a long value to the hash-table.
+	 * @param value value to be stored to the hash-table
+	 */
+	public void add(long value){
 		
+		int hashes[] = hashBuffer(hashCount());
+		hasher.hash(value, hashCount(), hashes);
+		addHashes(hashes);
+	}
+	
+	/**
+	 * Adds a message hashed beforehand to the hash-table, the message is not hashed again.
+	 * @param key hashed message, hashed by the hasher of this hash-table
+	 * @throws IllegalArgumentException if the key was hashed by a different hasher or holds too few hashes
+	 */
+	public void add(HashedKey key){
+		
+		long[] positions = key.positions(this);
+		for(int i = 0; i < hashesPerMessage; ++i){
+			table.set(positions[i]);
 		}
 		
-		messagesStored++;
+		messagesAdded(1);
+	}
+	
+	/**
+	 * Hashes a message once for adding it to or checking it against any number of hash-tables with the same
+	 * hasher and number of hashes as this one.
+	 * @param message message to hash
+	 * @return hashed message
+	 */
+	public HashedKey hashKey(CharSequence message){
+		
+		int[] keyHashes = new int[hashCount()];
+		hasher.hash(message, keyHashes.length, keyHashes);
+		return new HashedKey(hasher, keyHashes);
+	}
+	
+	/**
+	 * Sets the bits on the locations determined by the hashes of a message to 1 and counts the message as stored.
+	 * @param hashes hashes of the message, hashCount() of them
+	 */
+	protected void addHashes(int[] hashes){
+		
+		for(int i = 0; i < hashesPerMessage; ++i){
+		
+			table.set(position(hashes, i));
+		
+		}
+		
+		messagesAdded(1);
+	}
+	
+	/**
+	 * Counts messages as stored, called after the bits of the messages are set.
+	 * @param count number of messages stored
+	 */
+	protected void messagesAdded(long count){
+		messagesStored += count;
 	}
 	
 	/**
@@ -80,13 +265,311 @@ public class HashTable {
 	 * method on each member of the collection.
 	 * @param messages messages to be added to the hash table
 	 */
-	public void addAll(Collection<String> messages){
-		for(String message: messages){
+	public void addAll(Collection<? extends CharSequence> messages){
+		for(CharSequence message: messages){
 			add(message);
 		}
 	}
 	
 	
+	/**
+	 * Adds the given collection to the hash-table using all the threads of the given pool.
+	 * The collection is split with its spliterator, every worker thread fills its own empty copy of the 
+	 * hash-table and the copies are merged into this hash-table by a bitwise OR of their words.
+	 * Every worker needs memory for a whole copy of the hash-table while the messages are added.
+	 * @param messages messages to be added to the hash table
+	 * @param pool pool to run the workers in
+	 */
+	public void addAllParallel(Collection<? extends CharSequence> messages, ForkJoinPool pool){
+		ParallelBuild.addAll(this, messages.spliterator(), pool);
+	}
+	
+	/**
+	 * Adds the given collection to the hash-table using the common fork-join pool.
+	 * @param messages messages to be added to the hash table
+	 */
+	public void addAllParallel(Collection<? extends CharSequence> messages){
+		addAllParallel(messages, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Adds all messages of the given hash-table to this hash-table by a bitwise OR of their bit vectors.
+	 * Afterwards this hash-table contains every message contained by either of them.
+	 * The number of stored messages becomes the sum of both, messages stored in both are counted twice.
+	 * @param other hash-table to add the messages from
+	 * @throws IllegalArgumentException if the hash-tables are not compatible
+	 */
+	public void union(HashTable other){
+		
+		checkCompatible(other);
+		
+		for(long i = 0; i < table.getNumberOfWords(); ++i){
+			table.orWord(i, other.table.getWord(i));
+		}
+		
+		messagesAdded(other.getMessagesStored());
+	}
+	
+	/**
+	 * Keeps only the bits set in both hash-tables by a bitwise AND of their bit vectors.
+	 * Afterwards this hash-table contains every message contained by both of them, with a false positive
+	 * percentage at most as high as the one of either hash-table. 
+	 * The number of stored messages becomes the smaller of both numbers.
+	 * @param other hash-table to intersect with
+	 * @throws IllegalArgumentException if the hash-tables are not compatible
+	 */
+	public void intersect(HashTable other){
+		
+		checkCompatible(other);
+		
+		for(long i = 0; i < table.getNumberOfWords(); ++i){
+			table.andWord(i, other.table.getWord(i));
+		}
+		
+		messagesAdded(Math.min(getMessagesStored(), other.getMessagesStored()) - getMessagesStored());
+	}
+	
+	/**
+	 * Checks if the bit vectors of the hash-tables can be combined: the hash-tables need to have the same size, 
+	 * number of hashes per message, hash function and key, index strategy and layout of the bits.
+	 * @param other hash-table to check
+	 * @throws IllegalArgumentException if the hash-tables are not compatible
+	 */
+	private void checkCompatible(HashTable other){
+		
+		if(size != other.size || hashesPerMessage != other.hashesPerMessage || hashFunction != other.hashFunction 
+				|| !hasher.equals(other.hasher) || indexStrategy != other.indexStrategy || !layout().equals(other.layout())){
+			throw new IllegalArgumentException("Incompatible hash-tables: " + this + ", " + other);
+		}
+	}
+	
+	/**
+	 * Describes how the bits of a message are placed in the bit vector, hash-tables with different layouts
+	 * can not be combined.
+	 * @return name of the layout
+	 */
+	protected String layout(){
+		return CLASSIC_LAYOUT;
+	}
+	
+	/**
+	 * Creates an empty hash-table with the same size, number of hashes per message, hash function and key, 
+	 * index strategy and layout as this one, stored in memory.
+	 * @return empty hash-table compatible with this one
+	 */
+	protected HashTable emptyCopy(){
+		
+		HashTable copy = new HashTable(size, hashesPerMessage, hashFunction, indexStrategy);
+		copy.hasher = hasher;
+		return copy;
+	}
+	
+	/**
+	 * Adds the given collection to the hash-table in two passes over chunks of the collection.
+	 * The first pass hashes every message of the chunk into a buffer of bit positions, the second pass
+	 * sets the bits. Separating hashing from the memory accesses lets the processor overlap the
+	 * cache misses of consecutive positions instead of waiting for each one between two hash calculations.
+	 * @param messages messages to be added to the hash table
+	 */
+	public void addBatch(Collection<? extends CharSequence> messages){
+		
+		int k = getHashesPerMessage();
+		long[] positions = new long[Math.min(messages.size(), BATCH_CHUNK) * k];
+		Iterator<? extends CharSequence> iterator = messages.iterator();
+		
+		while(iterator.hasNext()){
+			
+			int count = 0;
+			for(; count < BATCH_CHUNK && iterator.hasNext(); ++count){
+				positions(iterator.next(), positions, count * k);
+			}
+			
+			for(int i = 0, end = count * k; i < end; ++i){
+				table.set(positions[i]);
+			}
+			
+			messagesAdded(count);
+		}
+	}
+	
+	/**
+	 * Checks every message of the given list in two passes over chunks of the list, 
+	 * the same way as the addBatch method does. The result for the message with the index i 
+	 * is written to results[i].
+	 * @param messages messages to check the hash-table for
+	 * @param results array to write the results to, at least as long as the list of messages
+	 */
+	public void containsBatch(List<? extends CharSequence> messages, boolean[] results){
+		
+		int k = getHashesPerMessage();
+		long[] positions = new long[Math.min(messages.size(), BATCH_CHUNK) * k];
+		Iterator<? extends CharSequence> iterator = messages.iterator();
+		int done = 0;
+		
+		while(iterator.hasNext()){
+			
+			int count = 0;
+			for(; count < BATCH_CHUNK && iterator.hasNext(); ++count){
+				positions(iterator.next(), positions, count * k);
+			}
+			
+			for(int i = 0; i < count; ++i){
+				results[done + i] = containsPositions(positions, i * k);
+			}
+			
+			done += count;
+		}
+	}
+	
+	/**
+	 * Checks every message of the given list the same way as the containsBatch method with a boolean array does.
+	 * The bit with the index i of the result is set if the message with the index i is contained, cleared otherwise.
+	 * @param messages messages to check the hash-table for
+	 * @param results bit set to write the results to
+	 */
+	public void containsBatch(List<? extends CharSequence> messages, BitSet results){
+		
+		int k = getHashesPerMessage();
+		long[] positions = new long[Math.min(messages.size(), BATCH_CHUNK) * k];
+		Iterator<? extends CharSequence> iterator = messages.iterator();
+		int done = 0;
+		
+		while(iterator.hasNext()){
+			
+			int count = 0;
+			for(; count < BATCH_CHUNK && iterator.hasNext(); ++count){
+				positions(iterator.next(), positions, count * k);
+			}
+			
+			for(int i = 0; i < count; ++i){
+				results.set(done + i, containsPositions(positions, i * k));
+			}
+			
+			done += count;
+		}
+	}
+	
+	/**
+	 * Adds count messages of equal length, stored one after another in a byte array, in two passes over chunks
+	 * of the messages the same way as the addBatch method with a collection does. The messages of a chunk are hashed
+	 * together in a single batch, hash functions that support it hash several messages at once.
+	 * @param keys array holding the messages
+	 * @param offset index of the first byte of the first message
+	 * @param keyLength number of bytes of every message
+	 * @param count number of messages
+	 */
+	public void addBatch(byte[] keys, int offset, int keyLength, int count){
+		
+		int k = getHashesPerMessage();
+		int hashCount = hashCount();
+		int[] chunkHashes = new int[Math.min(count, BATCH_CHUNK) * hashCount];
+		long[] positions = new long[Math.min(count, BATCH_CHUNK) * k];
+		
+		for(int first = 0; first < count; first += BATCH_CHUNK){
+			
+			int chunk = Math.min(BATCH_CHUNK, count - first);
+			positions(keys, offset + first * keyLength, keyLength, chunk, chunkHashes, positions);
+			
+			for(int i = 0, end = chunk * k; i < end; ++i){
+				table.set(positions[i]);
+			}
+			
+			messagesAdded(chunk);
+		}
+	}
+	
+	/**
+	 * Checks count messages of equal length, stored one after another in a byte array, the same way as 
+	 * the addBatch method with a byte array adds them. The result for the message with the index i is written to results[i].
+	 * @param keys array holding the messages
+	 * @param offset index of the first byte of the first message
+	 * @param keyLength number of bytes of every message
+	 * @param count number of messages
+	 * @param results array to write the results to, at least count long
+	 */
+	public void containsBatch(byte[] keys, int offset, int keyLength, int count, boolean[] results){
+		
+		int k = getHashesPerMessage();
+		int hashCount = hashCount();
+		int[] chunkHashes = new int[Math.min(count, BATCH_CHUNK) * hashCount];
+		long[] positions = new long[Math.min(count, BATCH_CHUNK) * k];
+		
+		for(int first = 0; first < count; first += BATCH_CHUNK){
+			
+			int chunk = Math.min(BATCH_CHUNK, count - first);
+			positions(keys, offset + first * keyLength, keyLength, chunk, chunkHashes, positions);
+			
+			for(int i = 0; i < chunk; ++i){
+				results[first + i] = containsPositions(positions, i * k);
+			}
+		}
+	}
+	
+	/**
+	 * Checks the bits on getHashesPerMessage() positions of a message, written to the buffer by a positions method.
+	 * Reads all the positions without stopping at the first cleared bit, so the reads of a chunk can overlap.
+	 * @param positions buffer holding the positions
+	 * @param offset index of the first position of the message
+	 * @return true if all the bits are set, false otherwise
+	 */
+	private boolean containsPositions(long[] positions, int offset){
+		
+		boolean contained = true;
+		for(int i = offset, end = offset + hashesPerMessage; i < end; ++i){
+			contained &= table.get(positions[i]);
+		}
+		
+		return contained;
+	}
+	
+	/**
+	 * Hashes a chunk of equal length messages in one batch and writes the bit positions of every message to the buffer.
+	 * @param keys array holding the messages
+	 * @param offset index of the first byte of the first message
+	 * @param keyLength number of bytes of every message
+	 * @param count number of messages
+	 * @param chunkHashes buffer for the hashes of the messages
+	 * @param positions buffer to write the positions to, getHashesPerMessage() of them per message
+	 */
+	private void positions(byte[] keys, int offset, int keyLength, int count, int[] chunkHashes, long[] positions){
+		
+		int hashCount = hashCount();
+		int[] hashes = hashBuffer(hashCount);
+		hasher.hashBatch(keys, offset, keyLength, count, hashCount, chunkHashes);
+		
+		for(int i = 0; i < count; ++i){
+			System.arraycopy(chunkHashes, i * hashCount, hashes, 0, hashCount);
+			positions(hashes, positions, i * getHashesPerMessage());
+		}
+	}
+	
+	/**
+	 * Calculates the bit positions of a message and writes them to the given buffer.
+	 * @param message message to calculate the positions for
+	 * @param positions buffer to write the positions to
+	 * @param offset index of the buffer to write the first position to
+	 */
+	private void positions(CharSequence message, long[] positions, int offset){
+		
+		int hashes[] = hashBuffer(hashCount());
+		hasher.hash(message, hashCount(), hashes);
+		positions(hashes, positions, offset);
+	}
+	
+	/**
+	 * Calculates the bit positions of a message from its hashes and writes them to the given buffer.
+	 * Writes exactly getHashesPerMessage() positions starting from the given offset.
+	 * @param hashes hashes of the message, hashCount() of them
+	 * @param positions buffer to write the positions to
+	 * @param offset index of the buffer to write the first position to
+	 */
+	protected void positions(int[] hashes, long[] positions, int offset){
+		
+		for(int i = 0; i < hashesPerMessage; ++i){
+			positions[offset + i] = position(hashes, i);
+		}
+	}
+	
 	/**
 	 * Check if the given message is contained in the hash-table (false positives possible).
 	 * Feeds the given message to the previously specified number of hash functions, then checks the 
@@ -95,13 +578,80 @@ public class HashTable {
 	 * @param message message to check the hash-table for
 	 * @return true if the message is contained (or in the case of a false positive), false otherwise
 	 */
-	public boolean contains(String message){
+	public boolean contains(CharSequence message){
+		
+		int hashes[] = hashBuffer(hashCount());
+		hasher.hash(message, hashCount(), hashes);
+		return containsHashes(hashes);
+	}
+	
+	/**
+	 * Check if the message held in a range of a byte array is contained in the hash-table (false positives possible).
+	 * @param data array holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @return true if the message is contained (or in the case of a false positive), false otherwise
+	 */
+	public boolean contains(byte[] data, int offset, int length){
+		
+		int hashes[] = hashBuffer(hashCount());
+		hasher.hash(data, offset, length, hashCount(), hashes);
+		return containsHashes(hashes);
+	}
+	
+	/**
+	 * Check if the bytes of the buffer between its position and limit are contained in the hash-table (false positives possible).
+	 * The position of the buffer is not changed.
+	 * @param data buffer holding the message
+	 * @return true if the message is contained (or in the case of a false positive), false otherwise
+	 */
+	public boolean contains(ByteBuffer data){
 		
-		int hashes[] = hashFunction.getHashFunction().apply(message, hashesPerMessage);
+		int hashes[] = hashBuffer(hashCount());
+		hasher.hash(data, hashCount(), hashes);
+		return containsHashes(hashes);
+	}
+	
+	/**
+	 * Check if the long value is contained in the hash-table (false positives possible).
+	 * @param value value to check the hash-table for
+	 * @return true if the value is contained (or in the case of a false positive), false otherwise
+	 */
+	public boolean contains(long value){
+		
+		int hashes[] = hashBuffer(hashCount());
+		hasher.hash(value, hashCount(), hashes);
+		return containsHashes(hashes);
+	}
+	
+	/**
+	 * Check if a message hashed beforehand is contained in the hash-table (false positives possible).
+	 * @param key hashed message, hashed by the hasher of this hash-table
+	 * @return true if the message is contained (or in the case of a false positive), false otherwise
+	 * @throws IllegalArgumentException if the key was hashed by a different hasher or holds too few hashes
+	 */
+	public boolean contains(HashedKey key){
+		
+		long[] positions = key.positions(this);
+		for(int i = 0; i < hashesPerMessage; ++i){
+			if(!table.get(positions[i])){
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Checks the bits on the locations determined by the hashes of a message.
+	 * @param hashes hashes of the message, hashCount() of them
+	 * @return true if all of the bits are set to 1, false otherwise
+	 */
+	protected boolean containsHashes(int[] hashes){
 		
-		for(int hash: hashes){
+		for(int i = 0; i < hashesPerMessage; ++i){
 		
-			if(!table.get(hash%size)){
+			if(!table.get(position(hashes, i))){
 				return false;
 			}
 		
@@ -110,13 +660,46 @@ public class HashTable {
 		return true;
 	}
 	
+	/**
+	 * Returns the number of hashes that have to be calculated for a message, as required by the index strategy. 
+	 * @return number of hashes per message
+	 */
+	protected int hashCount(){
+		return indexStrategy.hashCount(hashesPerMessage);
+	}
+	
+	/**
+	 * Returns the array the hashes of a message are written to. The array is reused by every operation
+	 * so adding and checking messages does not allocate memory.
+	 * @param length minimum length of the array
+	 * @return array of at least the given length
+	 */
+	protected int[] hashBuffer(int length){
+		
+		if(hashes.length < length){
+			hashes = new int[length];
+		}
+		
+		return hashes;
+	}
+	
+	/**
+	 * Maps the hashes of a message to the bit index with the given index, using the index strategy of the hash-table.
+	 * @param hashes hashes generated by the hash function, hashCount() of them
+	 * @param i index of the bit index, from 0 to getHashesPerMessage()-1
+	 * @return bit index in the range [0, size)
+	 */
+	protected long position(int[] hashes, int i){
+		return indexStrategy.position(hashes, i, size);
+	}
+	
 	/**
 	 * Calculates theoretical number of bits that would remain zero after storing the number of messages that is stored
 	 * in this hash-table.
 	 * @return theoretical percentage of the hash-table bits set to zero 
 	 */
 	public double expectedZeroes(){
-		return Math.pow(1-(double)hashesPerMessage/size, messagesStored);
+		return Math.pow(1-(double)hashesPerMessage/size, getMessagesStored());
 	}
 	
 	/**
@@ -130,34 +713,67 @@ public class HashTable {
 	}	
 		
 	/**
-	 * Removes all the elements and resets the hash table.
+	 * Removes all the elements and resets the hash table, including the number of stored messages.
 	 */
 	public void clear(){
 		table.clear();
+		messagesStored = 0;
 	}
 	
 	
+	/**
+	 * Estimates the number of distinct messages stored from the percentage of bits set to one, 
+	 * n = -(m/k) * ln(1 - X/m) for m bits of which X are set. Unlike the number of stored messages it does 
+	 * not count the same message twice and stays correct after union and intersection.
+	 * Runs in constant time, the number of set bits is tracked by the bit vector.
+	 * @return estimated number of distinct messages, infinity if all bits are set
+	 */
+	public double estimatedCardinality(){
+		return -(double)size / hashesPerMessage * Math.log1p(-(double)getNumberOfFull() / size);
+	}
+	
 	public long getNumberOfFull(){
-		return table.stream().count();
+		return table.cardinality();
 	}
 	
 	public long getNumberOfEmpty(){
-		return size - table.stream().count();
+		return size - table.cardinality();
+	}
+
+	public long getMemoryUsage(){
+		return table.getMemoryUsage();
 	}
 
 	public int getHashesPerMessage() {
 		return hashesPerMessage;
 	}
 
-	public int getSize() {
+	public long getSize() {
 		return size;
 	}
 	
+	protected BitVector getTable(){
+		return table;
+	}
+	
 	public HashFunction getHashFunction(){
 		return hashFunction;
 	}
 	
-	public int getMessagesStored(){
+	/**
+	 * Returns the hasher generating the hashes of messages, the hasher of the hash function or, for keyed
+	 * hash-tables, a hasher holding the key.
+	 * @return hasher of the hash-table
+	 */
+	protected Hasher getHasher(){
+		return hasher;
+	}
+	
+	public IndexStrategy getIndexStrategy(){
+		return indexStrategy;
+	}
+	
+	public long getMessagesStored(){
 		return messagesStored;
 	}
 	
@@ -0,0 +1,871 @@
+package implementation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import hashfunctions.HashFunction;
+
+/**
+ * Compressed wire format for sending hash-tables between processes. The bit vector is written in the smallest
+ * of three encodings, so the number of bytes sent depends on the information in the hash-table instead of its size:
+ * <ul>
+ * <li>RAW, the words of the bit vector,</li>
+ * <li>CONTAINERS, the bit vector split into containers of 65536 bits, every container stored as a list of set bits,
+ * a bitmap or a list of runs of set bits, whichever is the smallest,</li>
+ * <li>GOLOMB, the gaps between the set bits coded with a Golomb-Rice code whose parameter is chosen from the
+ * percentage of set bits.</li>
+ * </ul>
+ * The format, everything stored in the little endian byte order:
+ * <pre>
+ *  0  int   magic number "BLMW"
+ *  4  byte  format version
+ *  5  byte  encoding
+ *  6  byte  Golomb-Rice parameter, zero for other encodings
+ *  7  byte  identifier of the index strategy
+ *  8  long  size of the hash-table in bits
+ * 16  int   number of hashes per message
+ * 20  int   identifier of the hash function
+ * 24  long  number of messages stored
+ * 32  int   block size of a blocked hash-table, zero for the classic layout
+ * 36  int   CRC-32C checksum of the header
+ * 40        encoded bit vector
+ *     int   CRC-32C checksum of all the previous bytes
+ * </pre>
+ * The header has its own checksum, so a corrupted size is rejected before a bit vector of that size is allocated.
+ * Hash-tables of the classic and blocked layouts can be written, other layouts such as counting hash-tables can not.
+ * Version 1 was written before the index strategies and with different hashes of several hash functions,
+ * it is rejected since its bits can not be mapped back to messages.
+ * Hash-tables are written to and read from the channels through a small buffer. A hash-table read into an existing
+ * target is decoded into a temporary bit vector first and added to the target only once the checksum matches,
+ * so a corrupted or truncated stream never changes the target.
+ *
+ * @author Bruno
+ *
+ */
+public class HashTableCodec {
+
+	/**
+	 * Encodings of the bit vector.
+	 */
+	public enum Encoding {
+		RAW, CONTAINERS, GOLOMB
+	}
+
+	public static final int MAGIC = 0x574D4C42;
+	public static final int VERSION = 2;
+	public static final int HEADER_LENGTH = 40;
+
+	private static final int CONTAINER_WORDS = 1024;
+	private static final int EMPTY_CONTAINER = 0;
+	private static final int ARRAY_CONTAINER = 1;
+	private static final int BITMAP_CONTAINER = 2;
+	private static final int RUN_CONTAINER = 3;
+	private static final int BUFFER_LENGTH = 1 << 16;
+
+	/**
+	 * Writes the given hash-table to the channel in the smallest encoding.
+	 * @param hashTable hash-table to write
+	 * @param channel channel to write to
+	 * @return number of bytes written
+	 * @throws IOException if writing fails
+	 * @throws IllegalArgumentException if the hash-table is neither of the classic nor of the blocked layout
+	 */
+	public static long write(HashTable hashTable, WritableByteChannel channel) throws IOException{
+
+		Sizes sizes = new Sizes(hashTable.getTable());
+		return write(hashTable, channel, sizes.smallest(), sizes);
+	}
+
+	/**
+	 * Writes the given hash-table to the channel in the given encoding.
+	 * @param hashTable hash-table to write
+	 * @param channel channel to write to
+	 * @param encoding encoding of the bit vector
+	 * @return number of bytes written
+	 * @throws IOException if writing fails
+	 * @throws IllegalArgumentException if the hash-table is neither of the classic nor of the blocked layout
+	 */
+	public static long write(HashTable hashTable, WritableByteChannel channel, Encoding encoding) throws IOException{
+		return write(hashTable, channel, encoding, new Sizes(hashTable.getTable()));
+	}
+
+	/**
+	 * Calculates the number of bytes the given hash-table would be written in using the given encoding,
+	 * without writing it.
+	 * @param hashTable hash-table to measure
+	 * @param encoding encoding of the bit vector
+	 * @return number of bytes including the header and the checksum
+	 */
+	public static long encodedSize(HashTable hashTable, Encoding encoding){
+		return HEADER_LENGTH + new Sizes(hashTable.getTable()).payload(encoding) + Integer.BYTES;
+	}
+
+	/**
+	 * Finds the encoding the given hash-table would be written in by write(HashTable, WritableByteChannel).
+	 * @param hashTable hash-table to measure
+	 * @return encoding with the smallest number of bytes
+	 */
+	public static Encoding smallestEncoding(HashTable hashTable){
+		return new Sizes(hashTable.getTable()).smallest();
+	}
+
+	private static long write(HashTable hashTable, WritableByteChannel channel, Encoding encoding, Sizes sizes) throws IOException{
+
+		int blockSize = blockSize(hashTable);
+		Output output = new Output(channel);
+		BitVector table = hashTable.getTable();
+
+		output.putInt(MAGIC);
+		output.putByte(VERSION);
+		output.putByte(encoding.ordinal());
+		output.putByte(encoding == Encoding.GOLOMB ? sizes.riceBits : 0);
+		output.putByte(hashTable.getIndexStrategy().getId());
+		output.putLong(hashTable.getSize());
+		output.putInt(hashTable.getHashesPerMessage());
+		output.putInt(hashTable.getHashFunction().getId());
+		output.putLong(hashTable.getMessagesStored());
+		output.putInt(blockSize);
+		output.putChecksum();
+
+		switch(encoding){
+		case RAW:
+			for(long word = 0; word < table.getNumberOfWords(); ++word){
+				output.putLong(table.getWord(word));
+			}
+			break;
+		case CONTAINERS:
+			writeContainers(table, output);
+			break;
+		case GOLOMB:
+			writeGolomb(table, output, sizes.riceBits, sizes.setBits);
+			break;
+		}
+
+		return output.finish();
+	}
+
+	/**
+	 * Reads a hash-table from the channel into a new hash-table stored in memory, a blocked one if a blocked hash-table was written.
+	 * Keyed hash-tables have to be read into a target created with the key instead, the key is never written.
+	 * @param channel channel to read from
+	 * @return hash-table holding the bit vector and number of messages that were written
+	 * @throws IOException if the bytes are not a valid hash-table, the checksum does not match or reading fails
+	 */
+	public static HashTable read(ReadableByteChannel channel) throws IOException{
+		return read(channel, null);
+	}
+
+	/**
+	 * Reads a hash-table from the channel and adds its bits and number of messages to the given hash-table,
+	 * which needs to have the same size, number of hashes per message, hash function, index strategy and layout as the written one.
+	 * Used for hash-tables that are not stored in memory, such as mapped ones, and for keyed hash-tables.
+	 * The bits are decoded into a temporary bit vector of the size of the target and added to the target after
+	 * the checksum is verified, if reading fails the target is left unchanged.
+	 * @param channel channel to read from
+	 * @param target hash-table to add the read bits to, or null to create a new hash-table
+	 * @return hash-table holding the read bits
+	 * @throws IOException if the bytes are not a valid hash-table, the checksum does not match or reading fails
+	 * @throws IllegalArgumentException if the target does not match the written hash-table, checked before anything is decoded
+	 */
+	public static HashTable read(ReadableByteChannel channel, HashTable target) throws IOException{
+
+		Input input = new Input(channel);
+
+		if(input.getInt() != MAGIC){
+			throw new IOException("Not an encoded hash-table");
+		}
+		int version = input.getByte();
+		if(version == 1){
+			throw new IOException("Hash-table encoding version 1 was written before the index strategies and can not be read, "
+					+ "the hash-table has to be rebuilt");
+		}
+		if(version != VERSION){
+			throw new IOException("Unsupported hash-table encoding version " + version);
+		}
+		int encoding = input.getByte();
+		if(encoding >= Encoding.values().length){
+			throw new IOException("Unknown hash-table encoding " + encoding);
+		}
+		int riceBits = input.getByte();
+		int indexStrategyId = input.getByte();
+
+		long size = input.getLong();
+		int hashesPerMessage = input.getInt();
+		int hashFunctionId = input.getInt();
+		long messagesStored = input.getLong();
+		int blockSize = input.getInt();
+		input.verifyChecksum("Encoded hash-table header checksum mismatch");
+		String layout = blockSize == 0 ? HashTable.CLASSIC_LAYOUT : BlockedHashTable.layoutName(blockSize);
+
+		if(size <= 0){
+			throw new IOException("Invalid size of an encoded hash-table: " + size);
+		}
+		long available = input.available();
+		if(encoding == Encoding.RAW.ordinal() && available >= 0 && available < (size + Long.SIZE - 1) / Long.SIZE * Long.BYTES){
+			throw new IOException("Truncated encoded hash-table of size " + size);
+		}
+
+		boolean newTarget = target == null;
+		HashFunction hashFunction;
+		IndexStrategy indexStrategy;
+		try {
+			hashFunction = HashFunction.forId(hashFunctionId);
+			indexStrategy = IndexStrategy.forId(indexStrategyId);
+			if(target == null && blockSize != 0){
+				target = new BlockedHashTable(size, hashesPerMessage, hashFunction, blockSize);
+				if(target.getSize() != size || target.getIndexStrategy() != indexStrategy){
+					throw new IOException("Invalid blocked hash-table of size " + size + " and index strategy " + indexStrategy.getName());
+				}
+			} else if(target == null){
+				target = new HashTable(size, hashesPerMessage, hashFunction, indexStrategy);
+			}
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+
+		if(target.getSize() != size || target.getHashesPerMessage() != hashesPerMessage || target.getHashFunction() != hashFunction
+				|| target.getIndexStrategy() != indexStrategy || !target.layout().equals(layout)){
+			throw new IllegalArgumentException("Hash-table " + target + " does not match the encoded hash-table");
+		}
+
+		BitVector table = newTarget ? target.getTable() : new PagedBitVector(size);
+		switch(Encoding.values()[encoding]){
+		case RAW:
+			for(long word = 0; word < table.getNumberOfWords(); ++word){
+				table.orWord(word, input.getLong());
+			}
+			break;
+		case CONTAINERS:
+			readContainers(table, input);
+			break;
+		case GOLOMB:
+			readGolomb(table, input, riceBits);
+			break;
+		}
+
+		input.finish();
+
+		if(!newTarget){
+			BitVector targetTable = target.getTable();
+			for(long word = 0; word < table.getNumberOfWords(); ++word){
+				long bits = table.getWord(word);
+				if(bits != 0){
+					targetTable.orWord(word, bits);
+				}
+			}
+		}
+		target.messagesAdded(messagesStored);
+
+		return target;
+	}
+
+	/**
+	 * Returns the block size written for the hash-table, zero for the classic layout.
+	 * @throws IllegalArgumentException if the hash-table is neither of the classic nor of the blocked layout
+	 */
+	private static int blockSize(HashTable hashTable){
+
+		if(hashTable instanceof BlockedHashTable){
+			return ((BlockedHashTable)hashTable).getBlockSize();
+		}
+		if(!HashTable.CLASSIC_LAYOUT.equals(hashTable.layout())){
+			throw new IllegalArgumentException("Only hash-tables of the classic and blocked layouts can be encoded: " + hashTable);
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Writes every container in the smallest of its encodings.
+	 */
+	private static void writeContainers(BitVector table, Output output) throws IOException{
+
+		long[] words = new long[CONTAINER_WORDS];
+
+		for(long start = 0; start < table.getNumberOfWords(); start += CONTAINER_WORDS){
+
+			int length = (int)Math.min(CONTAINER_WORDS, table.getNumberOfWords() - start);
+			for(int i = 0; i < length; ++i){
+				words[i] = table.getWord(start + i);
+			}
+
+			int setBits = setBits(words, length);
+			int runs = runs(words, length);
+			int type = containerType(setBits, runs, length);
+			output.putByte(type);
+
+			if(type == ARRAY_CONTAINER){
+				output.putShort(setBits);
+				for(int i = 0; i < length; ++i){
+					for(long word = words[i]; word != 0; word &= word - 1){
+						output.putShort((i << 6) | Long.numberOfTrailingZeros(word));
+					}
+				}
+			} else if(type == BITMAP_CONTAINER){
+				for(int i = 0; i < length; ++i){
+					output.putLong(words[i]);
+				}
+			} else if(type == RUN_CONTAINER){
+				output.putShort(runs);
+				int bits = length << 6;
+				for(int run = nextBit(words, bits, 0, true); run < bits; ){
+					int end = nextBit(words, bits, run, false);
+					output.putShort(run);
+					output.putShort(end - run - 1);
+					run = nextBit(words, bits, end, true);
+				}
+			}
+		}
+	}
+
+	private static void readContainers(BitVector table, Input input) throws IOException{
+
+		long[] words = new long[CONTAINER_WORDS];
+
+		for(long start = 0; start < table.getNumberOfWords(); start += CONTAINER_WORDS){
+
+			int length = (int)Math.min(CONTAINER_WORDS, table.getNumberOfWords() - start);
+			int type = input.getByte();
+
+			if(type == EMPTY_CONTAINER){
+				continue;
+			} else if(type == BITMAP_CONTAINER){
+				for(int i = 0; i < length; ++i){
+					table.orWord(start + i, input.getLong());
+				}
+				continue;
+			}
+
+			for(int i = 0; i < length; ++i){
+				words[i] = 0;
+			}
+
+			if(type == ARRAY_CONTAINER){
+				for(int count = input.getShort(); count > 0; --count){
+					int bit = checkBit(input.getShort(), length);
+					words[bit >>> 6] |= 1L << bit;
+				}
+			} else if(type == RUN_CONTAINER){
+				for(int count = input.getShort(); count > 0; --count){
+					int run = input.getShort();
+					int end = checkBit(run + input.getShort(), length);
+					for(int bit = run; bit <= end; ++bit){
+						words[bit >>> 6] |= 1L << bit;
+					}
+				}
+			} else {
+				throw new IOException("Unknown container type " + type);
+			}
+
+			for(int i = 0; i < length; ++i){
+				if(words[i] != 0){
+					table.orWord(start + i, words[i]);
+				}
+			}
+		}
+	}
+
+	private static int checkBit(int bit, int length) throws IOException{
+
+		if(bit >= length << 6){
+			throw new IOException("Container bit out of range: " + bit);
+		}
+
+		return bit;
+	}
+
+	/**
+	 * Writes the number of set bits followed by the Golomb-Rice codes of the gaps between them: the gap minus one
+	 * shifted right by the parameter in unary, then the lowest parameter bits of it.
+	 */
+	private static void writeGolomb(BitVector table, Output output, int riceBits, long setBits) throws IOException{
+
+		output.putLong(setBits);
+
+		long previous = -1;
+		for(long i = 0; i < table.getNumberOfWords(); ++i){
+			for(long word = table.getWord(i); word != 0; word &= word - 1){
+
+				long position = (i << 6) | Long.numberOfTrailingZeros(word);
+				long gap = position - previous - 1;
+
+				output.putUnary(gap >>> riceBits);
+				output.putBits(gap, riceBits);
+				previous = position;
+			}
+		}
+
+		output.alignBits();
+	}
+
+	private static void readGolomb(BitVector table, Input input, int riceBits) throws IOException{
+
+		long setBits = input.getLong();
+		long position = -1;
+		long wordIndex = -1;
+		long word = 0;
+
+		for(long i = 0; i < setBits; ++i){
+
+			long gap = (input.getUnary() << riceBits) | input.getBits(riceBits);
+			position += gap + 1;
+			if(position < 0 || position >= table.getSize()){
+				throw new IOException("Encoded bit out of range: " + position);
+			}
+
+			if(position >>> 6 != wordIndex){
+				if(word != 0){
+					table.orWord(wordIndex, word);
+				}
+				wordIndex = position >>> 6;
+				word = 0;
+			}
+			word |= 1L << position;
+		}
+
+		if(word != 0){
+			table.orWord(wordIndex, word);
+		}
+		input.alignBits();
+	}
+
+	private static int containerType(int setBits, int runs, int length){
+
+		if(setBits == 0){
+			return EMPTY_CONTAINER;
+		}
+
+		long array = arrayContainerLength(setBits);
+		long bitmap = bitmapContainerLength(length);
+		long run = runContainerLength(runs);
+
+		if(array <= bitmap && array <= run){
+			return ARRAY_CONTAINER;
+		}
+		return bitmap <= run ? BITMAP_CONTAINER : RUN_CONTAINER;
+	}
+
+	private static long containerLength(int setBits, int runs, int length){
+
+		switch(containerType(setBits, runs, length)){
+		case ARRAY_CONTAINER:
+			return arrayContainerLength(setBits);
+		case BITMAP_CONTAINER:
+			return bitmapContainerLength(length);
+		case RUN_CONTAINER:
+			return runContainerLength(runs);
+		default:
+			return 1;
+		}
+	}
+
+	private static long arrayContainerLength(int setBits){
+		return 1 + Short.BYTES + (long)setBits * Short.BYTES;
+	}
+
+	private static long bitmapContainerLength(int length){
+		return 1 + (long)length * Long.BYTES;
+	}
+
+	private static long runContainerLength(int runs){
+		return 1 + Short.BYTES + (long)runs * 2 * Short.BYTES;
+	}
+
+	private static int setBits(long[] words, int length){
+
+		int count = 0;
+		for(int i = 0; i < length; ++i){
+			count += Long.bitCount(words[i]);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Counts the runs of set bits, a run starts on every set bit whose previous bit is not set.
+	 */
+	private static int runs(long[] words, int length){
+
+		int count = 0;
+		long carry = 0;
+		for(int i = 0; i < length; ++i){
+			count += Long.bitCount(words[i] & ~((words[i] << 1) | carry));
+			carry = words[i] >>> 63;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Finds the next bit with the given value, starting from the given bit.
+	 * @return index of the bit, or the number of bits if there is none
+	 */
+	private static int nextBit(long[] words, int bits, int from, boolean set){
+
+		for(int i = from >>> 6; i < bits >>> 6; ++i){
+
+			long word = set ? words[i] : ~words[i];
+			if(i == from >>> 6){
+				word &= -1L << from;
+			}
+			if(word != 0){
+				return (i << 6) | Long.numberOfTrailingZeros(word);
+			}
+		}
+
+		return bits;
+	}
+
+	/**
+	 * Number of bytes of the bit vector in every encoding, calculated in a single pass over the words.
+	 */
+	private static class Sizes {
+
+		long raw;
+		long containers;
+		long golomb;
+		long setBits;
+		int riceBits;
+
+		Sizes(BitVector table){
+
+			long words = table.getNumberOfWords();
+			raw = words * Long.BYTES;
+			riceBits = riceBits(table.cardinality(), table.getSize());
+
+			long[] container = new long[CONTAINER_WORDS];
+			long golombBits = 0;
+			long previous = -1;
+
+			for(long start = 0; start < words; start += CONTAINER_WORDS){
+
+				int length = (int)Math.min(CONTAINER_WORDS, words - start);
+				for(int i = 0; i < length; ++i){
+
+					long word = table.getWord(start + i);
+					container[i] = word;
+
+					for(; word != 0; word &= word - 1){
+						long position = ((start + i) << 6) | Long.numberOfTrailingZeros(word);
+						golombBits += ((position - previous - 1) >>> riceBits) + 1 + riceBits;
+						previous = position;
+					}
+				}
+
+				int containerSetBits = setBits(container, length);
+				setBits += containerSetBits;
+				containers += containerLength(containerSetBits, runs(container, length), length);
+			}
+
+			golomb = Long.BYTES + (golombBits + 7) / 8;
+		}
+
+		/**
+		 * Chooses the Golomb-Rice parameter for gaps with the mean size/setBits, about log2(ln(2) * mean gap).
+		 */
+		private static int riceBits(long setBits, long size){
+
+			if(setBits == 0){
+				return 0;
+			}
+
+			long scaledGap = (long)(Math.log(2) * size / setBits);
+			return scaledGap <= 1 ? 0 : Math.min(62, 63 - Long.numberOfLeadingZeros(scaledGap));
+		}
+
+		long payload(Encoding encoding){
+
+			switch(encoding){
+			case CONTAINERS:
+				return containers;
+			case GOLOMB:
+				return golomb;
+			default:
+				return raw;
+			}
+		}
+
+		Encoding smallest(){
+
+			if(golomb < containers && golomb < raw){
+				return Encoding.GOLOMB;
+			}
+			return containers < raw ? Encoding.CONTAINERS : Encoding.RAW;
+		}
+	}
+
+	/**
+	 * Buffered writer of bytes and bits to a channel, calculates the checksum of everything written.
+	 */
+	private static class Output {
+
+		private WritableByteChannel channel;
+		private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		private Crc32c checksum = new Crc32c();
+		private long written;
+		private long bits;
+		private int bitCount;
+
+		Output(WritableByteChannel channel){
+			this.channel = channel;
+		}
+
+		void putByte(int value) throws IOException{
+			ensure(1);
+			buffer.put((byte)value);
+		}
+
+		void putShort(int value) throws IOException{
+			ensure(Short.BYTES);
+			buffer.putShort((short)value);
+		}
+
+		void putInt(int value) throws IOException{
+			ensure(Integer.BYTES);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) throws IOException{
+			ensure(Long.BYTES);
+			buffer.putLong(value);
+		}
+
+		/**
+		 * Writes the lowest count bits of the value, lowest bit first.
+		 */
+		void putBits(long value, int count) throws IOException{
+
+			while(count > 32){
+				putBits(value, 32);
+				value >>>= 32;
+				count -= 32;
+			}
+
+			bits |= (value & ((1L << count) - 1)) << bitCount;
+			bitCount += count;
+
+			while(bitCount >= Byte.SIZE){
+				putByte((int)bits);
+				bits >>>= Byte.SIZE;
+				bitCount -= Byte.SIZE;
+			}
+		}
+
+		/**
+		 * Writes the value in unary, as value set bits followed by a zero bit.
+		 */
+		void putUnary(long value) throws IOException{
+
+			for(; value >= 32; value -= 32){
+				putBits(0xFFFFFFFFL, 32);
+			}
+			putBits((1L << value) - 1, (int)value + 1);
+		}
+
+		void alignBits() throws IOException{
+
+			if(bitCount > 0){
+				putByte((int)bits);
+			}
+			bits = 0;
+			bitCount = 0;
+		}
+
+		private void ensure(int length) throws IOException{
+			if(buffer.remaining() < length){
+				flush();
+			}
+		}
+
+		private void flush() throws IOException{
+
+			buffer.flip();
+			checksum.update(buffer.array(), 0, buffer.limit());
+			written += buffer.limit();
+
+			while(buffer.hasRemaining()){
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		/**
+		 * Writes the checksum of everything written before it, the checksum itself is part of the following checksums.
+		 */
+		void putChecksum() throws IOException{
+
+			alignBits();
+			flush();
+			putInt((int)checksum.getValue());
+		}
+
+		/**
+		 * Writes the remaining bytes and the checksum.
+		 * @return number of bytes written
+		 */
+		long finish() throws IOException{
+
+			alignBits();
+			flush();
+			buffer.putInt((int)checksum.getValue());
+			buffer.flip();
+			written += buffer.limit();
+
+			while(buffer.hasRemaining()){
+				channel.write(buffer);
+			}
+
+			return written;
+		}
+	}
+
+	/**
+	 * Buffered reader of bytes and bits from a channel, calculates the checksum of everything read.
+	 */
+	private static class Input {
+
+		private ReadableByteChannel channel;
+		private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		private Crc32c checksum = new Crc32c();
+		private int checksumPosition;
+		private long bits;
+		private int bitCount;
+
+		Input(ReadableByteChannel channel){
+			this.channel = channel;
+			buffer.limit(0);
+		}
+
+		int getByte() throws IOException{
+			require(1);
+			return buffer.get() & 0xFF;
+		}
+
+		int getShort() throws IOException{
+			require(Short.BYTES);
+			return buffer.getShort() & 0xFFFF;
+		}
+
+		int getInt() throws IOException{
+			require(Integer.BYTES);
+			return buffer.getInt();
+		}
+
+		long getLong() throws IOException{
+			require(Long.BYTES);
+			return buffer.getLong();
+		}
+
+		/**
+		 * Reads count bits, lowest bit first.
+		 */
+		long getBits(int count) throws IOException{
+
+			if(count > 32){
+				long low = getBits(32);
+				return low | (getBits(count - 32) << 32);
+			}
+
+			while(bitCount < count){
+				bits |= (long)getByte() << bitCount;
+				bitCount += Byte.SIZE;
+			}
+
+			long value = bits & ((1L << count) - 1);
+			bits >>>= count;
+			bitCount -= count;
+
+			return value;
+		}
+
+		/**
+		 * Reads a value written in unary by counting the set bits before the next zero bit.
+		 */
+		long getUnary() throws IOException{
+
+			long value = 0;
+			while(true){
+
+				if(bitCount == 0){
+					bits = getByte();
+					bitCount = Byte.SIZE;
+				}
+
+				int ones = Long.numberOfTrailingZeros(~bits);
+				if(ones < bitCount){
+					bits >>>= ones + 1;
+					bitCount -= ones + 1;
+					return value + ones;
+				}
+
+				value += bitCount;
+				bits = 0;
+				bitCount = 0;
+			}
+		}
+
+		void alignBits(){
+			bits = 0;
+			bitCount = 0;
+		}
+
+		private void require(int length) throws IOException{
+
+			if(buffer.remaining() >= length){
+				return;
+			}
+
+			checksum.update(buffer.array(), checksumPosition, buffer.position() - checksumPosition);
+			buffer.compact();
+			checksumPosition = 0;
+
+			while(buffer.position() < length){
+				if(channel.read(buffer) < 0){
+					throw new IOException("Truncated encoded hash-table");
+				}
+			}
+			buffer.flip();
+		}
+
+		/**
+		 * Reads a checksum and compares it to the checksum of everything read before it.
+		 * @param message message of the exception thrown if the checksums differ
+		 */
+		void verifyChecksum(String message) throws IOException{
+
+			checksum.update(buffer.array(), checksumPosition, buffer.position() - checksumPosition);
+			checksumPosition = buffer.position();
+			int expected = (int)checksum.getValue();
+
+			if(getInt() != expected){
+				throw new IOException(message);
+			}
+		}
+
+		/**
+		 * Reads the final checksum and compares it to the checksum of everything read before it.
+		 */
+		void finish() throws IOException{
+			verifyChecksum("Encoded hash-table checksum mismatch");
+		}
+
+		/**
+		 * Returns the number of bytes left to read if the channel knows its size.
+		 * @return number of bytes left, or -1 if it is not known
+		 */
+		long available() throws IOException{
+
+			if(!(channel instanceof SeekableByteChannel)){
+				return -1;
+			}
+
+			SeekableByteChannel seekable = (SeekableByteChannel)channel;
+			return buffer.remaining() + seekable.size() - seekable.position();
+		}
+	}
+
+}
@@ -0,0 +1,328 @@
+package implementation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import hashfunctions.HashFunction;
+
+/**
+ * Versioned file format of a Bloom filter hash-table. A file consists of a 64 byte header followed by the
+ * words of the bit vector, everything stored in the little endian byte order:
+ * <pre>
+ *  0  int   magic number "BLMF"
+ *  4  int   format version
+ *  8  long  size of the hash-table in bits
+ * 16  int   number of hashes per message
+ * 20  int   identifier of the hash function
+ * 24  long  number of messages stored
+ * 32  int   CRC-32C checksum of the whole header, with this field set to zero, and of the bit vector
+ * 36  int   identifier of the index strategy
+ * 40        reserved, zero
+ * 64  long[] words of the bit vector
+ * </pre>
+ * Only hash-tables of the classic layout can be stored, the header does not describe other layouts.
+ * Hash-tables of a keyed hash function are stored without their key, they are created and opened with the key.
+ * Files of version 1 were written before the index strategies and with different hashes of several hash functions,
+ * their bits can not be mapped back to messages and they are rejected.
+ * Hash-tables are opened directly over a memory mapping of the file, so loading a hash-table of any size 
+ * costs a mapping instead of rebuilding it.
+ * 
+ * @author Bruno
+ *
+ */
+public class HashTableFile {
+	
+	public static final int MAGIC = 0x464D4C42;
+	public static final int VERSION = 2;
+	public static final int HEADER_LENGTH = 64;
+	
+	static final int SIZE_OFFSET = 8;
+	static final int HASHES_PER_MESSAGE_OFFSET = 16;
+	static final int HASH_FUNCTION_OFFSET = 20;
+	static final int MESSAGES_STORED_OFFSET = 24;
+	static final int CHECKSUM_OFFSET = 32;
+	static final int INDEX_STRATEGY_OFFSET = 36;
+	
+	private static final int CHUNK_WORDS = 8192;
+	
+	/**
+	 * Writes the given hash-table to a file, replacing the file if it exists.
+	 * The bit vector is written in chunks, the hash-table is not copied in memory. 
+	 * 
+	 * @param hashTable hash-table to store
+	 * @param path path of the file
+	 * @throws IOException if writing fails
+	 * @throws IllegalArgumentException if the hash-table is not of the classic layout, such as a blocked or counting one
+	 */
+	public static void save(HashTable hashTable, Path path) throws IOException{
+		
+		if(!HashTable.CLASSIC_LAYOUT.equals(hashTable.layout())){
+			throw new IllegalArgumentException("Only hash-tables of the classic layout can be stored to a file: " + hashTable);
+		}
+		
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+				StandardOpenOption.TRUNCATE_EXISTING)){
+			
+			ByteBuffer header = header(hashTable.getSize(), hashTable.getHashesPerMessage(), 
+					hashTable.getHashFunction(), hashTable.getIndexStrategy(), hashTable.getMessagesStored());
+			Crc32c checksum = new Crc32c();
+			updateChecksum(checksum, header);
+			writeFully(channel, header, 0);
+			
+			BitVector table = hashTable.getTable();
+			ByteBuffer chunk = ByteBuffer.allocate(CHUNK_WORDS * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			long position = HEADER_LENGTH;
+			
+			for(long word = 0; word < table.getNumberOfWords(); ){
+				
+				chunk.clear();
+				for(int i = 0; i < CHUNK_WORDS && word < table.getNumberOfWords(); ++i, ++word){
+					chunk.putLong(table.getWord(word));
+				}
+				chunk.flip();
+				
+				checksum.update(chunk.array(), 0, chunk.limit());
+				position += writeFully(channel, chunk, position);
+			}
+			
+			writeChecksum(channel, checksum.getValue());
+		}
+	}
+	
+	/**
+	 * Creates a new file holding an empty hash-table and opens it for reading and writing.
+	 * The checksum of the file is written when the returned hash-table is flushed or closed.
+	 * Hashes are mapped to bit indexes by the default strategy for the size.
+	 * 
+	 * @param path path of the file, the file must not exist
+	 * @param size size of the hash-table
+	 * @param hashesPerMessage number of hashes per message
+	 * @param hashFunction hash function that will generate addresses, not a keyed one
+	 * @return hash-table backed by the memory mapped file
+	 * @throws IOException if the file exists or creating it fails
+	 * @throws IllegalArgumentException if the hash function is keyed, such hash-tables are created with the key
+	 */
+	public static MappedHashTable create(Path path, long size, int hashesPerMessage, HashFunction hashFunction) throws IOException{
+		return create(path, size, hashesPerMessage, hashFunction, IndexStrategy.forSize(size));
+	}
+	
+	/**
+	 * Creates a new file holding an empty hash-table with the given index strategy and opens it for reading and writing.
+	 * 
+	 * @param path path of the file, the file must not exist
+	 * @param size size of the hash-table
+	 * @param hashesPerMessage number of hashes per message
+	 * @param hashFunction hash function that will generate addresses, not a keyed one
+	 * @param indexStrategy strategy of mapping the hashes to bit indexes
+	 * @return hash-table backed by the memory mapped file
+	 * @throws IOException if the file exists or creating it fails
+	 * @throws IllegalArgumentException if the hash function is keyed, such hash-tables are created with the key
+	 */
+	public static MappedHashTable create(Path path, long size, int hashesPerMessage, HashFunction hashFunction, 
+			IndexStrategy indexStrategy) throws IOException{
+		
+		if(hashFunction.isKeyed()){
+			throw new IllegalArgumentException(hashFunction.getName() + " needs a secret key, create the hash-table with the key");
+		}
+		
+		return create(path, size, hashesPerMessage, hashFunction, indexStrategy, null);
+	}
+	
+	/**
+	 * Creates a new file holding an empty hash-table hashed by HMAC-SHA-256 with the given secret key and opens it
+	 * for reading and writing. The key is not stored, the file has to be opened with the same key.
+	 * 
+	 * @param path path of the file, the file must not exist
+	 * @param size size of the hash-table
+	 * @param hashesPerMessage number of hashes per message
+	 * @param indexStrategy strategy of mapping the hashes to bit indexes
+	 * @param key secret key of the hash function
+	 * @return hash-table backed by the memory mapped file
+	 * @throws IOException if the file exists or creating it fails
+	 * @throws IllegalArgumentException if the key is empty
+	 */
+	public static MappedHashTable create(Path path, long size, int hashesPerMessage, IndexStrategy indexStrategy, 
+			byte[] key) throws IOException{
+		
+		if(key.length == 0){
+			throw new IllegalArgumentException("The key of " + HashFunction.HMAC_SHA256.getName() + " must not be empty");
+		}
+		
+		return create(path, size, hashesPerMessage, HashFunction.HMAC_SHA256, indexStrategy, key);
+	}
+	
+	private static MappedHashTable create(Path path, long size, int hashesPerMessage, HashFunction hashFunction, 
+			IndexStrategy indexStrategy, byte[] key) throws IOException{
+		
+		indexStrategy.check(size);
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, 
+				StandardOpenOption.WRITE);
+		
+		try {
+			writeFully(channel, header(size, hashesPerMessage, hashFunction, indexStrategy, 0), 0);
+			long length = fileLength(size);
+			writeFully(channel, ByteBuffer.allocate(1), length - 1);
+			
+			return new MappedHashTable(channel, new MappedBitVector(channel, HEADER_LENGTH, size, false), 
+					hashesPerMessage, hashFunction, indexStrategy, key, 0, false);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Opens a hash-table stored in a file by memory mapping the file. The checksum is not verified, 
+	 * so opening does not read the bit vector, MappedHashTable.verifyChecksum can be called to verify it.
+	 * 
+	 * @param path path of the file
+	 * @param readOnly true to map the file read-only, adding messages to the hash-table will then throw 
+	 * 					ReadOnlyBufferException
+	 * @return hash-table backed by the memory mapped file
+	 * @throws IOException if the file is not a hash-table file of a supported version, the hash-table is hashed by a
+	 * 					keyed hash function or reading fails
+	 */
+	public static MappedHashTable open(Path path, boolean readOnly) throws IOException{
+		return open(path, readOnly, null);
+	}
+	
+	/**
+	 * Opens a hash-table stored in a file by memory mapping the file, the same way as open(Path, boolean) does.
+	 * A hash-table of a keyed hash function has to be opened with the key it was created with, a wrong key can not 
+	 * be detected and makes every message look absent.
+	 * 
+	 * @param path path of the file
+	 * @param readOnly true to map the file read-only, adding messages to the hash-table will then throw 
+	 * 					ReadOnlyBufferException
+	 * @param key secret key of the keyed hash function, null if the hash function of the file is not keyed
+	 * @return hash-table backed by the memory mapped file
+	 * @throws IOException if the file is not a hash-table file of a supported version, the key is missing 
+	 * 					or given for a hash function that is not keyed, or reading fails
+	 */
+	public static MappedHashTable open(Path path, boolean readOnly, byte[] key) throws IOException{
+		
+		FileChannel channel = readOnly ? FileChannel.open(path, StandardOpenOption.READ) 
+				: FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		
+		try {
+			ByteBuffer header = readHeader(channel);
+			
+			if(header.getInt(0) != MAGIC){
+				throw new IOException("Not a hash-table file: " + path);
+			}
+			if(header.getInt(4) == 1){
+				throw new IOException("Hash-table file version 1 was written before the index strategies and can not be read, "
+						+ "the hash-table has to be rebuilt: " + path);
+			}
+			if(header.getInt(4) != VERSION){
+				throw new IOException("Unsupported hash-table file version " + header.getInt(4) + ": " + path);
+			}
+			
+			long size = header.getLong(SIZE_OFFSET);
+			if(size <= 0 || channel.size() < fileLength(size)){
+				throw new IOException("Truncated hash-table file: " + path);
+			}
+			
+			HashFunction hashFunction;
+			IndexStrategy indexStrategy;
+			try {
+				hashFunction = HashFunction.forId(header.getInt(HASH_FUNCTION_OFFSET));
+				indexStrategy = IndexStrategy.forId(header.getInt(INDEX_STRATEGY_OFFSET));
+				indexStrategy.check(size);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e.getMessage() + ": " + path, e);
+			}
+			if(hashFunction.isKeyed() != (key != null)){
+				throw new IOException(hashFunction.isKeyed() ? "Hash-table file is hashed by " + hashFunction.getName() 
+						+ " and has to be opened with its key: " + path : "Hash-table file is not hashed by a keyed hash function, "
+						+ "it is opened without a key: " + path);
+			}
+			
+			return new MappedHashTable(channel, new MappedBitVector(channel, HEADER_LENGTH, size, readOnly), 
+					header.getInt(HASHES_PER_MESSAGE_OFFSET), hashFunction, indexStrategy, key, header.getLong(MESSAGES_STORED_OFFSET), 
+					readOnly);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Creates the header of a file, with the checksum set to 0.
+	 */
+	private static ByteBuffer header(long size, int hashesPerMessage, HashFunction hashFunction, IndexStrategy indexStrategy, 
+			long messagesStored){
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(0, MAGIC);
+		header.putInt(4, VERSION);
+		header.putLong(SIZE_OFFSET, size);
+		header.putInt(HASHES_PER_MESSAGE_OFFSET, hashesPerMessage);
+		header.putInt(HASH_FUNCTION_OFFSET, hashFunction.getId());
+		header.putLong(MESSAGES_STORED_OFFSET, messagesStored);
+		header.putInt(INDEX_STRATEGY_OFFSET, indexStrategy.getId());
+		
+		return header;
+	}
+	
+	/**
+	 * Reads the header of a file.
+	 */
+	static ByteBuffer readHeader(FileChannel channel) throws IOException{
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		
+		while(header.hasRemaining()){
+			if(channel.read(header, header.position()) < 0){
+				throw new IOException("Truncated hash-table file header");
+			}
+		}
+		
+		return header;
+	}
+	
+	/**
+	 * Updates the given checksum with the bytes of the header, with the checksum field taken as zero.
+	 */
+	static void updateChecksum(Crc32c checksum, ByteBuffer header){
+		
+		byte[] bytes = header.array().clone();
+		for(int i = CHECKSUM_OFFSET; i < CHECKSUM_OFFSET + Integer.BYTES; ++i){
+			bytes[i] = 0;
+		}
+		checksum.update(bytes, 0, HEADER_LENGTH);
+	}
+	
+	/**
+	 * Writes the checksum to the header of a file.
+	 */
+	static void writeChecksum(FileChannel channel, long checksum) throws IOException{
+		
+		ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(0, (int)checksum);
+		writeFully(channel, buffer, CHECKSUM_OFFSET);
+	}
+	
+	/**
+	 * Writes the remaining bytes of the buffer to the channel starting at the given position.
+	 * @return number of bytes written
+	 */
+	static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException{
+		
+		int written = 0;
+		while(buffer.hasRemaining()){
+			written += channel.write(buffer, position + written);
+		}
+		
+		return written;
+	}
+	
+	private static long fileLength(long size){
+		return HEADER_LENGTH + ((size + 63) >>> 6) * Long.BYTES;
+	}
+
+}
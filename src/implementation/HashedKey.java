@@ -0,0 +1,107 @@
+package implementation;
+
+import hashfunctions.HashFunction;
+import hashfunctions.Hasher;
+
+/**
+ * Message hashed once, to be added to or checked against many hash-tables without hashing it again.
+ * Holds the hashes of the message, for the 128 and 64 bit hash functions derived from a single pass over the message.
+ * Hash-tables map the hashes to bit indexes with their own index strategy, so a key can be used with every hash-table
+ * hashed by the same hasher that needs at most as many hashes as the key holds. The bit indexes calculated for
+ * a hash-table are kept and reused for the following hash-tables of the same size, number of hashes per message,
+ * index strategy and layout, so checking a key against a dozen equal hash-tables maps the hashes only once.
+ * Not thread-safe, a key should be used by a single thread.
+ *
+ * @author Bruno
+ *
+ */
+public final class HashedKey {
+
+	private final Hasher hasher;
+	private final int[] hashes;
+
+	private long[] positions = new long[0];
+	private long positionsSize = -1;
+	private int positionsHashesPerMessage;
+	private IndexStrategy positionsStrategy;
+	private String positionsLayout;
+
+	/**
+	 * Default constructor, used by HashTable.hashKey and the factory methods.
+	 * @param hasher hasher that generated the hashes
+	 * @param hashes hashes of the message, the array is not copied
+	 */
+	HashedKey(Hasher hasher, int[] hashes){
+		this.hasher = hasher;
+		this.hashes = hashes;
+	}
+
+	/**
+	 * Hashes a message with the given hash function.
+	 * @param message message to hash
+	 * @param hashFunction hash function of the hash-tables the key will be used with
+	 * @param hashCount number of hashes to calculate, at least the number of hashes the hash-tables need per message
+	 * @return hashed message
+	 */
+	public static HashedKey of(CharSequence message, HashFunction hashFunction, int hashCount){
+
+		int[] hashes = new int[hashCount];
+		hashFunction.getHasher().hash(message, hashCount, hashes);
+		return new HashedKey(hashFunction.getHasher(), hashes);
+	}
+
+	/**
+	 * Hashes a message held in a range of a byte array with the given hash function.
+	 * @param data array holding the message
+	 * @param offset index of the first byte of the message
+	 * @param length number of bytes of the message
+	 * @param hashFunction hash function of the hash-tables the key will be used with
+	 * @param hashCount number of hashes to calculate, at least the number of hashes the hash-tables need per message
+	 * @return hashed message
+	 */
+	public static HashedKey of(byte[] data, int offset, int length, HashFunction hashFunction, int hashCount){
+
+		int[] hashes = new int[hashCount];
+		hashFunction.getHasher().hash(data, offset, length, hashCount, hashes);
+		return new HashedKey(hashFunction.getHasher(), hashes);
+	}
+
+	/**
+	 * Returns the bit indexes of the message in the given hash-table, calculated by the hash-table from the hashes
+	 * or reused if they were calculated for an equal hash-table.
+	 * @param hashTable hash-table to get the bit indexes for
+	 * @return array holding getHashesPerMessage() bit indexes of the hash-table, reused by the following calls
+	 * @throws IllegalArgumentException if the key was hashed by a different hasher or holds too few hashes
+	 */
+	long[] positions(HashTable hashTable){
+
+		if(!hasher.equals(hashTable.getHasher()) || hashes.length < hashTable.hashCount()){
+			throw new IllegalArgumentException("Key of " + hashes.length + " hashes was not hashed for hash-table " + hashTable);
+		}
+
+		if(positionsSize != hashTable.getSize() || positionsHashesPerMessage != hashTable.getHashesPerMessage()
+				|| positionsStrategy != hashTable.getIndexStrategy() || !positionsLayout.equals(hashTable.layout())){
+
+			if(positions.length < hashTable.getHashesPerMessage()){
+				positions = new long[hashTable.getHashesPerMessage()];
+			}
+			hashTable.positions(hashes, positions, 0);
+
+			positionsSize = hashTable.getSize();
+			positionsHashesPerMessage = hashTable.getHashesPerMessage();
+			positionsStrategy = hashTable.getIndexStrategy();
+			positionsLayout = hashTable.layout();
+		}
+
+		return positions;
+	}
+
+	/**
+	 * Returns the number of hashes held by the key.
+	 * @return number of hashes
+	 */
+	public int getHashCount(){
+		return hashes.length;
+	}
+
+}
@@ -0,0 +1,210 @@
+package implementation;
+
+import hashfunctions.MurmurHash3;
+
+/**
+ * Strategy of mapping the hashes of a message to bit indexes of a hash-table. The hash functions only
+ * generate 32 bit hashes, the strategy turns them into indexes in the range [0, size) of the actual hash-table.
+ * <ul>
+ * <li>MODULO - absolute value of the hash modulo size, the original mapping kept for hash-tables stored before
+ * the strategies were introduced. Needs an integer division for every index.</li>
+ * <li>FASTRANGE - Lemire's multiply-shift reduction, the 32 bit hash multiplied by the size and shifted right by 32 bits.
+ * Maps hashes as evenly as the modulo without a division.</li>
+ * <li>POWER_OF_TWO - the low bits of the hash, only for hash-tables of a power of two size.</li>
+ * <li>ENHANCED_DOUBLE_HASHING - only two hashes are calculated for a message, the index i is derived from them
+ * as h1 + i*h2 + (i^3 - i)/6 over 64 bits (Kirsch-Mitzenmacher with a cubic term) and reduced by the multiply-shift.
+ * Hash functions that run a full pass for every hash get k times faster.</li>
+ * </ul>
+ * A 32 bit hash can not address more than 2^32 bits. The per hash strategies map every index from a single hash,
+ * so they are limited to hash-tables of up to 2^32 bits, above that most bits could never be set and the false
+ * positive percentage would be far higher than expected. Larger hash-tables use ENHANCED_DOUBLE_HASHING, whose indexes
+ * are derived from a 64 bit hash made of two hashes.
+ *
+ * @author Bruno
+ *
+ */
+public enum IndexStrategy {
+
+	MODULO(0, "modulo") {
+
+		@Override
+		public long position(int[] hashes, int i, long size){
+
+			if(size <= Integer.MAX_VALUE){
+				return Math.abs((long)hashes[i]) % size;
+			}
+
+			return Math.floorMod(spread(hashes[i], i), size);
+		}
+	},
+
+	FASTRANGE(1, "fastrange") {
+
+		@Override
+		public long position(int[] hashes, int i, long size){
+
+			if(size <= MAX_32_BIT_SIZE){
+				return ((hashes[i] & LOW_32) * size) >>> 32;
+			}
+
+			return multiplyHigh(spread(hashes[i], i), size);
+		}
+	},
+
+	POWER_OF_TWO(2, "power of two") {
+
+		@Override
+		public long position(int[] hashes, int i, long size){
+
+			if(size <= MAX_32_BIT_SIZE){
+				return hashes[i] & LOW_32 & (size - 1);
+			}
+
+			return spread(hashes[i], i) & (size - 1);
+		}
+
+		@Override
+		public void check(long size){
+			super.check(size);
+			if(Long.bitCount(size) != 1){
+				throw new IllegalArgumentException("Size of the hash-table must be a power of two: " + size);
+			}
+		}
+	},
+
+	ENHANCED_DOUBLE_HASHING(3, "enhanced double hashing") {
+
+		@Override
+		public long position(int[] hashes, int i, long size){
+
+			long h1 = ((long)hashes[0] << 32) | (hashes[1] & LOW_32);
+			long h2 = MurmurHash3.fmix64(h1);
+			long cubic = ((long)i * i * i - i) / 6;
+
+			return multiplyHigh(h1 + i * h2 + cubic, size);
+		}
+
+		/**
+		 * Two hashes are needed no matter how many indexes are derived from them.
+		 */
+		@Override
+		public int hashCount(int hashesPerMessage){
+			return 2;
+		}
+
+		/**
+		 * The 64 bit hash addresses hash-tables of any size.
+		 */
+		@Override
+		public void check(long size){
+		}
+	};
+
+	private static final long LOW_32 = 0xFFFFFFFFL;
+	private static final long MAX_32_BIT_SIZE = 1L << 32;
+
+	private int id;
+	private String name;
+
+	/**
+	 * @param id stable identifier of the strategy, used when a hash-table is stored
+	 */
+	private IndexStrategy(int id, String name){
+		this.id = id;
+		this.name = name;
+	}
+
+	/**
+	 * Maps a hash of a message to a bit index of the hash-table.
+	 * @param hashes hashes of the message, hashCount(k) of them
+	 * @param i index of the bit index wanted, from 0 to k-1
+	 * @param size size of the hash-table
+	 * @return bit index in the range [0, size)
+	 */
+	public abstract long position(int[] hashes, int i, long size);
+
+	/**
+	 * Returns the number of hashes the hash function has to calculate for a message.
+	 * @param hashesPerMessage number of bit indexes per message
+	 * @return number of hashes per message
+	 */
+	public int hashCount(int hashesPerMessage){
+		return hashesPerMessage;
+	}
+
+	/**
+	 * Checks if the strategy can map hashes to a hash-table of the given size.
+	 * @param size size of the hash-table
+	 * @throws IllegalArgumentException if the size is not supported
+	 */
+	public void check(long size){
+		if(size > MAX_32_BIT_SIZE){
+			throw new IllegalArgumentException("The " + name + " strategy maps every index from one 32 bit hash and can not address "
+					+ "more than 2^32 bits, use " + ENHANCED_DOUBLE_HASHING.name + " for a hash-table of " + size + " bits");
+		}
+	}
+
+	/**
+	 * Returns the strategy used by hash-tables of the given size when no strategy is requested,
+	 * masking for power of two sizes and the multiply-shift otherwise, enhanced double hashing above 2^32 bits.
+	 * @param size size of the hash-table
+	 * @return default strategy for the size
+	 */
+	public static IndexStrategy forSize(long size){
+
+		if(size > MAX_32_BIT_SIZE){
+			return ENHANCED_DOUBLE_HASHING;
+		}
+
+		return Long.bitCount(size) == 1 ? POWER_OF_TWO : FASTRANGE;
+	}
+
+	/**
+	 * Returns the strategy with the given identifier.
+	 * @param id identifier of the strategy
+	 * @return strategy with the given identifier
+	 * @throws IllegalArgumentException if there is no strategy with the given identifier
+	 */
+	public static IndexStrategy forId(int id){
+		for(IndexStrategy strategy: values()){
+			if(strategy.id == id){
+				return strategy;
+			}
+		}
+		throw new IllegalArgumentException("Unknown index strategy id: " + id);
+	}
+
+	/**
+	 * Spreads a 32 bit hash over 64 bits, mixed with the index of the hash so different hashes of the same
+	 * message do not collide. Used for sizes the hash can not be reduced to directly, it still takes at most 2^32 values.
+	 */
+	private static long spread(int hash, int i){
+		return MurmurHash3.fmix64(((long)i << 32) | (hash & LOW_32));
+	}
+
+	/**
+	 * Returns the high 64 bits of the unsigned 128 bit product, which is the multiply-shift reduction of a
+	 * 64 bit hash to the range [0, size).
+	 */
+	private static long multiplyHigh(long a, long b){
+
+		long aLow = a & LOW_32, aHigh = a >>> 32;
+		long bLow = b & LOW_32, bHigh = b >>> 32;
+
+		long lowLow = aLow * bLow;
+		long highLow = aHigh * bLow;
+		long lowHigh = aLow * bHigh;
+		long middle = (lowLow >>> 32) + (highLow & LOW_32) + lowHigh;
+
+		return aHigh * bHigh + (highLow >>> 32) + (middle >>> 32);
+	}
+
+	public int getId(){
+		return id;
+	}
+
+	public String getName(){
+		return name;
+	}
+
+}
@@ -0,0 +1,152 @@
+package implementation;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Bit vector whose words live in a memory mapped region of a file. 
+ * A single mapping is limited to 2GB, so the region is mapped in pages of the same size as the pages of 
+ * PagedBitVector. Words are stored in the little endian byte order regardless of the platform.
+ * Opening a vector only maps the file, the bits are loaded lazily by the operating system and 
+ * the page cache is shared by all processes mapping the same file.
+ * The set bits are counted once when the vector is mapped and then as bits flip from 0 to 1.
+ * Not thread-safe.
+ * 
+ * @author Bruno
+ *
+ */
+public class MappedBitVector extends BitVector {
+	
+	private MappedByteBuffer[] buffers;
+	private LongBuffer[] pages;
+	private long bitsSet;
+
+	/**
+	 * Default constructor. Maps the words of the vector from the given channel.
+	 * 
+	 * @param channel channel of the file holding the vector, opened for reading (and writing unless read-only)
+	 * @param offset index of the first byte of the vector in the file, a multiple of 8
+	 * @param size number of bits
+	 * @param readOnly true if the vector is mapped read-only, setting a bit will then throw ReadOnlyBufferException
+	 * @throws IOException if mapping fails
+	 */
+	public MappedBitVector(FileChannel channel, long offset, long size, boolean readOnly) throws IOException{
+		super(size);
+		
+		int numberOfPages = numberOfPages(getNumberOfWords());
+		buffers = new MappedByteBuffer[numberOfPages];
+		pages = new LongBuffer[numberOfPages];
+		MapMode mode = readOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE;
+		
+		for(int i = 0; i < numberOfPages; ++i){
+			long pageOffset = offset + ((long)i << PAGE_SHIFT) * Long.BYTES;
+			buffers[i] = channel.map(mode, pageOffset, (long)pageLength(i, getNumberOfWords()) * Long.BYTES);
+			pages[i] = buffers[i].order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+		}
+		
+		bitsSet = super.cardinality();
+	}
+
+	@Override
+	public boolean set(long index){
+		long word = index >>> WORD_SHIFT;
+		LongBuffer page = pages[(int)(word >>> PAGE_SHIFT)];
+		int offset = (int)(word & PAGE_MASK);
+		long mask = 1L << index;
+
+		long old = page.get(offset);
+		if((old & mask) != 0){
+			return false;
+		}
+		
+		page.put(offset, old | mask);
+		++bitsSet;
+		return true;
+	}
+
+	@Override
+	public boolean get(long index){
+		long word = index >>> WORD_SHIFT;
+
+		return (pages[(int)(word >>> PAGE_SHIFT)].get((int)(word & PAGE_MASK)) & (1L << index)) != 0;
+	}
+
+	@Override
+	public long getWord(long wordIndex){
+		return pages[(int)(wordIndex >>> PAGE_SHIFT)].get((int)(wordIndex & PAGE_MASK));
+	}
+
+	@Override
+	public void orWord(long wordIndex, long word){
+		LongBuffer page = pages[(int)(wordIndex >>> PAGE_SHIFT)];
+		int offset = (int)(wordIndex & PAGE_MASK);
+		long old = page.get(offset);
+		
+		bitsSet += Long.bitCount(word & ~old);
+		page.put(offset, old | word);
+	}
+
+	@Override
+	public long mergeWord(long wordIndex, long word){
+		LongBuffer page = pages[(int)(wordIndex >>> PAGE_SHIFT)];
+		int offset = (int)(wordIndex & PAGE_MASK);
+		long old = page.get(offset);
+		
+		page.put(offset, old | word);
+		return Long.bitCount(word & ~old);
+	}
+
+	@Override
+	public void addBitsSet(long count){
+		bitsSet += count;
+	}
+
+	@Override
+	public void andWord(long wordIndex, long word){
+		LongBuffer page = pages[(int)(wordIndex >>> PAGE_SHIFT)];
+		int offset = (int)(wordIndex & PAGE_MASK);
+		long old = page.get(offset);
+		
+		bitsSet -= Long.bitCount(old & ~word);
+		page.put(offset, old & word);
+	}
+
+	@Override
+	public void clear(){
+		for(LongBuffer page: pages){
+			for(int i = 0; i < page.limit(); ++i){
+				page.put(i, 0L);
+			}
+		}
+		bitsSet = 0;
+	}
+	
+	@Override
+	public long cardinality(){
+		return bitsSet;
+	}
+	
+	/**
+	 * Updates the given checksum with the bytes of the vector as they are stored in the file.
+	 * @param checksum checksum to update
+	 */
+	public void updateChecksum(Crc32c checksum){
+		for(MappedByteBuffer buffer: buffers){
+			checksum.update(buffer);
+		}
+	}
+	
+	/**
+	 * Forces the changes of the vector to be written to the file.
+	 */
+	public void force(){
+		for(MappedByteBuffer buffer: buffers){
+			buffer.force();
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package implementation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import hashfunctions.HashFunction;
+
+/**
+ * Bloom filter hash-table backed by a memory mapped hash-table file, created and opened through the 
+ * HashTableFile class. 
+ * Changes of the bit vector go to the file through the mapping, the number of stored messages and the 
+ * checksum in the header of the file are updated when the hash-table is flushed or closed.
+ * Not thread-safe.
+ * 
+ * @author Bruno
+ *
+ */
+public class MappedHashTable extends HashTable implements Closeable {
+	
+	private FileChannel channel;
+	private MappedBitVector table;
+	private boolean readOnly;
+
+	/**
+	 * Default constructor, used by the HashTableFile class. 
+	 * @param channel channel of the file
+	 * @param table bit vector mapped from the file
+	 * @param hashesPerMessage number of hashes per message
+	 * @param hashFunction hash function that will generate addresses
+	 * @param indexStrategy strategy of mapping the hashes to bit indexes
+	 * @param key secret key of a keyed hash function, null for other hash functions
+	 * @param messagesStored number of messages stored in the file
+	 * @param readOnly true if the file is mapped read-only
+	 */
+	MappedHashTable(FileChannel channel, MappedBitVector table, int hashesPerMessage, HashFunction hashFunction, 
+			IndexStrategy indexStrategy, byte[] key, long messagesStored, boolean readOnly){
+		super(table, hashesPerMessage, hashFunction, indexStrategy, key);
+		this.channel = channel;
+		this.table = table;
+		this.readOnly = readOnly;
+		
+		messagesAdded(messagesStored);
+	}
+	
+	/**
+	 * Calculates the checksum of the header and the bit vector and compares it to the checksum stored in the file.
+	 * Reads the whole bit vector.
+	 * @return true if the checksums are equal, false otherwise
+	 * @throws IOException if reading the header fails
+	 */
+	public boolean verifyChecksum() throws IOException{
+		
+		ByteBuffer header = HashTableFile.readHeader(channel);
+		
+		return header.getInt(HashTableFile.CHECKSUM_OFFSET) == (int)checksum(header);
+	}
+	
+	/**
+	 * Writes the number of stored messages and the checksum to the header and forces all changes to the file.
+	 * Does nothing if the hash-table is read-only.
+	 * @throws IOException if writing fails
+	 */
+	public void flush() throws IOException{
+		
+		if(readOnly){
+			return;
+		}
+		
+		ByteBuffer messagesStored = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		messagesStored.putLong(0, getMessagesStored());
+		HashTableFile.writeFully(channel, messagesStored, HashTableFile.MESSAGES_STORED_OFFSET);
+		
+		table.force();
+		HashTableFile.writeChecksum(channel, checksum(HashTableFile.readHeader(channel)));
+		channel.force(false);
+	}
+	
+	/**
+	 * Flushes the hash-table unless it is read-only and closes the file. 
+	 * The mapping itself is released when the hash-table is garbage collected.
+	 * @throws IOException if flushing or closing fails
+	 */
+	@Override
+	public void close() throws IOException{
+		
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+	
+	private long checksum(ByteBuffer header){
+		
+		Crc32c checksum = new Crc32c();
+		HashTableFile.updateChecksum(checksum, header);
+		table.updateChecksum(checksum);
+		
+		return checksum.getValue();
+	}
+	
+	public boolean isReadOnly(){
+		return readOnly;
+	}
+	
+	@Override
+	public String toString(){
+		return "Mapped " + super.toString();
+	}
+
+}
@@ -0,0 +1,109 @@
+package implementation;
+
+import java.util.Arrays;
+
+/**
+ * Bit vector that keeps its words in fixed size pages of long arrays, so a vector of tens of
+ * billions of bits does not require one huge contiguous array.
+ * The number of set bits is counted as bits flip from 0 to 1, so cardinality runs in constant time.
+ * Not thread-safe.
+ *
+ * @author Bruno
+ *
+ */
+public class PagedBitVector extends BitVector {
+
+	private long[][] pages;
+	private long bitsSet;
+
+	/**
+	 * Default constructor. Takes the number of bits the vector will hold, all bits are initially set to 0.
+	 *
+	 * @param size number of bits
+	 */
+	public PagedBitVector(long size){
+		super(size);
+
+		pages = new long[numberOfPages(getNumberOfWords())][];
+
+		for(int i = 0; i < pages.length; ++i){
+			pages[i] = new long[pageLength(i, getNumberOfWords())];
+		}
+	}
+
+	@Override
+	public boolean set(long index){
+		long word = index >>> WORD_SHIFT;
+		long[] page = pages[(int)(word >>> PAGE_SHIFT)];
+		int offset = (int)(word & PAGE_MASK);
+		long mask = 1L << index;
+
+		long old = page[offset];
+		if((old & mask) != 0){
+			return false;
+		}
+
+		page[offset] = old | mask;
+		++bitsSet;
+		return true;
+	}
+
+	@Override
+	public boolean get(long index){
+		long word = index >>> WORD_SHIFT;
+
+		return (pages[(int)(word >>> PAGE_SHIFT)][(int)(word & PAGE_MASK)] & (1L << index)) != 0;
+	}
+
+	@Override
+	public long getWord(long wordIndex){
+		return pages[(int)(wordIndex >>> PAGE_SHIFT)][(int)(wordIndex & PAGE_MASK)];
+	}
+
+	@Override
+	public void orWord(long wordIndex, long word){
+		long[] page = pages[(int)(wordIndex >>> PAGE_SHIFT)];
+		int offset = (int)(wordIndex & PAGE_MASK);
+
+		bitsSet += Long.bitCount(word & ~page[offset]);
+		page[offset] |= word;
+	}
+
+	@Override
+	public long mergeWord(long wordIndex, long word){
+		long[] page = pages[(int)(wordIndex >>> PAGE_SHIFT)];
+		int offset = (int)(wordIndex & PAGE_MASK);
+
+		long added = Long.bitCount(word & ~page[offset]);
+		page[offset] |= word;
+		return added;
+	}
+
+	@Override
+	public void addBitsSet(long count){
+		bitsSet += count;
+	}
+
+	@Override
+	public void andWord(long wordIndex, long word){
+		long[] page = pages[(int)(wordIndex >>> PAGE_SHIFT)];
+		int offset = (int)(wordIndex & PAGE_MASK);
+
+		bitsSet -= Long.bitCount(page[offset] & ~word);
+		page[offset] &= word;
+	}
+
+	@Override
+	public void clear(){
+		for(long[] page: pages){
+			Arrays.fill(page, 0L);
+		}
+		bitsSet = 0;
+	}
+
+	@Override
+	public long cardinality(){
+		return bitsSet;
+	}
+
+}
@@ -0,0 +1,129 @@
+package implementation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel construction of a hash-table, used by HashTable.addAllParallel.
+ * The messages are split with their spliterator into fork-join tasks. Every worker thread adds the messages
+ * of its tasks to its own empty copy of the hash-table, so workers never share a bit vector.
+ * The copies are then merged into the hash-table by a bitwise OR, in parallel over ranges of words.
+ * Every range counts the bits it sets and the total is added to the hash-table once the merge is done,
+ * so the workers never update the shared count of set bits.
+ * 
+ * @author Bruno
+ *
+ */
+class ParallelBuild {
+	
+	private static final long LEAF_MESSAGES = 4096;
+	private static final long LEAF_WORDS = 1 << 16;
+	
+	/**
+	 * Adds the messages to the hash-table using the given pool.
+	 * @param target hash-table to add the messages to
+	 * @param messages spliterator over the messages
+	 * @param pool pool to run the tasks in
+	 */
+	static void addAll(HashTable target, Spliterator<? extends CharSequence> messages, ForkJoinPool pool){
+		
+		ConcurrentHashMap<Thread, HashTable> workerTables = new ConcurrentHashMap<>();
+		pool.invoke(new AddTask(target, messages, workerTables));
+		
+		List<HashTable> tables = new ArrayList<>(workerTables.values());
+		long bitsSet = pool.invoke(new OrTask(target.getTable(), tables, 0, target.getTable().getNumberOfWords()));
+		target.getTable().addBitsSet(bitsSet);
+		
+		long messagesStored = 0;
+		for(HashTable table: tables){
+			messagesStored += table.getMessagesStored();
+		}
+		target.messagesAdded(messagesStored);
+	}
+	
+	/**
+	 * Splits the messages until there are few enough of them, then adds them to the table of the current worker.
+	 */
+	private static class AddTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private HashTable target;
+		private Spliterator<? extends CharSequence> messages;
+		private ConcurrentHashMap<Thread, HashTable> workerTables;
+		
+		AddTask(HashTable target, Spliterator<? extends CharSequence> messages, ConcurrentHashMap<Thread, HashTable> workerTables){
+			this.target = target;
+			this.messages = messages;
+			this.workerTables = workerTables;
+		}
+
+		@Override
+		protected void compute() {
+			
+			if(messages.estimateSize() > LEAF_MESSAGES){
+				Spliterator<? extends CharSequence> prefix = messages.trySplit();
+				if(prefix != null){
+					invokeAll(new AddTask(target, prefix, workerTables), new AddTask(target, messages, workerTables));
+					return;
+				}
+			}
+			
+			HashTable table = workerTables.computeIfAbsent(Thread.currentThread(), (thread) -> target.emptyCopy());
+			messages.forEachRemaining((message) -> table.add(message));
+		}
+	}
+	
+	/**
+	 * ORs a range of words of the worker tables into the target bit vector and returns the number of bits it set.
+	 */
+	private static class OrTask extends RecursiveTask<Long> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private BitVector target;
+		private List<HashTable> tables;
+		private long from;
+		private long to;
+		
+		OrTask(BitVector target, List<HashTable> tables, long from, long to){
+			this.target = target;
+			this.tables = tables;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Long compute() {
+			
+			if(to - from > LEAF_WORDS){
+				long middle = (from + to) >>> 1;
+				OrTask right = new OrTask(target, tables, middle, to);
+				right.fork();
+				long left = new OrTask(target, tables, from, middle).compute();
+				return left + right.join();
+			}
+			
+			long bitsSet = 0;
+			for(long word = from; word < to; ++word){
+				
+				long merged = 0;
+				for(HashTable table: tables){
+					merged |= table.getTable().getWord(word);
+				}
+				
+				if(merged != 0){
+					bitsSet += target.mergeWord(word, merged);
+				}
+			}
+			
+			return bitsSet;
+		}
+	}
+
+}
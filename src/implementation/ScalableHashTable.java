@@ -0,0 +1,225 @@
+package implementation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import hashfunctions.HashFunction;
+
+/**
+ * Scalable Bloom filter which grows with the number of stored messages while keeping the theoretical
+ * percentage of false positives under a requested target.
+ * The filter is a chain of HashTable stages. Messages are added to the last stage, when it stores as many messages
+ * as it was sized for a new stage is added, with the capacity multiplied by the growth factor and the false positive 
+ * percentage multiplied by the tightening ratio. The false positive percentages of the stages form a geometric 
+ * series which sums up to the target, so the compound percentage stays under the target no matter how many stages are added. 
+ * A message is contained if any of the stages contains it. 
+ * Hashes of a message are calculated once, with the number of hashes of the last stage, and shared by all stages.
+ * Not thread-safe.
+ * 
+ * @author Bruno
+ *
+ */
+public class ScalableHashTable {
+	
+	public static final int DEFAULT_GROWTH_FACTOR = 2;
+	public static final double DEFAULT_TIGHTENING_RATIO = 0.85;
+	
+	private List<HashTable> stages = new ArrayList<>();
+	private HashFunction hashFunction;
+	private double targetFPPercentage;
+	private int growthFactor;
+	private double tighteningRatio;
+	private long initialCapacity;
+	private long stageCapacity;
+	private double stageFPPercentage;
+	private int[] hashes = new int[0];
+
+	/**
+	 * Default constructor. Takes the number of messages the first stage is sized for, the target theoretical 
+	 * false positive percentage, the factor the capacity of every new stage is multiplied by and the ratio the false
+	 * positive percentage of every new stage is multiplied by. 
+	 * Also takes a hash function the Bloom filter will use for generating addresses.
+	 * @param initialCapacity number of messages the first stage is sized for
+	 * @param targetFPPercentage theoretical false positive percentage the filter stays under
+	 * @param hashFunction hash function that will generate addresses
+	 * @param growthFactor factor the capacity of every new stage is multiplied by, at least 1
+	 * @param tighteningRatio ratio the false positive percentage of every new stage is multiplied by, between 0 and 1
+	 */
+	public ScalableHashTable(long initialCapacity, double targetFPPercentage, HashFunction hashFunction, 
+			int growthFactor, double tighteningRatio){
+		
+		if(initialCapacity <= 0 || growthFactor < 1 || tighteningRatio <= 0 || tighteningRatio >= 1 
+				|| targetFPPercentage <= 0 || targetFPPercentage >= 0.5){
+			throw new IllegalArgumentException("Invalid scalable Bloom filter parameters");
+		}
+		
+		this.hashFunction = hashFunction;
+		this.targetFPPercentage = targetFPPercentage;
+		this.growthFactor = growthFactor;
+		this.tighteningRatio = tighteningRatio;
+		this.initialCapacity = initialCapacity;
+		
+		addFirstStage();
+	}
+	
+	/**
+	 * Constructor that uses the default growth factor and tightening ratio.
+	 * @param initialCapacity number of messages the first stage is sized for
+	 * @param targetFPPercentage theoretical false positive percentage the filter stays under
+	 * @param hashFunction hash function that will generate addresses
+	 */
+	public ScalableHashTable(long initialCapacity, double targetFPPercentage, HashFunction hashFunction){
+		this(initialCapacity, targetFPPercentage, hashFunction, DEFAULT_GROWTH_FACTOR, DEFAULT_TIGHTENING_RATIO);
+	}
+	
+	/**
+	 * Adds the first stage, sized for the initial capacity. Its false positive percentage is the first member
+	 * of the geometric series summing up to the target percentage.
+	 */
+	private void addFirstStage(){
+		
+		stageCapacity = initialCapacity;
+		stageFPPercentage = targetFPPercentage * (1 - tighteningRatio);
+		addStage();
+	}
+	
+	/**
+	 * Adds a new stage sized for the current stage capacity and false positive percentage.
+	 */
+	private void addStage(){
+		
+		HashTable stage = new HashTable(stageCapacity, stageFPPercentage, hashFunction);
+		stages.add(stage);
+		
+		if(hashes.length < stage.getHashesPerMessage()){
+			hashes = new int[stage.hashCount()];
+		}
+	}
+	
+	/**
+	 * Adds an element to the last stage, adds a new stage first if the last one is full.
+	 * @param message message to be stored to the filter
+	 */
+	public void add(CharSequence message){
+		
+		HashTable last = stages.get(stages.size() - 1);
+		if(last.getMessagesStored() >= stageCapacity){
+			stageCapacity *= growthFactor;
+			stageFPPercentage *= tighteningRatio;
+			addStage();
+			last = stages.get(stages.size() - 1);
+		}
+		
+		hashFunction.getHasher().hash(message, last.hashCount(), hashes);
+		last.addHashes(hashes);
+	}
+	
+	/**
+	 * Adds the given collection to the filter by performing the add method on each member of the collection.
+	 * @param messages messages to be added to the filter
+	 */
+	public void addAll(Collection<? extends CharSequence> messages){
+		for(CharSequence message: messages){
+			add(message);
+		}
+	}
+	
+	/**
+	 * Check if the given message is contained in any of the stages (false positives possible).
+	 * @param message message to check the filter for
+	 * @return true if the message is contained (or in the case of a false positive), false otherwise
+	 */
+	public boolean contains(CharSequence message){
+		
+		hashFunction.getHasher().hash(message, stages.get(stages.size() - 1).hashCount(), hashes);
+		
+		for(int i = stages.size() - 1; i >= 0; --i){
+			if(stages.get(i).containsHashes(hashes)){
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Calculates the theoretical percentage of false positives of the whole filter, the probability that 
+	 * at least one of the stages returns a false positive.
+	 * @return expected percentage of false positive values returned by the contains function
+	 */
+	public double expectedFalsePositives(){
+		
+		double none = 1;
+		for(HashTable stage: stages){
+			none *= 1 - stage.expectedFalsePositives();
+		}
+		
+		return 1 - none;
+	}
+	
+	/**
+	 * Removes all the elements and all the stages, then adds a new first stage.
+	 */
+	public void clear(){
+		
+		stages.clear();
+		addFirstStage();
+	}
+	
+	/**
+	 * Estimates the number of distinct messages stored as the sum of the estimates of the stages.
+	 * @return estimated number of distinct messages
+	 */
+	public double estimatedCardinality(){
+		
+		double cardinality = 0;
+		for(HashTable stage: stages){
+			cardinality += stage.estimatedCardinality();
+		}
+		
+		return cardinality;
+	}
+	
+	public long getSize(){
+		long size = 0;
+		for(HashTable stage: stages){
+			size += stage.getSize();
+		}
+		return size;
+	}
+	
+	public long getMemoryUsage(){
+		long memory = 0;
+		for(HashTable stage: stages){
+			memory += stage.getMemoryUsage();
+		}
+		return memory;
+	}
+	
+	public long getMessagesStored(){
+		long messagesStored = 0;
+		for(HashTable stage: stages){
+			messagesStored += stage.getMessagesStored();
+		}
+		return messagesStored;
+	}
+	
+	public int getNumberOfStages(){
+		return stages.size();
+	}
+	
+	public double getTargetFPPercentage(){
+		return targetFPPercentage;
+	}
+	
+	public HashFunction getHashFunction(){
+		return hashFunction;
+	}
+	
+	public String toString(){
+		return "Scalable " + hashFunction.getName() + " stages: " + stages.size() + " size: " + getSize() 
+				+ " target FP percentage: " + targetFPPercentage; 
+	}
+
+}
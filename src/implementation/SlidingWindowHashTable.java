@@ -0,0 +1,277 @@
+package implementation;
+
+import java.util.concurrent.TimeUnit;
+
+import hashfunctions.HashFunction;
+
+/**
+ * Bloom filter over a sliding window of a stream, used for dropping duplicates seen recently.
+ * The filter is a ring of generations, HashTables of the same size, number of hashes per message and hash function.
+ * Messages are added to the current generation. When the current generation stores the given number of messages
+ * or has been current for the given duration, the oldest generation is cleared and becomes the current one,
+ * so a message is forgotten after it has not been added for at least (generations - 1) and at most
+ * generations rotations. Unlike clearing a single hash-table every window, messages added just before a
+ * rotation are still contained after it.
+ * A message is contained if any of the generations contains it. Since all generations have the same layout,
+ * the bit positions of a message are calculated once and checked in every generation.
+ * Not thread-safe.
+ *
+ * @author Bruno
+ *
+ */
+public class SlidingWindowHashTable {
+
+	private HashTable[] generations;
+	private int current;
+	private long messagesPerGeneration;
+	private long generationDuration;
+	private long generationStart;
+	private HashFunction hashFunction;
+	private int[] hashes;
+	private long[] positions;
+
+	/**
+	 * Default constructor. Takes the size, number of hashes per message and hash function of every generation,
+	 * the number of generations and the triggers for rotating the generations.
+	 * @param size size of every generation in bits
+	 * @param hashesPerMessage number of hashes per message
+	 * @param hashFunction hash function that will generate addresses
+	 * @param generations number of generations, at least 2
+	 * @param messagesPerGeneration number of messages after which the generations are rotated, 0 for no limit
+	 * @param generationDuration time after which the generations are rotated, 0 for no limit
+	 * @param unit unit of the generation duration
+	 */
+	public SlidingWindowHashTable(long size, int hashesPerMessage, HashFunction hashFunction, int generations,
+			long messagesPerGeneration, long generationDuration, TimeUnit unit){
+
+		if(generations < 2 || messagesPerGeneration < 0 || generationDuration < 0){
+			throw new IllegalArgumentException("Invalid sliding window Bloom filter parameters");
+		}
+
+		this.generations = new HashTable[generations];
+		for(int i = 0; i < generations; ++i){
+			this.generations[i] = new HashTable(size, hashesPerMessage, hashFunction);
+		}
+
+		this.hashFunction = hashFunction;
+		this.messagesPerGeneration = messagesPerGeneration;
+		this.generationDuration = unit.toNanos(generationDuration);
+		generationStart = System.nanoTime();
+		hashes = new int[this.generations[0].hashCount()];
+		positions = new long[hashesPerMessage];
+	}
+
+	/**
+	 * Constructor that rotates the generations after the given number of messages only. Every generation is sized
+	 * for that number of messages and the false positive percentage divided by the number of generations,
+	 * so the false positive percentage of the whole filter stays under the given one.
+	 * @param messagesPerGeneration number of messages after which the generations are rotated
+	 * @param falsePositivesPercentage theoretical false positive percentage of the whole filter
+	 * @param hashFunction hash function that will generate addresses
+	 * @param generations number of generations, at least 2
+	 */
+	public SlidingWindowHashTable(long messagesPerGeneration, double falsePositivesPercentage, HashFunction hashFunction,
+			int generations){
+		this(HashTable.optimalSize(messagesPerGeneration, falsePositivesPercentage / generations),
+				HashTable.optimalHashesPerMessage(falsePositivesPercentage / generations), hashFunction, generations,
+				messagesPerGeneration, 0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Adds an element to the current generation, rotating the generations first if a trigger has been reached.
+	 * @param message message to be stored to the filter
+	 */
+	public void add(CharSequence message){
+
+		rotateIfExpired();
+		rotateIfFull();
+		calculatePositions(message);
+		addPositions();
+	}
+
+	/**
+	 * Checks if the given message is contained in any of the generations and adds it to the current generation,
+	 * so it stays in the window for as long as it keeps being added. Hashes the message once for both operations.
+	 * @param message message to be checked and stored
+	 * @return true if the message was contained before adding it (or in the case of a false positive), false otherwise
+	 */
+	public boolean containsOrAdd(CharSequence message){
+
+		rotateIfExpired();
+		rotateIfFull();
+		calculatePositions(message);
+		boolean contained = containsPositions();
+		addPositions();
+
+		return contained;
+	}
+
+	/**
+	 * Check if the given message is contained in any of the generations (false positives possible).
+	 * @param message message to check the filter for
+	 * @return true if the message is contained (or in the case of a false positive), false otherwise
+	 */
+	public boolean contains(CharSequence message){
+
+		rotateIfExpired();
+		calculatePositions(message);
+		return containsPositions();
+	}
+
+	/**
+	 * Clears the oldest generation and makes it the current one.
+	 */
+	public void rotate(){
+
+		advance();
+		generationStart = System.nanoTime();
+	}
+
+	/**
+	 * Clears the oldest generation and makes it the current one, without restarting its duration.
+	 */
+	private void advance(){
+
+		current = (current + 1) % generations.length;
+
+		generations[current].clear();
+	}
+
+	/**
+	 * Rotates the generations if the current one is full, called only before adding a message.
+	 */
+	private void rotateIfFull(){
+
+		if(messagesPerGeneration > 0 && generations[current].getMessagesStored() >= messagesPerGeneration){
+			rotate();
+		}
+	}
+
+	/**
+	 * Rotates the generations if the current one has been current for too long. After a long pause
+	 * rotates once for every elapsed duration, but at most once for every generation. The new generation 
+	 * starts where the elapsed durations end, so the remainder of a duration is not lost on every rotation
+	 * and the generations stay aligned to the durations. Only when every generation expired the window
+	 * restarts at the current time.
+	 */
+	private void rotateIfExpired(){
+
+		if(generationDuration > 0){
+			long now = System.nanoTime();
+			long elapsed = (now - generationStart) / generationDuration;
+
+			if(elapsed >= generations.length){
+				for(int i = 0; i < generations.length; ++i){
+					advance();
+				}
+				generationStart = now;
+			}
+			else if(elapsed > 0){
+				for(long i = 0; i < elapsed; ++i){
+					advance();
+				}
+				generationStart += elapsed * generationDuration;
+			}
+		}
+	}
+
+	private void calculatePositions(CharSequence message){
+
+		hashFunction.getHasher().hash(message, hashes.length, hashes);
+		generations[current].positions(hashes, positions, 0);
+	}
+
+	private void addPositions(){
+
+		BitVector table = generations[current].getTable();
+		for(long position: positions){
+			table.set(position);
+		}
+
+		generations[current].messagesAdded(1);
+	}
+
+	/**
+	 * Checks the positions in every generation, starting from the current one.
+	 */
+	private boolean containsPositions(){
+
+		for(int i = 0; i < generations.length; ++i){
+
+			BitVector table = generations[Math.floorMod(current - i, generations.length)].getTable();
+
+			boolean contained = true;
+			for(long position: positions){
+				if(!table.get(position)){
+					contained = false;
+					break;
+				}
+			}
+
+			if(contained){
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Calculates the theoretical percentage of false positives of the whole filter, the probability that
+	 * at least one of the generations returns a false positive.
+	 * @return expected percentage of false positive values returned by the contains function
+	 */
+	public double expectedFalsePositives(){
+
+		double none = 1;
+		for(HashTable generation: generations){
+			none *= 1 - generation.expectedFalsePositives();
+		}
+
+		return 1 - none;
+	}
+
+	/**
+	 * Removes all the elements from all the generations.
+	 */
+	public void clear(){
+
+		for(int i = 0; i < generations.length; ++i){
+			rotate();
+		}
+	}
+
+	public long getMemoryUsage(){
+		long memory = 0;
+		for(HashTable generation: generations){
+			memory += generation.getMemoryUsage();
+		}
+		return memory;
+	}
+
+	public long getMessagesStored(){
+		long messagesStored = 0;
+		for(HashTable generation: generations){
+			messagesStored += generation.getMessagesStored();
+		}
+		return messagesStored;
+	}
+
+	public int getNumberOfGenerations(){
+		return generations.length;
+	}
+
+	public long getMessagesPerGeneration(){
+		return messagesPerGeneration;
+	}
+
+	public HashFunction getHashFunction(){
+		return hashFunction;
+	}
+
+	public String toString(){
+		return "Sliding window " + hashFunction.getName() + " generations: " + generations.length
+				+ " size: " + generations[0].getSize() + " hashes per message: " + generations[0].getHashesPerMessage();
+	}
+
+}
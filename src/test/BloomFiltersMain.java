@@ -2,28 +2,42 @@ package test;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.BufferedReader;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import hashfunctions.HashFunction;
+import implementation.CountingHashTable;
+import implementation.CuckooFilter;
 import implementation.HashTable;
+import implementation.IndexStrategy;
+import testresults.UniformityTestResult;
 
 /**
  * Main class that starts the test.
+ * <p>
+ * Arguments, all optional: -threads number of threads running independent filters and trials concurrently,
+ * -seed seed of the generated messages, the same seed gives the same results.
  * @author Bruno
  *
  */
 public class BloomFiltersMain {
 
+	static final byte[] TEST_KEY = "bloom filter test key".getBytes(StandardCharsets.UTF_8);
+	
 	static Workbook workbook;
 	static Sheet sheet;
 	
@@ -33,8 +47,15 @@ public class BloomFiltersMain {
 		
 		int N = 90000, k = 3, m = 8400, growthFactor = 2, testMessageLength = 50; 
 		
+		Map<String, String> options = Options.parse(args);
+		int threads = Integer.parseInt(options.getOrDefault("threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+		long seed = Long.parseLong(options.getOrDefault("seed", Long.toString(System.currentTimeMillis())));
+		System.out.println("Running on " + threads + " threads, seed: " + seed);
+		
 		LinkedList<HashTable> bloomFilters = generateBloomFilters(N, k, HashFunction.values());
-		BloomFiltersTester tester = BloomFiltersTester.produceTester();						
+		bloomFilters.add(new CountingHashTable(N, k, HashFunction.Murmur3));
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		BloomFiltersTester tester = BloomFiltersTester.produceTester(pool, seed);						
 		
 		FileOutputStream outputStream = setupOutputStream();
 	
@@ -42,7 +63,7 @@ public class BloomFiltersMain {
 		ExcellWriter writer = new ExcellWriter(sheet, 0);		
 	
 		System.out.println("Generating test messages");		
-		LinkedList<String> messages = tester.generateMessages(m, testMessageLength);
+		MessageArena messages = tester.generateMessages(m, testMessageLength);
 		
 					
 		testUniformity(bloomFilters, tester, messages, writer, growthFactor);
@@ -56,6 +77,8 @@ public class BloomFiltersMain {
 		testBloomFilterSize(tester, messages, writer);
 		
 		writeToWorkbook(outputStream);
+		
+		pool.shutdown();
 				
 		System.out.println("Testing done.");
 	}
@@ -64,7 +87,7 @@ public class BloomFiltersMain {
 	
 	/**
 	 * Generates HashTable entities (Bloom filters) with the given parameters. 
-	 * Generates one entity for each hash function in the given field
+	 * Generates one entity for each hash function in the given field, keyed hash functions use a fixed test key
 	 * 
 	 * @param N size
 	 * @param k number of hashes per message
@@ -77,7 +100,8 @@ public class BloomFiltersMain {
 		LinkedList<HashTable> bloomFilters = new LinkedList<>();
 		
 		for(HashFunction hashFunction: hashFunctions){
-			bloomFilters.add(new HashTable(N, k, hashFunction));
+			bloomFilters.add(hashFunction.isKeyed() ? new HashTable(N, k, IndexStrategy.forSize(N), TEST_KEY) 
+					: new HashTable(N, k, hashFunction));
 		}
 		
 		return bloomFilters;		
@@ -122,6 +146,7 @@ public class BloomFiltersMain {
 	
 	/**
 	 * Tests uniformity of a list of Bloom filters and writes the test results using an ExcellWriter entity.
+	 * Bloom filters are tested concurrently, the results are written in the order of the list.
 	 * 
 	 * @param bloomFilters list of HashTable entities that are to be tested 
 	 * @param tester BloomFilterTester entity to carry the test out
@@ -129,20 +154,23 @@ public class BloomFiltersMain {
 	 * @param writer writes the results to an Excell sheet
 	 * @param growthFactor factor to determine the test subgroups
 	 */
-	public static void testUniformity(LinkedList<HashTable> bloomFilters, BloomFiltersTester tester,LinkedList<String> messages, ExcellWriter writer, int growthFactor){
+	public static void testUniformity(LinkedList<HashTable> bloomFilters, BloomFiltersTester tester,MessageArena messages, ExcellWriter writer, int growthFactor){
 		
 		System.out.println("Starting uniformity tests:");
 		
-		for(HashTable bloomFilter: bloomFilters){
-			System.out.println("testing uniformity for bloom filter: " + bloomFilter.toString());
+		ArrayList<ArrayList<UniformityTestResult>> results = tester.testUniformity(bloomFilters, messages, growthFactor);
+		
+		for(int i = 0; i < bloomFilters.size(); ++i){
+			System.out.println("tested uniformity for bloom filter: " + bloomFilters.get(i).toString());
 			
-			writer.processUniformityTestResults(bloomFilter,tester.testUniformity(bloomFilter, messages, growthFactor));
+			writer.processUniformityTestResults(bloomFilters.get(i), results.get(i));
 		} 
 	}
 	
 	/**
 	 * Tests speed of a list of Bloom filters and writes the test results using an ExcellWriter entity.
-	 * Also creates a new HashSet entity and does the same
+	 * Also creates a cuckoo filter using the same memory as the first Bloom filter and a new HashSet entity and does the same.
+	 * Speed tests run one after another, never concurrently with other tests.
 	 * 
 	 * @param bloomFilters list of HashTable entities that are to be tested 
 	 * @param tester BloomFilterTester entity to carry the test out
@@ -150,7 +178,7 @@ public class BloomFiltersMain {
 	 * @param writer writes the results to an Excell sheet
 	 * @param growthFactor factor to determine the test subgroups
 	 */
-	public static void testSpeed(LinkedList<HashTable> bloomFilters, BloomFiltersTester tester,LinkedList<String> messages, ExcellWriter writer, int growthFactor){
+	public static void testSpeed(LinkedList<HashTable> bloomFilters, BloomFiltersTester tester,MessageArena messages, ExcellWriter writer, int growthFactor){
 		
 		System.out.println("Starting speed tests:");
 		
@@ -161,26 +189,47 @@ public class BloomFiltersMain {
 			writer.processSpeedTestResults(bloomFilter, tester.testSpeed((t)->bloomFilter.addAll(t), messages, 2000));
 		}
 		
-		HashSet<String> hashSet = new HashSet<>();
+		HashTable first = bloomFilters.getFirst();
+		int fingerprintBits = 8;
+		CuckooFilter cuckooFilter = new CuckooFilter(first.getMemoryUsage() * Byte.SIZE / (CuckooFilter.BUCKET_SIZE * fingerprintBits), 
+				fingerprintBits, first.getHashFunction());
+		System.out.println("testing speed for cuckoo filter: " + cuckooFilter.toString());
+		writer.processSpeedTestResults(cuckooFilter.toString() + " memory used / bytes: " + cuckooFilter.getMemoryUsage(), 
+				tester.testSpeed((t)->cuckooFilter.addAll(t), messages, 2000));
+		
+		HashSet<CharSequence> hashSet = new HashSet<>();
 		writer.processSpeedTestResults(bloomFilters.getLast(), tester.testSpeed((t)->hashSet.addAll(t), messages, 2000));
 
 	}
 	
 	/**
-	 * Loads messages from a given string which holds a file path.
+	 * Loads messages from a given string which holds a file path, one message per line.
+	 * Lines are packed into the store as they are read, lines that are not DNA sequences are skipped
+	 * and their number is reported.
 	 * 
 	 * @param sourcePath path to the file which holds the messages
 	 * 
-	 * @return list of messages loaded from the file
+	 * @return store of messages loaded from the file
 	 */
-	public static LinkedList<String> loadTestMessages(String sourcePath){
+	public static MessageArena loadTestMessages(String sourcePath){
 		
-		LinkedList<String> messages = new LinkedList<>();
+		MessageArena messages = new MessageArena();
 		System.out.println("Loading resources from: " + sourcePath);
 		
 		Path inputPath = Paths.get(sourcePath);
-		try {
-			messages.addAll(Files.readAllLines(inputPath));
+		try (BufferedReader reader = Files.newBufferedReader(inputPath)) {
+			
+			messages = new MessageArena(Files.size(inputPath));
+			int skipped = 0;
+			for(String line = reader.readLine(); line != null; line = reader.readLine()){
+				try {
+					messages.append(line);
+				} catch (IllegalArgumentException e) {
+					skipped++;
+				}
+			}
+			
+			System.out.println("Loaded " + messages.size() + " messages, skipped " + skipped + " lines that are not DNA sequences");
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			System.out.println(e.getMessage() + "Unable to load resources");
@@ -197,7 +246,7 @@ public class BloomFiltersMain {
 	 * @param tester BloomFilterTester entity to carry the test out
 	 * @param writer writes the results to an Excell sheet
 	 */
-	public static void testFalsePositives(LinkedList<String> messages, BloomFiltersTester tester, ExcellWriter writer){
+	public static void testFalsePositives(MessageArena messages, BloomFiltersTester tester, ExcellWriter writer){
 		System.out.println("FP convergence test");
 		HashTable bf = new HashTable(messages.size(), 0.01, HashFunction.Murmur3);
 		
@@ -213,7 +262,7 @@ public class BloomFiltersMain {
 	 * @param messages set of messages to be used for the tests
 	 * @param writer writes the results to an Excell sheet
 	 */
-	public static void testBloomFilterSize(BloomFiltersTester tester, LinkedList<String> messages, ExcellWriter writer){
+	public static void testBloomFilterSize(BloomFiltersTester tester, MessageArena messages, ExcellWriter writer){
 		System.out.println("Testing false positives variations. Messages to be stored: " + messages.size());
 		writer.processSizeTestResults(tester.testSizeForFP(messages, 16));
 	}
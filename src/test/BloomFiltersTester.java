@@ -1,12 +1,19 @@
 package test;
 
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import hashfunctions.HashFunction;
+import implementation.BinaryFuseFilter;
+import implementation.BlockedHashTable;
+import implementation.ConcurrentHashTable;
 import implementation.HashTable;
 import testresults.ConvergenceTestResult;
 import testresults.SizeTestResult;
@@ -22,19 +29,70 @@ public class BloomFiltersTester {
 	
 	
 	/**
-	 * Static getter that returns a new BloomFilterTester entity.
+	 * Static getter that returns a new BloomFilterTester entity, running its tasks in the common fork-join pool
+	 * with messages seeded by the current time.
 	 * @return new BloomFilterTester entity
 	 */
 	public static BloomFiltersTester produceTester(){
-		return new BloomFiltersTester();
+		return produceTester(ForkJoinPool.commonPool(), System.currentTimeMillis());
+	}
+
+	/**
+	 * Static getter that returns a new BloomFilterTester entity.
+	 * @param pool pool to run independent filters and trials in
+	 * @param seed seed of the generated messages, the same seed generates the same messages in every run
+	 * @return new BloomFilterTester entity
+	 */
+	public static BloomFiltersTester produceTester(ForkJoinPool pool, long seed){
+		return new BloomFiltersTester(pool, seed);
 	}
 
 	private int messageLength = 30;
-	
+	private ForkJoinPool pool;
+	private SplittableRandom random;
+
+	/**
+	 * Default constructor. Independent filters and trials are run as tasks of the given pool.
+	 * Every generated set of messages gets its own random stream split from the seeded one, the streams are split
+	 * by the calling thread in the order the sets are requested, so results do not depend on the order the tasks run in.
+	 * A tester should be used by a single thread, which waits for the tasks it starts.
+	 *
+	 * @param pool pool to run independent filters and trials in
+	 * @param seed seed of the generated messages
+	 */
+	public BloomFiltersTester(ForkJoinPool pool, long seed){
+		this.pool = pool;
+		this.random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Tests uniformity of every given HashTable entity, running the tests of different HashTables concurrently.
+	 *
+	 * @param bloomFilters HashTable entities on which the tests will be carried out, none of them shared with another test
+	 * @param messages test set that will be added to every hash table
+	 * @param growthFactor to be delegated
+	 *
+	 * @return lists of result data, in the order of the given HashTables
+	 */
+	public ArrayList<ArrayList<UniformityTestResult>> testUniformity(List<HashTable> bloomFilters, MessageArena messages, int growthFactor){
+
+		ArrayList<ForkJoinTask<ArrayList<UniformityTestResult>>> tasks = new ArrayList<>();
+		for(HashTable bloomFilter: bloomFilters){
+			tasks.add(pool.submit(() -> testUniformity(bloomFilter, messages, growthFactor)));
+		}
+
+		ArrayList<ArrayList<UniformityTestResult>> results = new ArrayList<>();
+		for(ForkJoinTask<ArrayList<UniformityTestResult>> task: tasks){
+			results.add(task.join());
+		}
+
+		return results;
+	}
+
 	/**
 	 * Tests uniformity of the hash function that is used by a given HashTable entity. 
 	 * Does so by gradually adding given messages to the HashTable and delegating the HashTable to a UniformityTestResult 
-	 * entity that saves the information . The UniformityTestResult entities are then saved to a LinkedList.
+	 * entity that saves the information . The UniformityTestResult entities are then saved to a list.
 	 *  
 	 * @param bloomFilter HashTable entity on which the tests will be carried out 
 	 * @param messages test set that will be added to the hash table
@@ -43,9 +101,9 @@ public class BloomFiltersTester {
 	 * 
 	 * @return list of result data modeled in a UniformityTestResult entity
 	 */
-	public LinkedList<UniformityTestResult> testUniformity(HashTable bloomFilter, LinkedList<String> messages, int growthFactor){
+	public ArrayList<UniformityTestResult> testUniformity(HashTable bloomFilter, MessageArena messages, int growthFactor){
 		
-		LinkedList<UniformityTestResult> results = new LinkedList<>();
+		ArrayList<UniformityTestResult> results = new ArrayList<>();
 		
 		for(int i=0,j = 1; j<messages.size(); i=j, j*=growthFactor){
 		
@@ -66,14 +124,17 @@ public class BloomFiltersTester {
 	 * 
 	 * @return result of the overloaded testUnifomiry function
 	 */
-	public LinkedList<UniformityTestResult> testUniformity(HashTable bloomFilter, int m, int growthFactor){
+	public ArrayList<UniformityTestResult> testUniformity(HashTable bloomFilter, int m, int growthFactor){
 		return testUniformity(bloomFilter,generateMessages(m,messageLength), growthFactor);
 	}
 	
 	
 	/**
-	 * Tests speed the given function needs to process a given list of strings.
+	 * Tests speed the given function needs to process a given store of messages.
+	 * The function is given sublists of the store, which are views and are not copied.
 	 * Saves the results in a List of SpeedTestResult entities.
+	 * Speed tests are isolated, the test waits until no task of the pool is running and then runs in the calling thread,
+	 * so the timings are not disturbed by concurrent work of the tester.
 	 * 
 	 * @param function function to be timed
 	 * @param messages messages the function will process
@@ -82,10 +143,12 @@ public class BloomFiltersTester {
 	 * 
 	 * @return list of SpeedTestResult entities 
 	 */
- 	public LinkedList<SpeedTestResult> testSpeed(Consumer<List<String>> function, LinkedList<String> messages, int growthFactor){
+ 	public ArrayList<SpeedTestResult> testSpeed(Consumer<List<CharSequence>> function, MessageArena messages, int growthFactor){
  		
- 		LinkedList<SpeedTestResult> results = new LinkedList<>();
-		List<String> subList;
+ 		pool.awaitQuiescence(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+ 		
+ 		ArrayList<SpeedTestResult> results = new ArrayList<>();
+		List<CharSequence> subList;
 		long startingTime, currentTime = 0;
 		
 		for(int i=0,j=1 ; j<messages.size(); i=j, j+=growthFactor){			
@@ -111,7 +174,7 @@ public class BloomFiltersTester {
 	 * 
 	 * @return result of the overloaded testSpeed function
 	 */
- 	public LinkedList<SpeedTestResult> testSpeed(Consumer<List<String>> function, int m, int growthFactor){
+ 	public ArrayList<SpeedTestResult> testSpeed(Consumer<List<CharSequence>> function, int m, int growthFactor){
 		return testSpeed(function,generateMessages(m,messageLength ), growthFactor);
 	}
  	
@@ -120,6 +183,10 @@ public class BloomFiltersTester {
  	
  	/**
  	 * Generates Bloom filter HashTables with different theoretical false positive percentages and tests those percentages.
+ 	 * Percentages are tested concurrently, every one with its own HashTables.
+ 	 * For every percentage also tests a BlockedHashTable of the same size and number of hashes per message, 
+ 	 * to show the false positive penalty of keeping the bits of a message inside one cache line,
+ 	 * and a binary fuse filter with the smallest fingerprint that reaches the percentage, to compare the bits per message.
  	 * Saves test results to a list of SizeTestResult entities. 
  	 *
  	 * @param messages messages to be added to every generated HashTable
@@ -128,20 +195,42 @@ public class BloomFiltersTester {
  	 * 						
  	 * @return list of SizeTestResult entities which hold all useful test result data
  	*/
- 	public LinkedList<SizeTestResult> testSizeForFP(LinkedList<String> messages, double maxPercentage){
+ 	public ArrayList<SizeTestResult> testSizeForFP(MessageArena messages, double maxPercentage){
  		
- 		LinkedList<String> testSet = generateMessages(messages.size(), messages.getFirst().length());
- 		LinkedList<SizeTestResult> results = new LinkedList<>();
+ 		MessageArena testSet = generateMessages(messages.size(), messages.get(0).length());
+ 		ArrayList<SizeTestResult> results = new ArrayList<>();
  		double factor = Math.sqrt(Math.sqrt(2));
+		ForkJoinTask<BinaryFuseFilter> fuseTask8 = pool.submit(() -> new BinaryFuseFilter(messages, Byte.SIZE, HashFunction.Murmur3));
+		ForkJoinTask<BinaryFuseFilter> fuseTask16 = pool.submit(() -> new BinaryFuseFilter(messages, Short.SIZE, HashFunction.Murmur3));
+		BinaryFuseFilter fuseFilter8 = fuseTask8.join();
+		BinaryFuseFilter fuseFilter16 = fuseTask16.join();
+		ForkJoinTask<Double> fuseTestedFP8 = pool.submit(() -> (double)countFalsePositives((t) -> fuseFilter8.contains(t), testSet, messages)/testSet.size());
+		ForkJoinTask<Double> fuseTestedFP16 = pool.submit(() -> (double)countFalsePositives((t) -> fuseFilter16.contains(t), testSet, messages)/testSet.size());
  		
+ 		ArrayList<ForkJoinTask<SizeTestResult>> tasks = new ArrayList<>();
  		for(double i = maxPercentage; i>0.5;i/=factor){
  		
- 			HashTable bloomFilter = new HashTable(messages.size(), i/100, HashFunction.Murmur3);
- 			
- 			bloomFilter.addAll(messages);
- 			results.add(new SizeTestResult(bloomFilter.getSize(), bloomFilter.getHashesPerMessage(), bloomFilter.expectedFalsePositives(), 
- 					(double)countFalsePositives(bloomFilter, testSet, messages)/testSet.size()));
+ 			double percentage = i;
+ 			tasks.add(pool.submit(() -> {
+ 				HashTable bloomFilter = new HashTable(messages.size(), percentage/100, HashFunction.Murmur3);
+ 				HashTable blockedBloomFilter = new BlockedHashTable(messages.size(), percentage/100, HashFunction.Murmur3, 
+ 						BlockedHashTable.CACHE_LINE_BLOCK_SIZE);
+ 				
+ 				bloomFilter.addAll(messages);
+ 				blockedBloomFilter.addAll(messages);
+ 				boolean fuse8 = fuseFilter8.expectedFalsePositives() <= percentage/100;
+ 				return new SizeTestResult(bloomFilter.getSize(), bloomFilter.getHashesPerMessage(), bloomFilter.expectedFalsePositives(), 
+ 						(double)countFalsePositives(bloomFilter, testSet, messages)/testSet.size(),
+ 						(double)countFalsePositives(blockedBloomFilter, testSet, messages)/testSet.size(),
+ 						(double)bloomFilter.getSize()/messages.size(),
+ 						fuse8 ? fuseFilter8.getBitsPerMessage() : fuseFilter16.getBitsPerMessage(),
+ 						fuse8 ? fuseTestedFP8.join() : fuseTestedFP16.join());
+ 			}));
+ 		
+ 		}
  		
+ 		for(ForkJoinTask<SizeTestResult> task: tasks){
+ 			results.add(task.join());
  		}
  		
  		return results;
@@ -150,6 +239,8 @@ public class BloomFiltersTester {
  	/**
  	 * Tests convergence of results of false positive tests to a theoretical false positive value of the Blooms filter HashTable.
  	 * Adds the newly calculated average false positive percentage to a new ConvergenceTestResult to be added to the list.
+ 	 * Tests run concurrently, each with its own test set from its own random stream. The worker threads check one shared
+ 	 * ConcurrentHashTable, the averages are calculated in the order of the tests.
  	 *  
  	 * @param messages to be added to the HashTable
  	 * @param falsePositivesPercentage theoretical false positive percentage to test the convergence for 
@@ -157,24 +248,28 @@ public class BloomFiltersTester {
  	 * 
  	 * @return list of ConvergenceTestResult entities
  	 */
- 	public LinkedList<ConvergenceTestResult> testFPConvergence(LinkedList<String> messages, double falsePositivesPercentage, int numOfTests){
+ 	public ArrayList<ConvergenceTestResult> testFPConvergence(MessageArena messages, double falsePositivesPercentage, int numOfTests){
  		
- 		LinkedList<ConvergenceTestResult> results = new LinkedList<>();
- 		HashTable bloomFilter = new HashTable(messages.size(), falsePositivesPercentage, HashFunction.Murmur3);
+ 		ArrayList<ConvergenceTestResult> results = new ArrayList<>();
+ 		HashTable bloomFilter = new ConcurrentHashTable(messages.size(), falsePositivesPercentage, HashFunction.Murmur3);
  		
  		bloomFilter.addAll(messages);
  		
+ 		ArrayList<ForkJoinTask<Double>> trials = new ArrayList<>();
  		for(int i = 0; i< numOfTests;++i){
  		
- 			LinkedList<String> testSet = generateMessages(messages.size(), messages.getFirst().length());
- 			
- 			if(i==0){
- 	 			results.add(new ConvergenceTestResult(i, (double)countFalsePositives(bloomFilter, testSet, messages)/testSet.size()));
- 			} else {
- 				results.add(new ConvergenceTestResult(i, 
- 						(results.getLast().getAvarageFPPercentage()*i + (double)countFalsePositives(bloomFilter, testSet, messages)/testSet.size())/(i+1)));
- 			}
+ 			SplittableRandom stream = random.split();
+ 			trials.add(pool.submit(() -> {
+ 				MessageArena testSet = generateMessages(messages.size(), messages.get(0).length(), stream);
+ 				return (double)countFalsePositives(bloomFilter, testSet, messages)/testSet.size();
+ 			}));
+ 		}
+ 		
+ 		double sum = 0;
+ 		for(int i = 0; i< numOfTests;++i){
  			
+ 			sum += trials.get(i).join();
+ 			results.add(new ConvergenceTestResult(i, sum/(i+1)));
  		}
  		return results; 		
  	}
@@ -191,60 +286,74 @@ public class BloomFiltersTester {
  	 * 
  	 * @return number of false positives found in the Bloom filter
  	 */
- 	public int countFalsePositives(HashTable bloomFilter, LinkedList<String> testSet, LinkedList<String> messages){
+ 	public int countFalsePositives(HashTable bloomFilter, MessageArena testSet, MessageArena messages){
+ 		return countFalsePositives((t) -> bloomFilter.contains(t), testSet, messages);
+ 	}
+ 	
+ 	/**
+ 	 * Counts false positive results of any filter given by its contains function for a given set of test messages.
+ 	 * Only the test messages contained by the filter are kept, with their number of occurrences, and the stored
+ 	 * messages are then passed once to remove the ones really stored, so no set of all the stored messages is built.
+ 	 * 
+ 	 * @param filter contains function of the filter that will be tested for false positives 
+ 	 * @param testSet set of messages that will be used for testing for false positives
+ 	 * @param messages set of messages that is already added to the filter
+ 	 * 
+ 	 * @return number of false positives found in the filter
+ 	 */
+ 	public int countFalsePositives(Predicate<CharSequence> filter, MessageArena testSet, MessageArena messages){
  		
  		int falsePositives = 0;
- 		HashSet<String> searchSet = new HashSet<>(messages);
+ 		HashMap<CharSequence, Integer> positives = new HashMap<>();
 		
- 		for(String testMessage: testSet){
+ 		for(CharSequence testMessage: testSet){
 		
- 			if(bloomFilter.contains(testMessage) && !searchSet.contains(testMessage)){
-				falsePositives++;
+ 			if(filter.test(testMessage)){
+				positives.merge(testMessage, 1, Integer::sum);
 			}
 		
  		}
+ 		
+ 		for(CharSequence message: messages){
+ 			
+ 			if(positives.isEmpty()){
+ 				break;
+ 			}
+ 			positives.remove(message);
+ 		}
+ 		
+ 		for(int occurrences: positives.values()){
+ 			falsePositives += occurrences;
+ 		}
 		
  		return falsePositives;
  	}
 	
  	/**
  	 * Generates a given number of random "A","C","G","T" sequences of the given length.  
+ 	 * The sequences are packed into a MessageArena, no String is created for them.
  	 * 
  	 * @param numOfMessages number of sequences to generate
  	 * @param messageLength length of every generated sequence
  	 * 
- 	 * @return list of generated strings
+ 	 * @return store of generated sequences
  	 */
-	public LinkedList<String> generateMessages(int numOfMessages, int messageLength){
-		
-		LinkedList<String> messages = new LinkedList<>();
-		Random random = new Random(System.currentTimeMillis());
-		
-		for(int i = 0; i<numOfMessages;++i){
-		
-			String message = "";
-			for(int j = 0; j<messageLength;++j){
-			
-				switch(random.nextInt(4)){
-					case 0:
-						message += "A";
-						break;
-					case 1:
-						message += "C";
-						break;
-					case 2:
-						message += "G";
-						break;
-					case 3:
-						message += "T";
-						break;
-				}
-			}
-			
-			messages.add(message);
-		}
-		
-		return messages;
-	}	
+	public MessageArena generateMessages(int numOfMessages, int messageLength){
+		return generateMessages(numOfMessages, messageLength, random.split());
+	}
+	
+	/**
+	 * Generates a given number of random "A","C","G","T" sequences of the given length from the given random stream.
+	 * Can be called by the tasks of the pool, every task with its own stream.
+	 * 
+	 * @param numOfMessages number of sequences to generate
+	 * @param messageLength length of every generated sequence
+	 * @param stream random stream of the sequences, split from the seeded stream of the tester
+	 * 
+	 * @return store of generated sequences
+	 */
+	public MessageArena generateMessages(int numOfMessages, int messageLength, SplittableRandom stream){
+		return MessageArena.generate(numOfMessages, messageLength, stream);
+	}
 	
 }
@@ -1,6 +1,6 @@
 package test;
 
-import java.util.LinkedList;
+import java.util.List;
 import java.util.function.Function;
 
 import org.apache.poi.ss.usermodel.Cell;
@@ -57,7 +57,7 @@ public class ExcellWriter {
 	 * @param testResults list which contains the test result
 	 */
 	private void writeTestResults(Function<Integer, Number> function,
-			LinkedList<? extends TestResult> testResults) {
+			List<? extends TestResult> testResults) {
 		for (int i = 1; i < testResults.size(); ++i) {
 			cell = row.createCell(i);
 			cell.setCellValue(function.apply(i).doubleValue());
@@ -70,12 +70,14 @@ public class ExcellWriter {
 	 * @param bloomFilter HashTable entity on which the test were carried out
 	 * @param testResults list of test results
 	 */
-	public void processUniformityTestResults(HashTable bloomFilter, LinkedList<UniformityTestResult> testResults) {
+	public void processUniformityTestResults(HashTable bloomFilter, List<UniformityTestResult> testResults) {
 
 		createRow("UNIFORMITY TEST");
 
 		createRow(bloomFilter.toString());
 
+		createRow("Memory used / bytes: " + bloomFilter.getMemoryUsage());
+
 		createRow("Number of generated messages");
 		writeTestResults((i) -> testResults.get(i).getM(), testResults);
 
@@ -100,11 +102,21 @@ public class ExcellWriter {
 	 * @param bloomFilter HashTable entity on which the test were carried out
 	 * @param testResults list of test results
 	 */
-	public void processSpeedTestResults(HashTable bloomFilter, LinkedList<SpeedTestResult> testResults) {
+	public void processSpeedTestResults(HashTable bloomFilter, List<SpeedTestResult> testResults) {
+		processSpeedTestResults(bloomFilter.toString(), testResults);
+	}
+
+	/**
+	 * Writes speed test results to an Excell sheet.
+	 * 
+	 * @param description description of the structure on which the test were carried out
+	 * @param testResults list of test results
+	 */
+	public void processSpeedTestResults(String description, List<SpeedTestResult> testResults) {
 
 		createRow("SPEED TEST");
 
-		createRow(bloomFilter.toString());
+		createRow(description);
 
 		createRow("Number of generated messages");
 		writeTestResults((i) -> testResults.get(i).getMessagesAdded(), testResults);
@@ -121,7 +133,7 @@ public class ExcellWriter {
 	 * 
 	 * @param testResults list of test results
 	 */
-	public void processSizeTestResults(LinkedList<SizeTestResult> testResults) {
+	public void processSizeTestResults(List<SizeTestResult> testResults) {
 
 
 		createRow("TESTING CHANGES ON THE BF SIZE AND K GIVEN FP RATE");
@@ -140,6 +152,18 @@ public class ExcellWriter {
 		createRow("Tested FP percentage");
 		writeTestResults((i) -> testResults.get(i).getTestedFPPercentage(), testResults);
 
+		createRow("Tested FP percentage, blocked (512 bit blocks)");
+		writeTestResults((i) -> testResults.get(i).getBlockedTestedFPPercentage(), testResults);
+
+		createRow("Bits per message");
+		writeTestResults((i) -> testResults.get(i).getBitsPerMessage(), testResults);
+
+		createRow("Bits per message, binary fuse (smallest fingerprint under the FP percentage)");
+		writeTestResults((i) -> testResults.get(i).getFuseBitsPerMessage(), testResults);
+
+		createRow("Tested FP percentage, binary fuse");
+		writeTestResults((i) -> testResults.get(i).getFuseTestedFPPercentage(), testResults);
+
 	}
 
 	/**
@@ -148,7 +172,7 @@ public class ExcellWriter {
 	 * @param bloomFilter HashTable entity on which the test were carried out
 	 * @param testResults list of test results
 	 */
-	public void processConvergenceTestResults(HashTable bloomFilter, LinkedList<ConvergenceTestResult> testResults) {
+	public void processConvergenceTestResults(HashTable bloomFilter, List<ConvergenceTestResult> testResults) {
 
 		createRow("Convergence of false positives");
 		createRow(bloomFilter.toString());
@@ -0,0 +1,300 @@
+package test;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+
+/**
+ * Compact store of DNA test messages. Bases are packed 2 bits each (A=0, C=1, G=2, T=3) into one long array,
+ * the messages one after another, so 100 million messages of 30 bases take 750 MB instead of tens of GB of Strings.
+ * Offsets of the messages are kept only once messages of different lengths are stored, for messages of
+ * equal length they are calculated.
+ * <p>
+ * The store is a random access list of CharSequence views of the messages, so it can be passed to anything that
+ * takes a collection of messages. A view holds only the index of its message and decodes the bases when read,
+ * views of equal messages are equal. A view is never equal to a String, not even one holding the same bases. Sublists are views as well, slicing the store does not copy anything.
+ * Not thread-safe while messages are appended, reading a filled store from many threads is safe.
+ *
+ * @author Bruno
+ *
+ */
+public class MessageArena extends AbstractList<CharSequence> implements RandomAccess {
+
+	private static final int BASES_PER_WORD = Long.SIZE / 2;
+	private static final char[] BASES = {'A', 'C', 'G', 'T'};
+
+	private long[] words;
+	private long[] offsets;
+	private int messageLength = -1;
+	private int count;
+	private long basesStored;
+
+	/**
+	 * Default constructor. Creates an empty store, the capacity grows as messages are appended.
+	 */
+	public MessageArena(){
+		this(16 * BASES_PER_WORD);
+	}
+
+	/**
+	 * Creates an empty store with room for the given number of bases, so appending them does not grow it.
+	 * @param expectedBases number of bases of all the messages expected to be stored
+	 */
+	public MessageArena(long expectedBases){
+
+		if(expectedBases < 0){
+			throw new IllegalArgumentException("Expected number of bases must not be negative: " + expectedBases);
+		}
+
+		this.words = new long[wordsFor(Math.max(expectedBases, 1))];
+	}
+
+	/**
+	 * Generates a given number of random "A","C","G","T" sequences of the given length directly into a new store.
+	 * Every random long gives 32 bases, no String is created. The same random stream always generates the same sequences.
+	 * @param numOfMessages number of sequences to generate
+	 * @param messageLength length of every generated sequence
+	 * @param random source of the bases
+	 * @return store holding the generated sequences
+	 */
+	public static MessageArena generate(int numOfMessages, int messageLength, SplittableRandom random){
+
+		if(numOfMessages < 0 || messageLength < 0){
+			throw new IllegalArgumentException("Number and length of messages must not be negative: " + numOfMessages + ", " + messageLength);
+		}
+
+		long bases = (long)numOfMessages * messageLength;
+		MessageArena arena = new MessageArena(bases);
+
+		int usedWords = wordsFor(bases);
+		for(int i = 0; i < usedWords; ++i){
+			arena.words[i] = random.nextLong();
+		}
+
+		arena.count = numOfMessages;
+		arena.messageLength = messageLength;
+		arena.basesStored = bases;
+
+		return arena;
+	}
+
+	/**
+	 * Appends a message to the store.
+	 * @param message bases of the message, case insensitive
+	 * @throws IllegalArgumentException if a character of the message is not a base
+	 */
+	public void append(CharSequence message){
+
+		int length = message.length();
+		ensureCapacity(basesStored + length);
+
+		long start = basesStored;
+		for(int i = 0; i < length; ++i){
+
+			int code = code(message.charAt(i));
+			if(code < 0){
+				throw new IllegalArgumentException("Not a DNA message: " + message);
+			}
+
+			long base = start + i;
+			int shift = (int)(base % BASES_PER_WORD) * 2;
+			int word = (int)(base / BASES_PER_WORD);
+			words[word] = (words[word] & ~(3L << shift)) | ((long)code << shift);
+		}
+
+		if(count == 0){
+			messageLength = length;
+		} else if(messageLength != length && offsets == null){
+			offsets = new long[Math.max(count + 2, 16)];
+			for(int i = 0; i <= count; ++i){
+				offsets[i] = (long)i * messageLength;
+			}
+			messageLength = -1;
+		}
+
+		if(offsets != null){
+			if(offsets.length < count + 2){
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[count + 1] = start + length;
+		}
+
+		basesStored += length;
+		count++;
+	}
+
+	/**
+	 * Returns a view of the message with the given index.
+	 * @param index index of the message
+	 * @return view of the message
+	 */
+	@Override
+	public CharSequence get(int index){
+
+		if(index < 0 || index >= count){
+			throw new IndexOutOfBoundsException("Message index " + index + " out of " + count);
+		}
+
+		return new Message(index);
+	}
+
+	@Override
+	public int size(){
+		return count;
+	}
+
+	/**
+	 * Returns the length shared by all the stored messages.
+	 * @return length of every message, or -1 if the messages are of different lengths
+	 */
+	public int getMessageLength(){
+		return messageLength;
+	}
+
+	/**
+	 * Returns the memory used by the packed bases and offsets.
+	 * @return memory used in bytes
+	 */
+	public long getMemoryUsage(){
+		return (long)words.length * Long.BYTES + (offsets == null ? 0 : (long)offsets.length * Long.BYTES);
+	}
+
+	private long start(int index){
+		return offsets == null ? (long)index * messageLength : offsets[index];
+	}
+
+	private int length(int index){
+		return offsets == null ? messageLength : (int)(offsets[index + 1] - offsets[index]);
+	}
+
+	private int base(long base){
+		return (int)(words[(int)(base / BASES_PER_WORD)] >>> ((base % BASES_PER_WORD) * 2)) & 3;
+	}
+
+	private void ensureCapacity(long bases){
+
+		int needed = wordsFor(bases);
+		if(needed > words.length){
+			words = Arrays.copyOf(words, (int)Math.min(Integer.MAX_VALUE - 8, Math.max(needed, 2L * words.length)));
+		}
+	}
+
+	private static int wordsFor(long bases){
+
+		long words = (bases + BASES_PER_WORD - 1) / BASES_PER_WORD;
+		if(words > Integer.MAX_VALUE - 8){
+			throw new IllegalArgumentException("Too many bases for a single store: " + bases);
+		}
+
+		return (int)words;
+	}
+
+	private static int code(char base){
+		switch(base){
+			case 'A': case 'a':
+				return 0;
+			case 'C': case 'c':
+				return 1;
+			case 'G': case 'g':
+				return 2;
+			case 'T': case 't':
+				return 3;
+			default:
+				return -1;
+		}
+	}
+
+	/**
+	 * View of a stored message, decodes the bases when they are read.
+	 */
+	private final class Message implements CharSequence {
+
+		private final int index;
+
+		private Message(int index){
+			this.index = index;
+		}
+
+		@Override
+		public int length(){
+			return MessageArena.this.length(index);
+		}
+
+		@Override
+		public char charAt(int i){
+
+			if(i < 0 || i >= length()){
+				throw new IndexOutOfBoundsException("Base index " + i + " out of " + length());
+			}
+
+			return BASES[base(start(index) + i)];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end){
+			return toString().substring(start, end);
+		}
+
+		/**
+		 * Views are equal if their messages hold the same bases, no matter which store they are in.
+		 * A view is never equal to a String or any other CharSequence, equals could not be symmetric otherwise.
+		 */
+		@Override
+		public boolean equals(Object other){
+
+			if(!(other instanceof MessageArena.Message)){
+				return false;
+			}
+
+			Message message = (Message)other;
+			int length = length();
+			if(message.length() != length){
+				return false;
+			}
+
+			long start = start(index);
+			long otherStart = message.outer().start(message.index);
+			for(int i = 0; i < length; ++i){
+				if(base(start + i) != message.outer().base(otherStart + i)){
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		/**
+		 * Same as the hash code of the String holding the message. Views and Strings still never equal each other,
+		 * so a hash map keyed by views can not be searched with Strings.
+		 */
+		@Override
+		public int hashCode(){
+
+			int hash = 0;
+			long start = start(index);
+			for(int i = 0, length = length(); i < length; ++i){
+				hash = 31 * hash + BASES[base(start + i)];
+			}
+
+			return hash;
+		}
+
+		@Override
+		public String toString(){
+
+			char[] chars = new char[length()];
+			long start = start(index);
+			for(int i = 0; i < chars.length; ++i){
+				chars[i] = BASES[base(start + i)];
+			}
+
+			return new String(chars);
+		}
+
+		private MessageArena outer(){
+			return MessageArena.this;
+		}
+	}
+
+}
@@ -0,0 +1,36 @@
+package test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parses command line arguments of the test and benchmark programs, given as pairs of an option name
+ * starting with "-" and its value, for example "-threads 4 -seed 42".
+ * 
+ * @author Bruno
+ *
+ */
+public class Options {
+	
+	/**
+	 * Parses arguments given as pairs of an option name starting with "-" and its value.
+	 * 
+	 * @param args arguments of the program
+	 * 
+	 * @return map of option names without the "-" to their values, in the order they were given
+	 * @throws IllegalArgumentException if an option name does not start with "-"
+	 */
+	public static Map<String, String> parse(String[] args){
+		
+		Map<String, String> options = new LinkedHashMap<>();
+		for(int i = 0; i + 1 < args.length; i += 2){
+			if(!args[i].startsWith("-")){
+				throw new IllegalArgumentException("Expected an option instead of: " + args[i]);
+			}
+			options.put(args[i].substring(1), args[i + 1]);
+		}
+		
+		return options;
+	}
+	
+}
@@ -0,0 +1,133 @@
+package testresults;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds the result of a single benchmark: its name, parameters and the average time of an operation
+ * measured in every measurement iteration. Written as JSON in the layout of JMH results, so the results
+ * can be compared with the usual JMH tools.
+ *
+ * @author Bruno
+ *
+ */
+public class BenchmarkResult extends TestResult{
+
+	private static final double Z_99_9 = 3.291;
+
+	private String benchmark;
+	private Map<String, String> params;
+	private int warmupIterations;
+	private double[] nanosPerOperation;
+
+	/**
+	 * Default constructor. Takes the name of the benchmark, its parameters, number of warmup iterations
+	 * and the average time of an operation in every measurement iteration.
+	 *
+	 * @param benchmark name of the benchmark
+	 * @param params parameters of the benchmark
+	 * @param warmupIterations number of warmup iterations done before measuring
+	 * @param nanosPerOperation average time of an operation in nanoseconds, one for every measurement iteration
+	 */
+	public BenchmarkResult(String benchmark, Map<String, String> params, int warmupIterations, double[] nanosPerOperation) {
+		super();
+		this.benchmark = benchmark;
+		this.params = new LinkedHashMap<>(params);
+		this.warmupIterations = warmupIterations;
+		this.nanosPerOperation = nanosPerOperation.clone();
+	}
+
+	/**
+	 * Calculates the mean time of an operation over all measurement iterations.
+	 * @return average time of an operation in nanoseconds
+	 */
+	public double getScore(){
+
+		double sum = 0;
+		for(double score: nanosPerOperation){
+			sum += score;
+		}
+
+		return sum / nanosPerOperation.length;
+	}
+
+	/**
+	 * Calculates the half-width of the 99.9% confidence interval of the score, using the normal approximation.
+	 * @return error of the score in nanoseconds
+	 */
+	public double getScoreError(){
+
+		if(nanosPerOperation.length < 2){
+			return Double.NaN;
+		}
+
+		double mean = getScore();
+		double squares = 0;
+		for(double score: nanosPerOperation){
+			squares += (score - mean) * (score - mean);
+		}
+
+		return Z_99_9 * Math.sqrt(squares / (nanosPerOperation.length - 1) / nanosPerOperation.length);
+	}
+
+	/**
+	 * Writes the result as a JSON object.
+	 * @return JSON representation of the result
+	 */
+	public String toJson(){
+
+		StringBuilder json = new StringBuilder();
+		json.append("{\"benchmark\":").append(quote(benchmark));
+		json.append(",\"mode\":\"avgt\"");
+		json.append(",\"warmupIterations\":").append(warmupIterations);
+		json.append(",\"measurementIterations\":").append(nanosPerOperation.length);
+
+		json.append(",\"params\":{");
+		boolean first = true;
+		for(Map.Entry<String, String> param: params.entrySet()){
+			json.append(first ? "" : ",").append(quote(param.getKey())).append(':').append(quote(param.getValue()));
+			first = false;
+		}
+		json.append('}');
+
+		json.append(",\"primaryMetric\":{\"score\":").append(number(getScore()));
+		json.append(",\"scoreError\":").append(number(getScoreError()));
+		json.append(",\"scoreUnit\":\"ns/op\",\"rawData\":[[");
+		for(int i = 0; i < nanosPerOperation.length; ++i){
+			json.append(i == 0 ? "" : ",").append(number(nanosPerOperation[i]));
+		}
+		json.append("]]}}");
+
+		return json.toString();
+	}
+
+	private static String quote(String value){
+		return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
+
+	private static String number(double value){
+		return Double.isNaN(value) || Double.isInfinite(value) ? "\"NaN\"" : Double.toString(value);
+	}
+
+	public String getBenchmark() {
+		return benchmark;
+	}
+
+	public Map<String, String> getParams() {
+		return params;
+	}
+
+	public int getWarmupIterations() {
+		return warmupIterations;
+	}
+
+	public double[] getNanosPerOperation() {
+		return nanosPerOperation.clone();
+	}
+
+	@Override
+	public String toString(){
+		return String.format("%-28s %-60s %10.2f +- %.2f ns/op", benchmark, params, getScore(), getScoreError());
+	}
+
+}
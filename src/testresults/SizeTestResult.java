@@ -8,28 +8,44 @@ package testresults;
  */
 public class SizeTestResult extends TestResult{
 	
-	private int size;
+	private long size;
 	private int hashesPerMessage;
 	private double theroeticalFPPercentage;
 	private double testedFPPercentage;
+	private double blockedTestedFPPercentage;
+	private double bitsPerMessage;
+	private double fuseBitsPerMessage;
+	private double fuseTestedFPPercentage;
 	
 	/**
-	 * Default constructor. Takes size, number of hashes per message, theoretical and tested false positive percentage. 
+	 * Default constructor. Takes size, number of hashes per message, theoretical and tested false positive percentage
+	 * and the tested false positive percentage of a blocked Bloom filter of the same size. Also takes the bits per message
+	 * of the Bloom filter and the bits per message and tested false positive percentage of a binary fuse filter
+	 * storing the same messages.
 	 * 
 	 * @param size size of the Bloom filter
 	 * @param hashesPerMessage number of hashes a the Bloom filter will make for saving/searching of a single message
 	 * @param theroeticalFPPercentage theoretical false positive percentage
 	 * @param testedFPPercentage tested false positive percentage
+	 * @param blockedTestedFPPercentage tested false positive percentage of the blocked Bloom filter
+	 * @param bitsPerMessage bits of the Bloom filter per stored message
+	 * @param fuseBitsPerMessage bits of the binary fuse filter per stored message
+	 * @param fuseTestedFPPercentage tested false positive percentage of the binary fuse filter
 	 */
-	public SizeTestResult(int size, int hashesPerMessage, double theroeticalFPPercentage, double testedFPPercentage) {
+	public SizeTestResult(long size, int hashesPerMessage, double theroeticalFPPercentage, double testedFPPercentage, 
+			double blockedTestedFPPercentage, double bitsPerMessage, double fuseBitsPerMessage, double fuseTestedFPPercentage) {
 		super();
 		this.size = size;
 		this.hashesPerMessage = hashesPerMessage;
 		this.theroeticalFPPercentage = theroeticalFPPercentage;
 		this.testedFPPercentage = testedFPPercentage;
+		this.blockedTestedFPPercentage = blockedTestedFPPercentage;
+		this.bitsPerMessage = bitsPerMessage;
+		this.fuseBitsPerMessage = fuseBitsPerMessage;
+		this.fuseTestedFPPercentage = fuseTestedFPPercentage;
 	}
 
-	public int getSize() {
+	public long getSize() {
 		return size;
 	}
 
@@ -44,6 +60,22 @@ public class SizeTestResult extends TestResult{
 	public double getTestedFPPercentage() {
 		return testedFPPercentage;
 	}
+
+	public double getBlockedTestedFPPercentage() {
+		return blockedTestedFPPercentage;
+	}
+
+	public double getBitsPerMessage() {
+		return bitsPerMessage;
+	}
+
+	public double getFuseBitsPerMessage() {
+		return fuseBitsPerMessage;
+	}
+
+	public double getFuseTestedFPPercentage() {
+		return fuseTestedFPPercentage;
+	}
 	
 	
 	
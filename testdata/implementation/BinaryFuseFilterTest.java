@@ -0,0 +1,85 @@
+package implementation;
+
+import static implementation.Checks.check;
+import static implementation.Checks.checkEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import hashfunctions.HashFunction;
+import test.MessageArena;
+
+/**
+ * Checks of the binary fuse filter: no false negatives from empty and single message filters up to large ones,
+ * duplicate messages stored once and the false positive percentage of 8 and 16 bit fingerprints.
+ * 
+ * @author Bruno
+ *
+ */
+public class BinaryFuseFilterTest {
+	
+	public static void main(String[] args) {
+		
+		MessageArena messages = Checks.messages(200000, 30, 7);
+		MessageArena others = Checks.messages(200000, 30, 8);
+		
+		for(int fingerprintBits: new int[]{8, 16}){
+			for(int count: new int[]{0, 1, 2, 3, 10, 100, 1000, 50000, 200000}){
+				build(messages.subList(0, count), others, fingerprintBits);
+			}
+		}
+		
+		duplicates(messages);
+		
+		try {
+			new BinaryFuseFilter(messages.subList(0, 10), 12, HashFunction.Murmur3);
+			check(false, "a filter with 12 bit fingerprints was built");
+		} catch (IllegalArgumentException e) {
+		}
+		
+		Checks.passed("BinaryFuseFilterTest");
+	}
+	
+	private static void build(List<CharSequence> messages, MessageArena others, int fingerprintBits){
+		
+		BinaryFuseFilter filter = new BinaryFuseFilter(messages, fingerprintBits, HashFunction.Murmur3);
+		checkEquals(messages.size(), filter.getMessagesStored(), "messages stored");
+		
+		for(CharSequence message: messages){
+			check(filter.contains(message), filter + " false negative: " + message);
+		}
+		
+		int falsePositives = 0;
+		for(CharSequence message: others){
+			falsePositives += filter.contains(message) ? 1 : 0;
+		}
+		
+		if(messages.isEmpty()){
+			checkEquals(0, falsePositives, "false positives of an empty filter");
+		} else {
+			double expected = filter.expectedFalsePositives() * others.size();
+			check(falsePositives <= 1.5 * expected + 10, filter + " false positives " + falsePositives + ", expected " + expected);
+		}
+	}
+	
+	private static void duplicates(MessageArena messages){
+		
+		List<CharSequence> withDuplicates = new ArrayList<>(messages.subList(0, 10000));
+		withDuplicates.addAll(messages.subList(0, 5000));
+		withDuplicates.add(messages.get(0));
+		Collections.shuffle(withDuplicates, new Random(9));
+		
+		BinaryFuseFilter filter = new BinaryFuseFilter(withDuplicates, 8, HashFunction.Murmur3);
+		checkEquals(10000, filter.getMessagesStored(), "distinct messages stored");
+		for(CharSequence message: withDuplicates){
+			check(filter.contains(message), "false negative of a duplicated message: " + message);
+		}
+		
+		BinaryFuseFilter single = new BinaryFuseFilter(Collections.nCopies(100, messages.get(0)), 16, HashFunction.Murmur3);
+		checkEquals(1, single.getMessagesStored(), "messages stored from copies of one message");
+		check(single.contains(messages.get(0)), "false negative of a message given 100 times");
+	}
+	
+}
@@ -0,0 +1,94 @@
+package implementation;
+
+import java.util.SplittableRandom;
+
+import test.MessageArena;
+
+/**
+ * Assertions shared by the check programs of the implementation package. The checks run without a test framework,
+ * every check program is a main method that throws AssertionError on the first failed check. They are in the same
+ * package as the classes they check, so they can compare the bit vectors. Compiled against the compiled sources 
+ * and run one by one, for example:
+ * <pre>
+ * javac -cp bin -d bin testdata/implementation/*.java
+ * java -cp bin implementation.HashTableFileTest
+ * </pre>
+ * 
+ * @author Bruno
+ *
+ */
+class Checks {
+	
+	/**
+	 * Fails if the given condition does not hold.
+	 * @param condition condition to check
+	 * @param message description of the failure
+	 * @throws AssertionError if the condition does not hold
+	 */
+	static void check(boolean condition, String message){
+		if(!condition){
+			throw new AssertionError(message);
+		}
+	}
+	
+	/**
+	 * Fails if the given values differ.
+	 * @param expected expected value
+	 * @param actual actual value
+	 * @param what description of the value
+	 * @throws AssertionError if the values differ
+	 */
+	static void checkEquals(long expected, long actual, String what){
+		if(expected != actual){
+			throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+		}
+	}
+	
+	/**
+	 * Fails if the hash-tables differ in their parameters, number of stored messages or any word of the bit vector.
+	 * Also recounts the set bits of the actual hash-table and compares them to the count it keeps track of.
+	 * @param expected expected hash-table
+	 * @param actual actual hash-table
+	 * @throws AssertionError if the hash-tables differ
+	 */
+	static void checkSameTable(HashTable expected, HashTable actual){
+		
+		checkEquals(expected.getSize(), actual.getSize(), "size");
+		checkEquals(expected.getHashesPerMessage(), actual.getHashesPerMessage(), "hashes per message");
+		check(expected.getHashFunction() == actual.getHashFunction(), "hash function: expected " 
+				+ expected.getHashFunction() + " but was " + actual.getHashFunction());
+		check(expected.getIndexStrategy() == actual.getIndexStrategy(), "index strategy: expected " 
+				+ expected.getIndexStrategy() + " but was " + actual.getIndexStrategy());
+		check(expected.layout().equals(actual.layout()), "layout: expected " + expected.layout() + " but was " + actual.layout());
+		checkEquals(expected.getMessagesStored(), actual.getMessagesStored(), "messages stored");
+		
+		BitVector expectedBits = expected.getTable();
+		BitVector actualBits = actual.getTable();
+		long bits = 0;
+		for(long i = 0; i < expectedBits.getNumberOfWords(); ++i){
+			checkEquals(expectedBits.getWord(i), actualBits.getWord(i), "word " + i);
+			bits += Long.bitCount(actualBits.getWord(i));
+		}
+		checkEquals(bits, actual.getNumberOfFull(), "counted set bits");
+	}
+	
+	/**
+	 * Generates random DNA messages, the same seed always generates the same messages.
+	 * @param numOfMessages number of messages
+	 * @param messageLength length of every message
+	 * @param seed seed of the random bases
+	 * @return store of the messages
+	 */
+	static MessageArena messages(int numOfMessages, int messageLength, long seed){
+		return MessageArena.generate(numOfMessages, messageLength, new SplittableRandom(seed));
+	}
+	
+	/**
+	 * Prints that all the checks of a check program passed.
+	 * @param name name of the check program
+	 */
+	static void passed(String name){
+		System.out.println(name + ": all checks passed");
+	}
+	
+}
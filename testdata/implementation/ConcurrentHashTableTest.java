@@ -0,0 +1,107 @@
+package implementation;
+
+import static implementation.Checks.check;
+import static implementation.Checks.checkEquals;
+import static implementation.Checks.checkSameTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import hashfunctions.HashFunction;
+import test.MessageArena;
+
+/**
+ * Checks of the ConcurrentHashTable and its AtomicBitVector under contention: many threads add and check messages
+ * at once, in hash-tables small enough that the threads keep setting bits of the same words. No added message is
+ * ever missed, every add is counted and the count of set bits kept by the AtomicBitVector matches the bits
+ * of its words, which are the same as the bits of adding the messages one by one.
+ * 
+ * @author Bruno
+ *
+ */
+public class ConcurrentHashTableTest {
+	
+	private static final int THREADS = 8;
+	private static final int ROUNDS = 5;
+	
+	public static void main(String[] args) throws InterruptedException {
+		
+		MessageArena messages = Checks.messages(80000, 30, 5);
+		
+		for(int round = 0; round < ROUNDS; ++round){
+			concurrentAddsAndContains(new ConcurrentHashTable(1 << 16, 3, HashFunction.Murmur3), messages);
+			concurrentAddsAndContains(new ConcurrentHashTable(1 << 20, 5, HashFunction.XXHash64), messages);
+		}
+		
+		ConcurrentHashTable reused = new ConcurrentHashTable(1 << 18, 4, HashFunction.Murmur3_128);
+		concurrentAddsAndContains(reused, messages);
+		reused.clear();
+		checkEquals(0, reused.getMessagesStored(), "messages stored after clear");
+		checkEquals(0, reused.getNumberOfFull(), "set bits after clear");
+		concurrentAddsAndContains(reused, messages);
+		
+		Checks.passed("ConcurrentHashTableTest");
+	}
+	
+	/**
+	 * Every thread adds its own slice of the messages one at a time, checking each message right after adding it
+	 * and every message of its slice added before, while checks of the other threads run on the same words.
+	 * The hash-table is then compared to one built by a single thread.
+	 */
+	private static void concurrentAddsAndContains(ConcurrentHashTable hashTable, MessageArena messages) 
+			throws InterruptedException{
+		
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		List<Throwable> failures = new ArrayList<>();
+		int part = (messages.size() + THREADS - 1) / THREADS;
+		
+		for(int from = 0; from < messages.size(); from += part){
+			List<CharSequence> slice = messages.subList(from, Math.min(messages.size(), from + part));
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+					for(int i = 0; i < slice.size(); ++i){
+						hashTable.add(slice.get(i));
+						check(hashTable.contains(slice.get(i)), "false negative right after adding: " + slice.get(i));
+						CharSequence earlier = slice.get(i / 2);
+						check(hashTable.contains(earlier), "false negative of an earlier message: " + earlier);
+					}
+				} catch (Throwable e) {
+					synchronized (failures) {
+						failures.add(e);
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		start.countDown();
+		for(Thread thread: threads){
+			thread.join();
+		}
+		
+		if(!failures.isEmpty()){
+			throw new AssertionError(failures.size() + " threads failed", failures.get(0));
+		}
+		
+		checkEquals(messages.size(), hashTable.getMessagesStored(), "messages stored by concurrent adds");
+		for(CharSequence message: messages){
+			check(hashTable.contains(message), "false negative after concurrent adds: " + message);
+		}
+		
+		BitVector table = hashTable.getTable();
+		long bits = 0;
+		for(long i = 0; i < table.getNumberOfWords(); ++i){
+			bits += Long.bitCount(table.getWord(i));
+		}
+		checkEquals(bits, hashTable.getNumberOfFull(), "tracked set bits of the AtomicBitVector");
+		
+		HashTable expected = new HashTable(hashTable.getSize(), hashTable.getHashesPerMessage(), hashTable.getHashFunction(),
+				hashTable.getIndexStrategy());
+		expected.addAll(messages);
+		checkSameTable(expected, hashTable);
+	}
+	
+}
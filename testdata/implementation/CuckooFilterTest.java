@@ -0,0 +1,130 @@
+package implementation;
+
+import static implementation.Checks.check;
+import static implementation.Checks.checkEquals;
+
+import java.util.List;
+
+import hashfunctions.HashFunction;
+import test.MessageArena;
+
+/**
+ * Checks of the cuckoo filter: no false negatives up to the maximal load factor, for fingerprints that do and do not
+ * cross word boundaries and for any number of buckets, removal of stored messages, duplicates, a full filter
+ * and the false positive percentage.
+ * 
+ * @author Bruno
+ *
+ */
+public class CuckooFilterTest {
+	
+	public static void main(String[] args) {
+		
+		MessageArena messages = Checks.messages(40000, 30, 5);
+		MessageArena others = Checks.messages(100000, 30, 6);
+		
+		for(int fingerprintBits: new int[]{7, 12, 16, 32}){
+			for(long numberOfBuckets: new long[]{1000, 1024, 10007}){
+				addAndRemove(new CuckooFilter(numberOfBuckets, fingerprintBits, HashFunction.Murmur3), messages);
+			}
+		}
+		
+		duplicates(messages);
+		fullFilter(messages);
+		falsePositives(messages, others);
+		
+		Checks.passed("CuckooFilterTest");
+	}
+	
+	/**
+	 * Fills the filter to the maximal load factor, removes every other message and then the rest of them.
+	 */
+	private static void addAndRemove(CuckooFilter filter, MessageArena messages){
+		
+		int count = (int)(filter.getCapacity() * CuckooFilter.MAX_LOAD_FACTOR);
+		List<CharSequence> stored = messages.subList(0, count);
+		
+		checkEquals(0, filter.addAll(stored), filter + " rejected messages");
+		checkEquals(count, filter.getMessagesStored(), "messages stored");
+		checkContained(filter, stored, 0, 1);
+		
+		for(int i = 0; i < count; i += 2){
+			check(filter.remove(stored.get(i)), filter + " could not remove a stored message: " + stored.get(i));
+		}
+		checkEquals(count / 2, filter.getMessagesStored(), "messages stored after removing half");
+		checkContained(filter, stored, 1, 2);
+		
+		for(int i = 1; i < count; i += 2){
+			check(filter.remove(stored.get(i)), filter + " could not remove a stored message: " + stored.get(i));
+		}
+		checkEquals(0, filter.getMessagesStored(), "messages stored after removing all");
+		for(CharSequence message: stored){
+			check(!filter.contains(message), filter + " contains a message after all were removed: " + message);
+		}
+	}
+	
+	private static void duplicates(MessageArena messages){
+		
+		CuckooFilter filter = new CuckooFilter(1024, 12, HashFunction.Murmur3);
+		CharSequence message = messages.get(0);
+		
+		check(filter.add(message) && filter.add(message), "a duplicate was rejected");
+		check(filter.remove(message), "a duplicate was not removed");
+		check(filter.contains(message), "removing one duplicate removed both");
+		check(filter.remove(message), "the second duplicate was not removed");
+		check(!filter.remove(message), "a message was removed more times than it was added");
+		checkEquals(0, filter.getMessagesStored(), "messages stored after removing the duplicates");
+	}
+	
+	/**
+	 * Adds messages until the filter is full, every accepted message still has to be contained. Removing messages
+	 * has to make room again once the fingerprint kicked out last fits into one of its buckets.
+	 */
+	private static void fullFilter(MessageArena messages){
+		
+		CuckooFilter filter = new CuckooFilter(64, 12, HashFunction.Murmur3);
+		int accepted = 0;
+		while(accepted < messages.size() && filter.add(messages.get(accepted))){
+			++accepted;
+		}
+		
+		check(accepted < messages.size(), "the filter never got full");
+		check(accepted <= filter.getCapacity() + 1, "the filter accepted more messages than it has slots");
+		checkEquals(accepted, filter.getMessagesStored(), "messages stored in a full filter");
+		checkContained(filter, messages.subList(0, accepted), 0, 1);
+		
+		int removed = 0;
+		while(!filter.add(messages.get(accepted))){
+			check(removed < accepted, "a message was rejected by an empty filter");
+			check(filter.remove(messages.get(removed)), "a message was not removed from a full filter: " + messages.get(removed));
+			++removed;
+		}
+		checkContained(filter, messages.subList(removed, accepted + 1), 0, 1);
+		
+		filter.clear();
+		checkEquals(0, filter.getMessagesStored(), "messages stored after clear");
+		check(filter.add(messages.get(0)) && filter.contains(messages.get(0)), "a cleared filter does not accept messages");
+	}
+	
+	private static void falsePositives(MessageArena messages, MessageArena others){
+		
+		CuckooFilter filter = new CuckooFilter(30000, 0.01, HashFunction.Murmur3);
+		checkEquals(0, filter.addAll(messages.subList(0, 30000)), "rejected messages");
+		
+		int falsePositives = 0;
+		for(CharSequence message: others){
+			falsePositives += filter.contains(message) ? 1 : 0;
+		}
+		
+		double percentage = (double)falsePositives / others.size();
+		check(percentage <= 0.01 && percentage <= 1.5 * filter.expectedFalsePositives(), 
+				"false positive percentage " + percentage + ", expected " + filter.expectedFalsePositives());
+	}
+	
+	private static void checkContained(CuckooFilter filter, List<CharSequence> messages, int from, int step){
+		for(int i = from; i < messages.size(); i += step){
+			check(filter.contains(messages.get(i)), filter + " false negative: " + messages.get(i));
+		}
+	}
+	
+}
@@ -0,0 +1,240 @@
+package implementation;
+
+import static implementation.Checks.check;
+import static implementation.Checks.checkEquals;
+import static implementation.Checks.checkSameTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import hashfunctions.HashFunction;
+import implementation.HashTableCodec.Encoding;
+import test.MessageArena;
+
+/**
+ * Checks of the compressed hash-table encodings: every encoding reads back the same bits, the same layout and the same
+ * number of messages for empty, sparse and half full hash-tables of the classic and the blocked layout, reading into a
+ * target checks its layout, and corrupted, truncated or unsupported bytes are rejected without changing the target.
+ * 
+ * @author Bruno
+ *
+ */
+public class HashTableCodecTest {
+	
+	private static final byte[] KEY = "codec test key".getBytes(StandardCharsets.UTF_8);
+	
+	public static void main(String[] args) throws IOException {
+		
+		MessageArena messages = Checks.messages(20000, 30, 2);
+		
+		for(int fill: new int[]{0, 100, 20000}){
+			MessageArena stored = new MessageArena();
+			for(int i = 0; i < fill; ++i){
+				stored.append(messages.get(i));
+			}
+			
+			roundTrip(new HashTable(1 << 18, 3, HashFunction.Murmur3), stored);
+			roundTrip(new HashTable(100003, 4, HashFunction.FNV, IndexStrategy.MODULO), stored);
+			roundTrip(new BlockedHashTable(1 << 18, 3, HashFunction.Murmur3, 64), stored);
+			roundTrip(new BlockedHashTable(1 << 18, 5, HashFunction.XXHash64, 512), stored);
+		}
+		
+		keyedTarget(messages);
+		layoutMismatch();
+		unsupportedTables();
+		corruptedBytes(messages);
+		corruptedIntoTarget(messages);
+		truncatedFile(messages);
+		
+		Checks.passed("HashTableCodecTest");
+	}
+	
+	private static void roundTrip(HashTable hashTable, MessageArena messages) throws IOException{
+		
+		hashTable.addAll(messages);
+		
+		for(Encoding encoding: Encoding.values()){
+			byte[] bytes = write(hashTable, encoding);
+			checkEquals(HashTableCodec.encodedSize(hashTable, encoding), bytes.length, encoding + " encoded size");
+			
+			HashTable read = HashTableCodec.read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+			checkSameTable(hashTable, read);
+			if(hashTable instanceof BlockedHashTable){
+				checkEquals(((BlockedHashTable)hashTable).getBlockSize(), ((BlockedHashTable)read).getBlockSize(), "block size");
+			}
+			for(CharSequence message: messages){
+				check(read.contains(message), encoding + " false negative: " + message);
+			}
+			
+			HashTable target = hashTable.emptyCopy();
+			HashTableCodec.read(Channels.newChannel(new ByteArrayInputStream(bytes)), target);
+			checkSameTable(hashTable, target);
+		}
+		
+		Encoding smallest = HashTableCodec.smallestEncoding(hashTable);
+		for(Encoding encoding: Encoding.values()){
+			check(HashTableCodec.encodedSize(hashTable, smallest) <= HashTableCodec.encodedSize(hashTable, encoding), 
+					smallest + " is not the smallest encoding");
+		}
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		checkEquals(HashTableCodec.encodedSize(hashTable, smallest), HashTableCodec.write(hashTable, Channels.newChannel(output)), 
+				"bytes written in the smallest encoding");
+	}
+	
+	private static void keyedTarget(MessageArena messages) throws IOException{
+		
+		HashTable hashTable = new HashTable(1 << 16, 3, IndexStrategy.POWER_OF_TWO, KEY);
+		hashTable.addAll(messages.subList(0, 1000));
+		byte[] bytes = write(hashTable, Encoding.GOLOMB);
+		
+		HashTable target = new HashTable(1 << 16, 3, IndexStrategy.POWER_OF_TWO, KEY);
+		HashTableCodec.read(Channels.newChannel(new ByteArrayInputStream(bytes)), target);
+		checkSameTable(hashTable, target);
+		for(CharSequence message: messages.subList(0, 1000)){
+			check(target.contains(message), "keyed false negative: " + message);
+		}
+	}
+	
+	private static void layoutMismatch() throws IOException{
+		
+		byte[] classic = write(new HashTable(1 << 16, 3, HashFunction.Murmur3), Encoding.RAW);
+		byte[] blocked = write(new BlockedHashTable(1 << 16, 3, HashFunction.Murmur3, 512), Encoding.RAW);
+		
+		try {
+			HashTableCodec.read(Channels.newChannel(new ByteArrayInputStream(classic)), new BlockedHashTable(1 << 16, 3, HashFunction.Murmur3, 512));
+			check(false, "a classic hash-table was read into a blocked one");
+		} catch (IllegalArgumentException e) {
+		}
+		
+		try {
+			HashTableCodec.read(Channels.newChannel(new ByteArrayInputStream(blocked)), new HashTable(1 << 16, 3, HashFunction.Murmur3));
+			check(false, "a blocked hash-table was read into a classic one");
+		} catch (IllegalArgumentException e) {
+		}
+		
+		try {
+			HashTableCodec.read(Channels.newChannel(new ByteArrayInputStream(blocked)), new BlockedHashTable(1 << 16, 3, HashFunction.Murmur3, 64));
+			check(false, "a blocked hash-table was read into one with a different block size");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	
+	private static void unsupportedTables() throws IOException{
+		
+		try {
+			write(new CountingHashTable(1 << 16, 3, HashFunction.Murmur3), Encoding.RAW);
+			check(false, "a counting hash-table was written");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	
+	private static void corruptedBytes(MessageArena messages) throws IOException{
+		
+		HashTable hashTable = new HashTable(1 << 16, 3, HashFunction.Murmur3);
+		hashTable.addAll(messages.subList(0, 1000));
+		
+		for(Encoding encoding: Encoding.values()){
+			byte[] bytes = write(hashTable, encoding);
+			
+			for(int position: new int[]{5, 20, HashTableCodec.HEADER_LENGTH + 3, bytes.length - 1}){
+				byte[] corrupted = bytes.clone();
+				corrupted[position] ^= 0x10;
+				try {
+					HashTableCodec.read(Channels.newChannel(new ByteArrayInputStream(corrupted)));
+					check(false, encoding + " bytes corrupted at " + position + " were read");
+				} catch (IOException e) {
+				}
+			}
+			
+			byte[] versionOne = bytes.clone();
+			versionOne[4] = 1;
+			try {
+				HashTableCodec.read(Channels.newChannel(new ByteArrayInputStream(versionOne)));
+				check(false, encoding + " bytes of version 1 were read");
+			} catch (IOException e) {
+			}
+		}
+	}
+	
+	/**
+	 * Reads corrupted bytes into a filled target, the target has to stay as it was.
+	 */
+	private static void corruptedIntoTarget(MessageArena messages) throws IOException{
+		
+		HashTable written = new HashTable(1 << 16, 3, HashFunction.Murmur3);
+		written.addAll(messages.subList(0, 2000));
+		HashTable target = written.emptyCopy();
+		target.addAll(messages.subList(2000, 2100));
+		HashTable expected = target.emptyCopy();
+		expected.union(target);
+		
+		for(Encoding encoding: Encoding.values()){
+			byte[] bytes = write(written, encoding);
+			
+			for(int position: new int[]{HashTableCodec.HEADER_LENGTH + 3, bytes.length / 2, bytes.length - 1}){
+				byte[] corrupted = bytes.clone();
+				corrupted[position] ^= 0x10;
+				try {
+					HashTableCodec.read(Channels.newChannel(new ByteArrayInputStream(corrupted)), target);
+					check(false, encoding + " bytes corrupted at " + position + " were read into a target");
+				} catch (IOException e) {
+				}
+				checkSameTable(expected, target);
+			}
+			
+			try {
+				HashTableCodec.read(Channels.newChannel(new ByteArrayInputStream(bytes, 0, bytes.length - 10)), target);
+				check(false, encoding + " truncated bytes were read into a target");
+			} catch (IOException e) {
+			}
+			checkSameTable(expected, target);
+		}
+		
+		byte[] bytes = write(written, Encoding.RAW);
+		bytes[15] ^= 0x10;
+		try {
+			HashTableCodec.read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+			check(false, "a corrupted size was read");
+		} catch (IOException e) {
+		}
+	}
+	
+	/**
+	 * A truncated file is rejected before a bit vector of the written size is allocated.
+	 */
+	private static void truncatedFile(MessageArena messages) throws IOException{
+		
+		HashTable hashTable = new HashTable(1 << 20, 3, HashFunction.Murmur3);
+		hashTable.addAll(messages.subList(0, 100));
+		byte[] bytes = write(hashTable, Encoding.RAW);
+		
+		Path path = Files.createTempFile("hashtable", ".blmw");
+		try {
+			Files.write(path, Arrays.copyOf(bytes, HashTableCodec.HEADER_LENGTH + 100));
+			try(FileChannel channel = FileChannel.open(path)){
+				HashTableCodec.read(channel);
+				check(false, "a truncated file was read");
+			} catch (IOException e) {
+				check(e.getMessage().startsWith("Truncated"), "a truncated file was not recognized before decoding: " + e.getMessage());
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+	
+	private static byte[] write(HashTable hashTable, Encoding encoding) throws IOException{
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		HashTableCodec.write(hashTable, Channels.newChannel(output), encoding);
+		return output.toByteArray();
+	}
+	
+}
@@ -0,0 +1,218 @@
+package implementation;
+
+import static implementation.Checks.check;
+import static implementation.Checks.checkEquals;
+import static implementation.Checks.checkSameTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import hashfunctions.HashFunction;
+import test.MessageArena;
+
+/**
+ * Checks of the hash-table file format: saved and created hash-tables are opened with the same bits for every
+ * index strategy, the checksum covers the header and the bit vector, and files the format can not describe
+ * are rejected.
+ * 
+ * @author Bruno
+ *
+ */
+public class HashTableFileTest {
+	
+	public static void main(String[] args) throws IOException {
+		
+		MessageArena messages = Checks.messages(5000, 30, 1);
+		
+		for(IndexStrategy indexStrategy: IndexStrategy.values()){
+			saveAndOpen(new HashTable(1 << 16, 3, HashFunction.Murmur3, indexStrategy), messages);
+			if(indexStrategy != IndexStrategy.POWER_OF_TWO){
+				saveAndOpen(new HashTable(100003, 5, HashFunction.XXHash64, indexStrategy), messages);
+			}
+		}
+		
+		createAndReopen(messages);
+		keyedFile(messages);
+		corruptedFile(messages);
+		unsupportedFiles();
+		
+		Checks.passed("HashTableFileTest");
+	}
+	
+	private static void saveAndOpen(HashTable hashTable, MessageArena messages) throws IOException{
+		
+		hashTable.addAll(messages);
+		Path path = Files.createTempFile("hashtable", ".blmf");
+		try {
+			HashTableFile.save(hashTable, path);
+			
+			try(MappedHashTable opened = HashTableFile.open(path, true)){
+				checkSameTable(hashTable, opened);
+				check(opened.verifyChecksum(), "checksum of a saved file");
+				for(CharSequence message: messages){
+					check(opened.contains(message), "false negative in an opened file: " + message);
+				}
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+	
+	private static void createAndReopen(MessageArena messages) throws IOException{
+		
+		Path path = Files.createTempFile("hashtable", ".blmf");
+		Files.delete(path);
+		try {
+			HashTable expected = new HashTable(1 << 18, 4, HashFunction.Murmur3_128);
+			expected.addAll(messages);
+			
+			try(MappedHashTable created = HashTableFile.create(path, 1 << 18, 4, HashFunction.Murmur3_128)){
+				created.addAll(messages);
+			}
+			
+			try(MappedHashTable opened = HashTableFile.open(path, false)){
+				checkSameTable(expected, opened);
+				check(opened.verifyChecksum(), "checksum of a created file");
+				
+				opened.clear();
+				checkEquals(0, opened.getMessagesStored(), "messages stored after clear");
+			}
+			
+			try(MappedHashTable opened = HashTableFile.open(path, true)){
+				checkEquals(0, opened.getNumberOfFull(), "set bits of a cleared file");
+				checkEquals(0, opened.getMessagesStored(), "messages stored in a cleared file");
+				check(opened.verifyChecksum(), "checksum of a cleared file");
+			}
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+	
+	private static void keyedFile(MessageArena messages) throws IOException{
+		
+		byte[] key = "hash-table file key".getBytes(StandardCharsets.UTF_8);
+		HashTable hashTable = new HashTable(1 << 18, 4, IndexStrategy.FASTRANGE, key);
+		hashTable.addAll(messages);
+		Path path = Files.createTempFile("hashtable", ".blmf");
+		try {
+			HashTableFile.save(hashTable, path);
+			
+			try {
+				HashTableFile.open(path, true).close();
+				check(false, "a keyed file was opened without its key");
+			} catch (IOException e) {
+			}
+			
+			try(MappedHashTable opened = HashTableFile.open(path, true, key)){
+				checkSameTable(hashTable, opened);
+				for(CharSequence message: messages){
+					check(opened.contains(message), "false negative in an opened keyed file: " + message);
+				}
+			}
+			
+			Files.delete(path);
+			try {
+				HashTableFile.create(path, 1 << 18, 4, HashFunction.HMAC_SHA256).close();
+				check(false, "a keyed file was created without its key");
+			} catch (IllegalArgumentException e) {
+			}
+			check(!Files.exists(path), "a keyed file created without its key was left behind");
+			
+			try(MappedHashTable created = HashTableFile.create(path, 1 << 18, 4, IndexStrategy.FASTRANGE, key)){
+				created.addAll(messages);
+			}
+			try(MappedHashTable opened = HashTableFile.open(path, false, key)){
+				checkSameTable(hashTable, opened);
+				check(opened.verifyChecksum(), "checksum of a created keyed file");
+			}
+			
+			HashTableFile.save(new HashTable(1 << 16, 3, HashFunction.Murmur3), path);
+			try {
+				HashTableFile.open(path, true, key).close();
+				check(false, "a file that is not keyed was opened with a key");
+			} catch (IOException e) {
+			}
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+	
+	private static void corruptedFile(MessageArena messages) throws IOException{
+		
+		HashTable hashTable = new HashTable(1 << 16, 3, HashFunction.Murmur3);
+		hashTable.addAll(messages);
+		Path path = Files.createTempFile("hashtable", ".blmf");
+		try {
+			HashTableFile.save(hashTable, path);
+			
+			patch(path, HashTableFile.MESSAGES_STORED_OFFSET, (byte)1);
+			try(MappedHashTable opened = HashTableFile.open(path, true)){
+				check(!opened.verifyChecksum(), "checksum does not cover the header");
+			}
+			
+			HashTableFile.save(hashTable, path);
+			patch(path, HashTableFile.HEADER_LENGTH + 100, (byte)0x55);
+			try(MappedHashTable opened = HashTableFile.open(path, true)){
+				check(!opened.verifyChecksum(), "checksum does not cover the bit vector");
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+	
+	private static void unsupportedFiles() throws IOException{
+		
+		Path path = Files.createTempFile("hashtable", ".blmf");
+		try {
+			try {
+				HashTableFile.save(new BlockedHashTable(1 << 16, 3, HashFunction.Murmur3), path);
+				check(false, "a blocked hash-table was saved");
+			} catch (IllegalArgumentException e) {
+			}
+			
+			try {
+				HashTableFile.save(new CountingHashTable(1 << 16, 3, HashFunction.Murmur3), path);
+				check(false, "a counting hash-table was saved");
+			} catch (IllegalArgumentException e) {
+			}
+			
+			HashTableFile.save(new HashTable(1 << 16, 3, HashFunction.Murmur3), path);
+			patch(path, 4, (byte)1);
+			try {
+				HashTableFile.open(path, true).close();
+				check(false, "a version 1 file was opened");
+			} catch (IOException e) {
+			}
+			
+			HashTableFile.save(new HashTable(1 << 16, 3, HashFunction.Murmur3), path);
+			patch(path, HashTableFile.INDEX_STRATEGY_OFFSET, (byte)99);
+			try {
+				HashTableFile.open(path, true).close();
+				check(false, "a file with an unknown index strategy was opened");
+			} catch (IOException e) {
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+	
+	/**
+	 * Flips bits of one byte of a file.
+	 */
+	private static void patch(Path path, long position, byte mask) throws IOException{
+		
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+			ByteBuffer buffer = ByteBuffer.allocate(1);
+			channel.read(buffer, position);
+			buffer.flip();
+			buffer.put(0, (byte)(buffer.get(0) ^ mask));
+			checkEquals(1, channel.write(buffer, position), "patched bytes");
+		}
+	}
+	
+}
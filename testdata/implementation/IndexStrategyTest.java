@@ -0,0 +1,70 @@
+package implementation;
+
+import static implementation.Checks.check;
+
+import java.util.SplittableRandom;
+
+import hashfunctions.HashFunction;
+
+/**
+ * Checks of the index strategies on hash-tables larger than 2^32 bits: the default strategy reaches every bit, so the
+ * measured percentages of set bits and of false positives match the expected ones, and the per hash strategies,
+ * which can not address more than 2^32 bits, reject such sizes. The hash-tables take up to 1 GB, run with -Xmx2g.
+ * 
+ * @author Bruno
+ *
+ */
+public class IndexStrategyTest {
+	
+	private static final int QUERIES = 2000000;
+	
+	public static void main(String[] args) {
+		
+		check(IndexStrategy.forSize(1L << 33) == IndexStrategy.ENHANCED_DOUBLE_HASHING, "default strategy above 2^32 bits");
+		check(IndexStrategy.forSize(1L << 32) == IndexStrategy.POWER_OF_TWO, "default strategy of 2^32 bits");
+		
+		for(IndexStrategy indexStrategy: IndexStrategy.values()){
+			indexStrategy.check(1L << 32);
+			if(indexStrategy != IndexStrategy.ENHANCED_DOUBLE_HASHING){
+				try {
+					indexStrategy.check((1L << 32) + 64);
+					check(false, indexStrategy + " accepted a hash-table larger than 2^32 bits");
+				} catch (IllegalArgumentException e) {
+				}
+			}
+		}
+		
+		falsePositives(new HashTable(1L << 33, 1, HashFunction.Murmur3), 50000000);
+		falsePositives(new HashTable(6000000000L, 2, HashFunction.XXHash64), 100000000);
+		
+		Checks.passed("IndexStrategyTest");
+	}
+	
+	/**
+	 * Adds random values and queries other random values, the measured percentages have to be within 10%
+	 * of the expected ones.
+	 */
+	private static void falsePositives(HashTable hashTable, int count){
+		
+		SplittableRandom random = new SplittableRandom(11);
+		for(int i = 0; i < count; ++i){
+			hashTable.add(random.nextLong());
+		}
+		
+		double full = (double)hashTable.getNumberOfFull() / hashTable.getSize();
+		double expectedFull = 1 - hashTable.expectedZeroes();
+		check(Math.abs(full - expectedFull) <= 0.1 * expectedFull, hashTable + " has " + full + " of its bits set, expected " 
+				+ expectedFull);
+		
+		int falsePositives = 0;
+		for(int i = 0; i < QUERIES; ++i){
+			falsePositives += hashTable.contains(random.nextLong()) ? 1 : 0;
+		}
+		
+		double percentage = (double)falsePositives / QUERIES;
+		double expected = hashTable.expectedFalsePositives();
+		check(Math.abs(percentage - expected) <= 0.1 * expected, hashTable + " false positive percentage " + percentage 
+				+ ", expected " + expected);
+	}
+	
+}
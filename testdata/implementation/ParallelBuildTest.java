@@ -0,0 +1,119 @@
+package implementation;
+
+import static implementation.Checks.check;
+import static implementation.Checks.checkEquals;
+import static implementation.Checks.checkSameTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import hashfunctions.HashFunction;
+import test.MessageArena;
+
+/**
+ * Checks of the parallel construction: adding messages in parallel on pools of several sizes sets exactly the bits
+ * and counts exactly the set bits and messages of adding them one by one, for every layout and for hash-tables large
+ * enough to be merged in several ranges. Also checks concurrent adds to a ConcurrentHashTable and union and intersection.
+ * 
+ * @author Bruno
+ *
+ */
+public class ParallelBuildTest {
+	
+	private static final long SIZE = 1L << 24;
+	
+	public static void main(String[] args) throws InterruptedException, ExecutionException {
+		
+		MessageArena messages = Checks.messages(200000, 30, 3);
+		MessageArena more = Checks.messages(50000, 30, 4);
+		
+		for(int threads: new int[]{1, 2, 4}){
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			
+			parallelBuild(new HashTable(SIZE, 3, HashFunction.Murmur3), messages, more, pool);
+			parallelBuild(new HashTable(10000019, 4, HashFunction.XXHash64, IndexStrategy.MODULO), messages, more, pool);
+			parallelBuild(new BlockedHashTable(SIZE, 5, HashFunction.Murmur3, 512), messages, more, pool);
+			parallelBuild(new ConcurrentHashTable(SIZE, 3, HashFunction.Murmur3), messages, more, pool);
+			concurrentAdds(messages, threads);
+			
+			pool.shutdown();
+		}
+		
+		unionAndIntersection(messages, more);
+		
+		Checks.passed("ParallelBuildTest");
+	}
+	
+	/**
+	 * Builds the hash-table in parallel, then adds more messages in parallel to the filled hash-table, 
+	 * and compares it to a hash-table built one message at a time after each step.
+	 */
+	private static void parallelBuild(HashTable hashTable, MessageArena messages, MessageArena more, ForkJoinPool pool){
+		
+		HashTable expected = hashTable.emptyCopy();
+		
+		expected.addAll(messages);
+		hashTable.addAllParallel(messages, pool);
+		checkSameTable(expected, hashTable);
+		
+		expected.addAll(more);
+		hashTable.addAllParallel(more, pool);
+		checkSameTable(expected, hashTable);
+	}
+	
+	private static void concurrentAdds(MessageArena messages, int threads) throws InterruptedException, ExecutionException{
+		
+		ConcurrentHashTable expected = new ConcurrentHashTable(SIZE, 3, HashFunction.Murmur3);
+		ConcurrentHashTable hashTable = new ConcurrentHashTable(SIZE, 3, HashFunction.Murmur3);
+		expected.addAll(messages);
+		
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		List<Future<?>> adds = new ArrayList<>();
+		int part = (messages.size() + threads - 1) / threads;
+		for(int from = 0; from < messages.size(); from += part){
+			List<CharSequence> slice = messages.subList(from, Math.min(messages.size(), from + part));
+			adds.add(pool.submit(() -> hashTable.addAll(slice)));
+		}
+		for(Future<?> add: adds){
+			add.get();
+		}
+		pool.shutdown();
+		
+		checkSameTable(expected, hashTable);
+	}
+	
+	private static void unionAndIntersection(MessageArena messages, MessageArena more){
+		
+		HashTable all = new HashTable(SIZE, 3, HashFunction.Murmur3);
+		HashTable first = all.emptyCopy();
+		HashTable second = all.emptyCopy();
+		all.addAll(messages);
+		all.addAll(more);
+		first.addAll(messages);
+		second.addAll(more);
+		
+		HashTable union = first.emptyCopy();
+		union.union(first);
+		union.union(second);
+		checkSameTable(all, union);
+		
+		HashTable intersection = all.emptyCopy();
+		intersection.union(all);
+		intersection.intersect(first);
+		checkEquals(first.getNumberOfFull(), intersection.getNumberOfFull(), "set bits of the intersection with a subset");
+		checkEquals(messages.size(), intersection.getMessagesStored(), "messages stored in the intersection");
+		for(CharSequence message: messages){
+			check(intersection.contains(message), "false negative in the intersection: " + message);
+		}
+		
+		try {
+			union.union(new BlockedHashTable(SIZE, 3, HashFunction.Murmur3));
+			check(false, "a blocked hash-table was merged into a classic one");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	
+}